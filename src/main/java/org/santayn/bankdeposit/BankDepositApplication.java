@@ -3,6 +3,7 @@ package org.santayn.bankdeposit;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Точка входа Spring Boot-приложения.
@@ -10,6 +11,7 @@ import org.springframework.context.ConfigurableApplicationContext;
  * который потом использует JavaFX-приложение.
  */
 @SpringBootApplication
+@EnableScheduling
 public class BankDepositApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,47 @@
+package org.santayn.bankdeposit.initializer;
+
+import lombok.RequiredArgsConstructor;
+import org.santayn.bankdeposit.service.BalanceSnapshotService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Снимки остатков: при запуске и затем по расписанию (по умолчанию в 00:10)
+ * досоздаёт снимки за все пропущенные завершившиеся дни
+ * (или концы месяцев при bankdeposit.snapshot.monthly=true).
+ *
+ * Каждый снимок пишется своей транзакцией; повтор за ту же дату
+ * перезаписывает её, поэтому одновременный запуск на нескольких узлах безопасен.
+ */
+@Component
+@RequiredArgsConstructor
+public class BalanceSnapshotInitializer implements ApplicationRunner {
+
+    private final BalanceSnapshotService balanceSnapshotService;
+
+    @Value("${bankdeposit.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${bankdeposit.snapshot.monthly:false}")
+    private boolean monthly;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        catchUp();
+    }
+
+    @Scheduled(cron = "${bankdeposit.snapshot.cron:0 10 0 * * *}")
+    public void catchUp() {
+        if (!enabled) {
+            return;
+        }
+        for (LocalDate date : balanceSnapshotService.getMissingSnapshotDates(LocalDate.now(), monthly)) {
+            balanceSnapshotService.takeSnapshot(date);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.santayn.bankdeposit.initializer;
+
+import lombok.RequiredArgsConstructor;
+import org.santayn.bankdeposit.service.ContractArchiveService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Переносит в архив давно закрытые договоры при запуске.
+ */
+@Component
+@RequiredArgsConstructor
+public class ContractArchiveInitializer implements ApplicationRunner {
+
+    private final ContractArchiveService contractArchiveService;
+
+    @Value("${bankdeposit.archive.on-startup:true}")
+    private boolean onStartup;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (onStartup) {
+            contractArchiveService.archiveClosedContracts(LocalDate.now());
+        }
+    }
+}
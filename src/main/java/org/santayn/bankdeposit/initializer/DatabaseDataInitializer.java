@@ -13,6 +13,7 @@ import org.santayn.bankdeposit.repository.DepositOperationRepository;
 import org.santayn.bankdeposit.repository.DepositProductRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
@@ -21,7 +22,8 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 /**
- * Создаёт тестовые данные при первом запуске приложения.
+ * Создаёт тестовые данные при первом запуске приложения
+ * (отключается bankdeposit.seed.on-startup=false).
  */
 @Component
 @RequiredArgsConstructor
@@ -34,8 +36,15 @@ public class DatabaseDataInitializer implements CommandLineRunner {
     private final DepositContractRepository depositContractRepository;
     private final DepositOperationRepository depositOperationRepository;
 
+    @Value("${bankdeposit.seed.on-startup:true}")
+    private boolean onStartup;
+
     @Override
     public void run(String... args) {
+        if (!onStartup) {
+            return;
+        }
+
         logger.info("Запуск инициализации тестовых данных...");
 
         Customer customer = initCustomer();
@@ -106,6 +115,7 @@ public class DatabaseDataInitializer implements CommandLineRunner {
                 .product(product)
                 .openDate(LocalDate.now())
                 .closeDate(null)
+                .accruedThroughDate(LocalDate.now())
                 .initialAmount(initialAmount)
                 .currentBalance(initialAmount)
                 .interestRate(product.getBaseInterestRate())
@@ -120,6 +130,7 @@ public class DatabaseDataInitializer implements CommandLineRunner {
                 .operationDateTime(LocalDateTime.now())
                 .type(DepositOperationType.OPENING)
                 .amount(initialAmount)
+                .balanceAfter(initialAmount)
                 .description("Открытие вклада и зачисление первоначальной суммы")
                 .build();
 
@@ -0,0 +1,24 @@
+package org.santayn.bankdeposit.initializer;
+
+import lombok.RequiredArgsConstructor;
+import org.santayn.bankdeposit.service.OperationPartitionService;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Создаёт секции таблицы операций на текущий и ближайшие месяцы при запуске.
+ */
+@Component
+@RequiredArgsConstructor
+public class OperationPartitionInitializer implements ApplicationRunner {
+
+    private final OperationPartitionService operationPartitionService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        operationPartitionService.ensurePartitions(LocalDate.now());
+    }
+}
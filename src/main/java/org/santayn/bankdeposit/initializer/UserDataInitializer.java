@@ -6,12 +6,14 @@ import org.santayn.bankdeposit.models.UserRole;
 import org.santayn.bankdeposit.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.stereotype.Component;
 
 /**
- * Инициализация тестовых пользователей.
+ * Инициализация тестовых пользователей
+ * (отключается bankdeposit.seed.on-startup=false).
  */
 @Component
 @RequiredArgsConstructor
@@ -21,8 +23,15 @@ public class UserDataInitializer implements ApplicationRunner {
 
     private final UserRepository userRepository;
 
+    @Value("${bankdeposit.seed.on-startup:true}")
+    private boolean onStartup;
+
     @Override
     public void run(ApplicationArguments args) {
+        if (!onStartup) {
+            return;
+        }
+
         createIfNotExists(
                 "admin",
                 "admin",
@@ -0,0 +1,79 @@
+package org.santayn.bankdeposit.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Контрольная точка пакетного начисления процентов.
+ *
+ * Обновляется в одной транзакции с каждой обработанной порцией договоров,
+ * поэтому после сбоя прогон продолжается с последней зафиксированной порции.
+ */
+@Entity
+@Table(name = "accrual_checkpoints")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccrualCheckpoint {
+
+    /**
+     * Уникальный идентификатор контрольной точки.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Дата, на которую выполняется начисление.
+     */
+    @Column(name = "accrual_date", nullable = false, unique = true)
+    private LocalDate accrualDate;
+
+    /**
+     * id последнего договора в зафиксированной порции.
+     */
+    @Column(name = "last_contract_id", nullable = false)
+    private Long lastContractId;
+
+    /**
+     * Сколько договоров уже просмотрено в рамках прогона.
+     */
+    @Column(name = "processed_count", nullable = false)
+    private Integer processedCount;
+
+    /**
+     * По скольким договорам проценты фактически начислены.
+     */
+    @Column(name = "accrued_count", nullable = false)
+    private Integer accruedCount;
+
+    /**
+     * По скольким договорам начисление завершилось ошибкой.
+     */
+    @Column(name = "failed_count", nullable = false)
+    private Integer failedCount;
+
+    /**
+     * Прогон дошёл до конца списка договоров.
+     */
+    @Column(name = "completed", nullable = false)
+    private Boolean completed;
+
+    /**
+     * Время последнего обновления.
+     */
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
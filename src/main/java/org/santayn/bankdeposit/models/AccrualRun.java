@@ -0,0 +1,99 @@
+package org.santayn.bankdeposit.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Журнал прогонов пакетного начисления процентов.
+ * Хранит статистику для разбора сбоев и планирования мощностей.
+ */
+@Entity
+@Table(name = "accrual_runs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccrualRun {
+
+    /**
+     * Уникальный идентификатор прогона.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Дата, на которую выполнялось начисление.
+     */
+    @Column(name = "accrual_date", nullable = false)
+    private LocalDate accrualDate;
+
+    /**
+     * Способ выполнения.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "strategy", nullable = false, length = 20)
+    private AccrualStrategy strategy;
+
+    /**
+     * Состояние прогона.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private AccrualRunStatus status;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    /**
+     * Длительность прогона в миллисекундах.
+     */
+    @Column(name = "duration_ms")
+    private Long durationMs;
+
+    /**
+     * Сколько OPEN-договоров просмотрено.
+     */
+    @Column(name = "contracts_processed")
+    private Integer contractsProcessed;
+
+    /**
+     * По скольким договорам начислены проценты.
+     */
+    @Column(name = "contracts_accrued")
+    private Integer contractsAccrued;
+
+    /**
+     * Сколько договоров пропущено (уже начислено на дату, нулевой баланс и т.п.).
+     */
+    @Column(name = "contracts_skipped")
+    private Integer contractsSkipped;
+
+    /**
+     * По скольким договорам начисление завершилось ошибкой.
+     */
+    @Column(name = "contracts_failed")
+    private Integer contractsFailed;
+
+    /**
+     * Текст ошибки, остановившей прогон.
+     */
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+}
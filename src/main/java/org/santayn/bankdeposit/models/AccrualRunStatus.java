@@ -0,0 +1,22 @@
+package org.santayn.bankdeposit.models;
+
+/**
+ * Состояние прогона пакетного начисления процентов.
+ */
+public enum AccrualRunStatus {
+
+    /**
+     * Прогон выполняется (или был прерван аварийно).
+     */
+    RUNNING,
+
+    /**
+     * Прогон дошёл до конца; отдельные договоры могли не пройти (см. failed).
+     */
+    COMPLETED,
+
+    /**
+     * Прогон остановлен ошибкой.
+     */
+    FAILED
+}
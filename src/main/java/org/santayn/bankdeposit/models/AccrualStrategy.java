@@ -0,0 +1,30 @@
+package org.santayn.bankdeposit.models;
+
+/**
+ * Способ выполнения пакетного начисления процентов.
+ */
+public enum AccrualStrategy {
+
+    /**
+     * Java-расчёт в одном потоке, порциями с контрольной точкой.
+     */
+    SEQUENTIAL,
+
+    /**
+     * Java-расчёт в нескольких потоках по диапазонам id.
+     */
+    PARALLEL,
+
+    /**
+     * Весь расчёт выполняется одним SQL-оператором внутри PostgreSQL.
+     * Подходит для простого случая: одна ставка на договор, простые проценты.
+     */
+    SET_BASED,
+
+    /**
+     * Java-расчёт порциями, которые захватываются через FOR UPDATE SKIP LOCKED.
+     * Несколько экземпляров приложения могут одновременно выполнять один
+     * прогон на одной БД, деля договоры между собой без двойного начисления.
+     */
+    WORK_CLAIMING
+}
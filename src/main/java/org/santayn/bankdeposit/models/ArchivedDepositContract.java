@@ -0,0 +1,72 @@
+package org.santayn.bankdeposit.models;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Закрытый договор, перенесённый в архив (только чтение).
+ * Поля совпадают с DepositContract; id сохраняется прежним.
+ */
+@Entity
+@Immutable
+@Table(name = "deposit_contracts_archive")
+@Getter
+@NoArgsConstructor
+@ToString(exclude = {"customer", "product"})
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class ArchivedDepositContract {
+
+    @Id
+    @EqualsAndHashCode.Include
+    private Long id;
+
+    @Column(name = "contract_number", nullable = false, length = 50)
+    private String contractNumber;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "customer_id", nullable = false)
+    private Customer customer;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private DepositProduct product;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private DepositContractStatus status;
+
+    @Column(name = "open_date", nullable = false)
+    private LocalDate openDate;
+
+    @Column(name = "close_date")
+    private LocalDate closeDate;
+
+    @Column(name = "initial_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal initialAmount;
+
+    @Column(name = "current_balance", nullable = false, precision = 19, scale = 2)
+    private BigDecimal currentBalance;
+
+    @Column(name = "interest_rate", nullable = false, precision = 7, scale = 4)
+    private BigDecimal interestRate;
+
+    @Column(name = "last_accrual_date")
+    private LocalDate lastAccrualDate;
+
+    @Column(name = "accrued_through_date")
+    private LocalDate accruedThroughDate;
+
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    /**
+     * Когда договор перенесён в архив.
+     */
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
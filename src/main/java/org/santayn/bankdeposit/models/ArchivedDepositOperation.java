@@ -0,0 +1,61 @@
+package org.santayn.bankdeposit.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Операция архивного договора (только чтение).
+ * Поля совпадают с DepositOperation; id сохраняется прежним.
+ */
+@Entity
+@Immutable
+@Table(name = "deposit_operations_archive")
+@Getter
+@NoArgsConstructor
+@ToString(exclude = "contract")
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
+public class ArchivedDepositOperation {
+
+    @Id
+    @EqualsAndHashCode.Include
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "contract_id", nullable = false)
+    private ArchivedDepositContract contract;
+
+    @Column(name = "amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "operation_datetime", nullable = false)
+    private LocalDateTime operationDateTime;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operation_type", nullable = false, length = 30)
+    private DepositOperationType type;
+
+    @Column(name = "description", length = 255)
+    private String description;
+
+    @Column(name = "accrual_date")
+    private LocalDate accrualDate;
+
+    @Column(name = "balance_after", precision = 19, scale = 2)
+    private BigDecimal balanceAfter;
+}
@@ -0,0 +1,50 @@
+package org.santayn.bankdeposit.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Снимок остатка по договору на конец дня.
+ * Пара (contract_id, snapshot_date) уникальна.
+ */
+@Entity
+@Table(name = "balance_snapshots")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Договор; хранится только id, чтобы снимки оставались компактными.
+     */
+    @Column(name = "contract_id", nullable = false)
+    private Long contractId;
+
+    /**
+     * День, на конец которого снят остаток.
+     */
+    @Column(name = "snapshot_date", nullable = false)
+    private LocalDate snapshotDate;
+
+    /**
+     * Остаток с учётом всех операций до конца snapshotDate.
+     */
+    @Column(name = "balance", nullable = false, precision = 19, scale = 2)
+    private BigDecimal balance;
+}
@@ -21,7 +21,8 @@ import java.time.LocalDate;
 public class DepositContract {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "deposit_contracts_seq")
+    @SequenceGenerator(name = "deposit_contracts_seq", sequenceName = "deposit_contracts_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Long id;
 
@@ -54,4 +55,26 @@ public class DepositContract {
 
     @Column(name = "interest_rate", nullable = false, precision = 7, scale = 4)
     private BigDecimal interestRate;
+
+    /**
+     * Дата последней операции INTEREST_ACCRUAL (null, если начислений не было).
+     */
+    @Column(name = "last_accrual_date")
+    private LocalDate lastAccrualDate;
+
+    /**
+     * Дата, по которую проценты уже начислены.
+     * Для нового вклада совпадает с датой открытия; от неё считается
+     * следующий период автоначисления без чтения истории операций.
+     */
+    @Column(name = "accrued_through_date")
+    private LocalDate accruedThroughDate;
+
+    /**
+     * Версия строки для оптимистической блокировки.
+     * Растёт при каждом изменении договора, в том числе SQL-проводками.
+     */
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 }
@@ -10,6 +10,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -20,6 +21,7 @@ import lombok.ToString;
 import lombok.EqualsAndHashCode;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 /**
@@ -40,7 +42,8 @@ public class DepositOperation {
      * Уникальный идентификатор операции.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "deposit_operations_seq")
+    @SequenceGenerator(name = "deposit_operations_seq", sequenceName = "deposit_operations_seq", allocationSize = 50)
     @EqualsAndHashCode.Include
     private Long id;
 
@@ -75,4 +78,21 @@ public class DepositOperation {
      */
     @Column(name = "description", length = 255)
     private String description;
+
+    /**
+     * Дата, за которую выполнено автоначисление процентов.
+     * Заполняется только пакетным начислением; пара (contract_id, accrual_date)
+     * уникальна, что исключает двойное начисление за одну дату.
+     * Лежит в том же месяце, что и operationDateTime (таблица секционирована по месяцам).
+     */
+    @Column(name = "accrual_date")
+    private LocalDate accrualDate;
+
+    /**
+     * Остаток по договору сразу после операции.
+     * Записывается в той же транзакции, что и изменение баланса;
+     * остаток на момент X — последняя операция не позже X.
+     */
+    @Column(name = "balance_after", precision = 19, scale = 2)
+    private BigDecimal balanceAfter;
 }
@@ -0,0 +1,15 @@
+package org.santayn.bankdeposit.repository;
+
+import org.santayn.bankdeposit.models.AccrualCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Репозиторий контрольных точек начисления процентов.
+ */
+public interface AccrualCheckpointRepository extends JpaRepository<AccrualCheckpoint, Long> {
+
+    Optional<AccrualCheckpoint> findByAccrualDate(LocalDate accrualDate);
+}
@@ -0,0 +1,15 @@
+package org.santayn.bankdeposit.repository;
+
+import org.santayn.bankdeposit.models.AccrualRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Репозиторий журнала прогонов начисления процентов.
+ */
+public interface AccrualRunRepository extends JpaRepository<AccrualRun, Long> {
+
+    List<AccrualRun> findByAccrualDateOrderByStartedAtDesc(LocalDate accrualDate);
+}
@@ -0,0 +1,115 @@
+package org.santayn.bankdeposit.repository;
+
+import org.santayn.bankdeposit.models.ArchivedDepositContract;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Репозиторий архива закрытых договоров.
+ */
+public interface ArchivedDepositContractRepository extends JpaRepository<ArchivedDepositContract, Long> {
+
+    /**
+     * Архивные договоры клиента.
+     */
+    @Query("""
+            select new org.santayn.bankdeposit.repository.ContractRow(
+                dc.id,
+                dc.contractNumber,
+                cu.id,
+                cu.lastName,
+                cu.firstName,
+                cu.middleName,
+                p.name,
+                dc.status,
+                dc.openDate,
+                dc.closeDate,
+                dc.initialAmount,
+                dc.currentBalance,
+                dc.interestRate
+            )
+            from ArchivedDepositContract dc
+            join dc.customer cu
+            join dc.product p
+            where cu.id = :customerId
+            order by dc.id
+            """)
+    List<ContractRow> findRowsByCustomerId(Long customerId);
+
+    /**
+     * Включает до конца транзакции признак архивации: удаление операций
+     * при переносе в архив не уменьшает обороты daily_turnover.
+     */
+    @Query(value = "select set_config('bankdeposit.archiving', 'on', true)", nativeQuery = true)
+    String enterArchivingMode();
+
+    /**
+     * Переносит в архив одним оператором порцию до batchSize договоров,
+     * закрытых раньше closedBefore, вместе с их операциями.
+     * Строки удаляются из рабочих таблиц и вставляются в архивные с теми же id.
+     * Договоры, заблокированные другой транзакцией, пропускаются.
+     */
+    @Query(value = """
+            with picked as (
+                select dc.id
+                from deposit_contracts dc
+                where dc.status = 'CLOSED'
+                  and dc.close_date < cast(:closedBefore as date)
+                order by dc.id
+                limit :batchSize
+                for update of dc skip locked
+            ),
+            moved_operations as (
+                delete from deposit_operations o
+                using picked p
+                where o.contract_id = p.id
+                returning o.id, o.contract_id, o.amount, o.operation_datetime, o.operation_type, o.description,
+                          o.accrual_date, o.balance_after
+            ),
+            moved_contracts as (
+                delete from deposit_contracts dc
+                using picked p
+                where dc.id = p.id
+                returning dc.id, dc.contract_number, dc.customer_id, dc.product_id, dc.status, dc.open_date,
+                          dc.close_date, dc.initial_amount, dc.current_balance, dc.interest_rate,
+                          dc.last_accrual_date, dc.accrued_through_date, dc.version
+            ),
+            archived_contracts as (
+                insert into deposit_contracts_archive (id, contract_number, customer_id, product_id, status,
+                                                       open_date, close_date, initial_amount, current_balance,
+                                                       interest_rate, last_accrual_date, accrued_through_date,
+                                                       version, archived_at)
+                select c.id, c.contract_number, c.customer_id, c.product_id, c.status,
+                       c.open_date, c.close_date, c.initial_amount, c.current_balance,
+                       c.interest_rate, c.last_accrual_date, c.accrued_through_date,
+                       c.version, :archivedAt
+                from moved_contracts c
+                returning 1
+            ),
+            archived_operations as (
+                insert into deposit_operations_archive (id, contract_id, amount, operation_datetime, operation_type,
+                                                        description, accrual_date, balance_after)
+                select o.id, o.contract_id, o.amount, o.operation_datetime, o.operation_type,
+                       o.description, o.accrual_date, o.balance_after
+                from moved_operations o
+                returning 1
+            )
+            select (select count(*) from archived_contracts) as contracts,
+                   (select count(*) from archived_operations) as operations
+            """, nativeQuery = true)
+    ArchiveBatchResult archiveClosedBatch(LocalDate closedBefore, int batchSize, LocalDateTime archivedAt);
+
+    /**
+     * Итог одной порции архивации.
+     */
+    interface ArchiveBatchResult {
+
+        Long getContracts();
+
+        Long getOperations();
+    }
+}
@@ -0,0 +1,109 @@
+package org.santayn.bankdeposit.repository;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.santayn.bankdeposit.models.ArchivedDepositOperation;
+import org.santayn.bankdeposit.models.DepositOperationType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Репозиторий операций архивных договоров.
+ */
+public interface ArchivedDepositOperationRepository extends JpaRepository<ArchivedDepositOperation, Long> {
+
+    /**
+     * Время самой поздней операции в архиве (null, если архив пуст).
+     * Отчёт за период, начинающийся позже, архив не читает.
+     */
+    @Query("select max(o.operationDateTime) from ArchivedDepositOperation o")
+    LocalDateTime findLatestOperationDateTime();
+
+    /**
+     * Остаток после последней операции архивного договора не позже момента
+     * (как DepositOperationRepository.findBalanceAfterAsOf). Вызывается с Limit.of(1).
+     */
+    @Query("""
+            select o.balanceAfter
+            from ArchivedDepositOperation o
+            where o.contract.id = :contractId
+              and o.operationDateTime <= :asOf
+            order by o.operationDateTime desc, o.id desc
+            """)
+    List<BigDecimal> findBalanceAfterAsOf(Long contractId, LocalDateTime asOf, Limit limit);
+
+    /**
+     * Операции архива за период в хронологическом порядке;
+     * type == null — все типы, customerId == null — все клиенты.
+     */
+    @Query("""
+            select new org.santayn.bankdeposit.repository.OperationRow(
+                o.id,
+                o.operationDateTime,
+                o.type,
+                o.amount,
+                o.balanceAfter,
+                o.description,
+                c.id,
+                c.contractNumber,
+                cu.id,
+                cu.lastName,
+                cu.firstName,
+                cu.middleName
+            )
+            from ArchivedDepositOperation o
+            join o.contract c
+            join c.customer cu
+            where o.operationDateTime between :from and :to
+              and (:type is null or o.type = :type)
+              and (:customerId is null or cu.id = :customerId)
+            order by o.operationDateTime, o.id
+            """)
+    List<OperationRow> findRows(
+            LocalDateTime from,
+            LocalDateTime to,
+            DepositOperationType type,
+            Long customerId
+    );
+
+    /**
+     * То же потоком — для выгрузок (как DepositOperationRepository.streamRows).
+     */
+    @Query("""
+            select new org.santayn.bankdeposit.repository.OperationRow(
+                o.id,
+                o.operationDateTime,
+                o.type,
+                o.amount,
+                o.balanceAfter,
+                o.description,
+                c.id,
+                c.contractNumber,
+                cu.id,
+                cu.lastName,
+                cu.firstName,
+                cu.middleName
+            )
+            from ArchivedDepositOperation o
+            join o.contract c
+            join c.customer cu
+            where o.operationDateTime between :from and :to
+              and (:type is null or o.type = :type)
+              and (:customerId is null or cu.id = :customerId)
+            order by o.operationDateTime, o.id
+            """)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<OperationRow> streamRows(
+            LocalDateTime from,
+            LocalDateTime to,
+            DepositOperationType type,
+            Long customerId
+    );
+}
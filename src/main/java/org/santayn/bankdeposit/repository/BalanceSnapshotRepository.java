@@ -0,0 +1,130 @@
+package org.santayn.bankdeposit.repository;
+
+import org.santayn.bankdeposit.models.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Репозиторий снимков остатков.
+ *
+ * Остаток на конец дня X везде считается одинаково: ближайший снимок
+ * договора не позже X (или ноль, если снимков нет) плюс движения
+ * по операциям после дня снимка до конца X. Движения читаются
+ * по индексу (contract_id, operation_datetime, id).
+ * Пополнение, начисление и открытие увеличивают остаток, снятие уменьшает,
+ * прочие операции остаток не меняют.
+ * Запись, удаление или изменение операции за уже снятый день сдвигает
+ * остатки снимков договора с этой даты (триггер deposit_operations).
+ * Договоры и операции читаются вместе с архивом (представления *_all),
+ * поэтому остатки на прошлые даты учитывают и архивные договоры.
+ */
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+
+    /**
+     * Снимает остатки на конец дня по всем договорам, открытым к этому дню
+     * и не закрытым до него. Основа — предыдущий снимок договора,
+     * поэтому регулярные снимки читают только операции за период.
+     * Повторный снимок за ту же дату перезаписывается.
+     *
+     * @return число записанных снимков
+     */
+    @Modifying
+    @Query(value = """
+            insert into balance_snapshots (contract_id, snapshot_date, balance)
+            select dc.id,
+                   cast(:snapshotDate as date),
+                   coalesce(s.balance, 0) + coalesce(m.delta, 0)
+            from deposit_contracts_all dc
+            left join lateral (select bs.snapshot_date, bs.balance
+                               from balance_snapshots bs
+                               where bs.contract_id = dc.id
+                                 and bs.snapshot_date < cast(:snapshotDate as date)
+                               order by bs.snapshot_date desc
+                               limit 1) s on true
+            left join lateral (select sum(case
+                                              when o.operation_type = 'WITHDRAWAL' then -o.amount
+                                              when o.operation_type in ('OPENING', 'DEPOSIT', 'INTEREST_ACCRUAL')
+                                                  then o.amount
+                                              else 0
+                                          end) as delta
+                               from deposit_operations_all o
+                               where o.contract_id = dc.id
+                                 and o.operation_datetime >= coalesce(s.snapshot_date + 1, cast('-infinity' as date))
+                                 and o.operation_datetime < cast(:snapshotDate as date) + 1) m on true
+            where dc.open_date <= cast(:snapshotDate as date)
+              and (dc.close_date is null or dc.close_date > cast(:snapshotDate as date))
+            on conflict (contract_id, snapshot_date) do update
+                set balance = excluded.balance
+            """, nativeQuery = true)
+    int upsertSnapshots(LocalDate snapshotDate);
+
+    /**
+     * Дата последнего снимка (null, если снимков нет).
+     */
+    @Query("select max(s.snapshotDate) from BalanceSnapshot s")
+    LocalDate findLatestSnapshotDate();
+
+    /**
+     * Остаток договора на конец дня asOf: снимок + движения после него.
+     */
+    @Query(value = """
+            with s as (select bs.snapshot_date, bs.balance
+                       from balance_snapshots bs
+                       where bs.contract_id = :contractId
+                         and bs.snapshot_date <= cast(:asOf as date)
+                       order by bs.snapshot_date desc
+                       limit 1)
+            select coalesce((select balance from s), 0)
+                       + coalesce((select sum(case
+                                                  when o.operation_type = 'WITHDRAWAL' then -o.amount
+                                                  when o.operation_type in ('OPENING', 'DEPOSIT', 'INTEREST_ACCRUAL')
+                                                      then o.amount
+                                                  else 0
+                                              end)
+                                   from deposit_operations_all o
+                                   where o.contract_id = :contractId
+                                     and o.operation_datetime >= coalesce((select snapshot_date + 1 from s),
+                                                                          cast('-infinity' as date))
+                                     and o.operation_datetime < cast(:asOf as date) + 1), 0)
+            """, nativeQuery = true)
+    BigDecimal findBalanceAsOf(Long contractId, LocalDate asOf);
+
+    /**
+     * Портфель на конец дня asOf: договоры, открытые к этому дню
+     * и не закрытые до него, и сумма их остатков.
+     */
+    @Query(value = """
+            select count(*) as contractCount,
+                   coalesce(sum(coalesce(s.balance, 0) + coalesce(m.delta, 0)), 0) as totalBalance
+            from deposit_contracts_all dc
+            left join lateral (select bs.snapshot_date, bs.balance
+                               from balance_snapshots bs
+                               where bs.contract_id = dc.id
+                                 and bs.snapshot_date <= cast(:asOf as date)
+                               order by bs.snapshot_date desc
+                               limit 1) s on true
+            left join lateral (select sum(case
+                                              when o.operation_type = 'WITHDRAWAL' then -o.amount
+                                              when o.operation_type in ('OPENING', 'DEPOSIT', 'INTEREST_ACCRUAL')
+                                                  then o.amount
+                                              else 0
+                                          end) as delta
+                               from deposit_operations_all o
+                               where o.contract_id = dc.id
+                                 and o.operation_datetime >= coalesce(s.snapshot_date + 1, cast('-infinity' as date))
+                                 and o.operation_datetime < cast(:asOf as date) + 1) m on true
+            where dc.open_date <= cast(:asOf as date)
+              and (dc.close_date is null or dc.close_date > cast(:asOf as date))
+            """, nativeQuery = true)
+    PortfolioTotals findPortfolioAsOf(LocalDate asOf);
+
+    interface PortfolioTotals {
+        long getContractCount();
+
+        BigDecimal getTotalBalance();
+    }
+}
@@ -0,0 +1,26 @@
+package org.santayn.bankdeposit.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Минимальный набор полей договора для расчёта процентов без загрузки сущностей.
+ *
+ * @param contractId     id договора
+ * @param customerId     id клиента
+ * @param productId      id продукта
+ * @param balance        текущий баланс
+ * @param interestRate   годовая ставка, %
+ * @param baseDate       дата, по которую проценты уже начислены (иначе дата открытия)
+ * @param capitalization начисляются ли проценты с капитализацией
+ */
+public record ContractInterestRow(
+        Long contractId,
+        Long customerId,
+        Long productId,
+        BigDecimal balance,
+        BigDecimal interestRate,
+        LocalDate baseDate,
+        Boolean capitalization
+) {
+}
@@ -0,0 +1,41 @@
+package org.santayn.bankdeposit.repository;
+
+import org.santayn.bankdeposit.models.DepositContractStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Договор для отчётов, выгрузок и таблиц UI: только выводимые поля.
+ * Заполняется конструктором в запросе — сущности и прокси не создаются.
+ *
+ * @param id             id договора
+ * @param contractNumber № договора
+ * @param customerId     id клиента
+ * @param lastName       фамилия клиента
+ * @param firstName      имя клиента
+ * @param middleName     отчество клиента
+ * @param productName    название продукта
+ * @param status         статус
+ * @param openDate       дата открытия
+ * @param closeDate      дата закрытия
+ * @param initialAmount  начальная сумма
+ * @param currentBalance текущий баланс
+ * @param interestRate   годовая ставка, %
+ */
+public record ContractRow(
+        Long id,
+        String contractNumber,
+        Long customerId,
+        String lastName,
+        String firstName,
+        String middleName,
+        String productName,
+        DepositContractStatus status,
+        LocalDate openDate,
+        LocalDate closeDate,
+        BigDecimal initialAmount,
+        BigDecimal currentBalance,
+        BigDecimal interestRate
+) {
+}
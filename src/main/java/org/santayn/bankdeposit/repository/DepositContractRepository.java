@@ -1,13 +1,24 @@
 package org.santayn.bankdeposit.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.santayn.bankdeposit.models.DepositContract;
 import org.santayn.bankdeposit.models.DepositContractStatus;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface DepositContractRepository extends JpaRepository<DepositContract, Long> {
@@ -31,5 +42,333 @@ public interface DepositContractRepository extends JpaRepository<DepositContract
 
     List<DepositContract> findByStatus(DepositContractStatus depositContractStatus);
 
+    /**
+     * Договоры клиента для отчётов; status == null — все статусы.
+     */
+    @Query("""
+            select new org.santayn.bankdeposit.repository.ContractRow(
+                dc.id,
+                dc.contractNumber,
+                cu.id,
+                cu.lastName,
+                cu.firstName,
+                cu.middleName,
+                p.name,
+                dc.status,
+                dc.openDate,
+                dc.closeDate,
+                dc.initialAmount,
+                dc.currentBalance,
+                dc.interestRate
+            )
+            from DepositContract dc
+            join dc.customer cu
+            join dc.product p
+            where cu.id = :customerId
+              and (:status is null or dc.status = :status)
+            order by dc.id
+            """)
+    List<ContractRow> findRowsByCustomerId(Long customerId, DepositContractStatus status);
+
+    /**
+     * Порция договоров с указанным статусом в диапазоне (afterId; toId]
+     * (keyset-пагинация по id).
+     */
+    @Query("""
+            select dc
+            from DepositContract dc
+            left join fetch dc.product
+            where dc.status = :status
+              and dc.id > :afterId
+              and dc.id <= :toId
+            order by dc.id
+            """)
+    List<DepositContract> findChunkByStatusAndIdRange(
+            DepositContractStatus status,
+            Long afterId,
+            Long toId,
+            Limit limit
+    );
+
+    /**
+     * Порция договоров с указанным статусом по продуктам с капитализацией,
+     * id > afterId (keyset-пагинация по id).
+     */
+    @Query("""
+            select dc
+            from DepositContract dc
+            join fetch dc.product p
+            where dc.status = :status
+              and p.capitalization = true
+              and dc.id > :afterId
+            order by dc.id
+            """)
+    List<DepositContract> findCapitalizedChunkByStatus(
+            DepositContractStatus status,
+            Long afterId,
+            Limit limit
+    );
+
+    /**
+     * id договоров порции (afterId; toId] — для поштучной обработки упавшей порции.
+     */
+    @Query("""
+            select dc.id
+            from DepositContract dc
+            where dc.status = :status
+              and dc.id > :afterId
+              and dc.id <= :toId
+            order by dc.id
+            """)
+    List<Long> findIdsByStatusAndIdRange(
+            DepositContractStatus status,
+            Long afterId,
+            Long toId,
+            Limit limit
+    );
+
+    /**
+     * Захват порции OPEN-договоров с id > afterId, ещё не получивших автоначисление
+     * за дату. Строки блокируются до конца транзакции; строки, уже заблокированные
+     * другой транзакцией (другим экземпляром приложения), пропускаются.
+     */
+    @Query(value = """
+            select dc.id
+            from deposit_contracts dc
+            where dc.status = 'OPEN'
+              and dc.id > :afterId
+              and not exists (select 1
+                              from deposit_operations o
+                              where o.contract_id = dc.id
+                                and o.accrual_date = cast(:accrualDate as date)
+                                and o.operation_datetime >= date_trunc('month', cast(:accrualDate as timestamp))
+                                and o.operation_datetime < date_trunc('month', cast(:accrualDate as timestamp))
+                                                           + interval '1 month')
+            order by dc.id
+            limit :limit
+            for update of dc skip locked
+            """, nativeQuery = true)
+    List<Long> claimOpenIdsForAccrual(LocalDate accrualDate, Long afterId, int limit);
+
+    /**
+     * Договоры по списку id вместе с продуктом, в порядке id.
+     */
+    @Query("""
+            select dc
+            from DepositContract dc
+            left join fetch dc.product
+            where dc.id in :ids
+            order by dc.id
+            """)
+    List<DepositContract> findAllByIdInWithProduct(Collection<Long> ids);
+
+    /**
+     * Договор с блокировкой строки до конца транзакции.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            select dc
+            from DepositContract dc
+            where dc.id = :id
+            """)
+    Optional<DepositContract> findByIdForUpdate(Long id);
+
+    /**
+     * Потоковое чтение полей, нужных для расчёта процентов, по диапазону id.
+     * Сущности не создаются; требует открытой транзакции на время чтения.
+     */
+    @Query("""
+            select new org.santayn.bankdeposit.repository.ContractInterestRow(
+                dc.id,
+                dc.customer.id,
+                p.id,
+                dc.currentBalance,
+                dc.interestRate,
+                coalesce(dc.accruedThroughDate, dc.openDate),
+                p.capitalization
+            )
+            from DepositContract dc
+            join dc.product p
+            where dc.status = :status
+              and dc.id between :fromId and :toId
+            """)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<ContractInterestRow> streamInterestRowsByStatusAndIdRange(
+            DepositContractStatus status,
+            Long fromId,
+            Long toId
+    );
+
+    /**
+     * Делит id договоров с указанным статусом на partitions диапазонов
+     * примерно одинакового размера.
+     */
+    @Query(value = """
+            select min(b.id) as fromId, max(b.id) as toId
+            from (select id, ntile(:partitions) over (order by id) as bucket
+                  from deposit_contracts
+                  where status = :status) b
+            group by b.bucket
+            order by fromId
+            """, nativeQuery = true)
+    List<IdRange> findIdRangesByStatus(String status, int partitions);
+
+    /**
+     * Начисление процентов по всем OPEN-договорам одним оператором.
+     *
+     * Повторяет Java-расчёт InterestAccrualService:
+     * interest = round(balance * rate/100 * round(days/365, 10), 2) HALF_UP,
+     * где days отсчитывается от accrued_through_date (иначе от open_date).
+     * round(days/365, 10) считается целочисленно, чтобы не было двойного округления.
+     * Договоры, уже получившие автоначисление за дату, пропускаются (проба по
+     * уникальному индексу (contract_id, accrual_date) секции месяца начисления).
+     * Продукты с капитализацией (сложные проценты) сюда не входят — они
+     * начисляются Java-расчётом по кэшу множителей.
+     * Баланс, отметки начисления и операции INTEREST_ACCRUAL меняются атомарно.
+     */
+    @Query(value = """
+            with candidates as (
+                select dc.id as contract_id,
+                       dc.current_balance,
+                       dc.interest_rate,
+                       cast(:asOfDate as date) - coalesce(dc.accrued_through_date, dc.open_date) as days
+                from deposit_contracts dc
+                join deposit_products dp on dp.id = dc.product_id
+                where dc.status = 'OPEN'
+                  and coalesce(dp.capitalization, false) = false
+            ),
+            accrual as (
+                select c.contract_id,
+                       c.days,
+                       round(c.current_balance
+                             * (c.interest_rate / 100)
+                             * (div(cast(c.days as numeric) * 20000000000 + 365, 730) / 10000000000), 2) as interest
+                from candidates c
+                where c.current_balance > 0
+                  and c.interest_rate > 0
+                  and c.days > 0
+                  and not exists (select 1
+                                  from deposit_operations o
+                                  where o.contract_id = c.contract_id
+                                    and o.accrual_date = cast(:asOfDate as date)
+                                    and o.operation_datetime >= date_trunc('month', cast(:asOfDate as timestamp))
+                                    and o.operation_datetime < date_trunc('month', cast(:asOfDate as timestamp))
+                                                               + interval '1 month')
+            ),
+            posted as (
+                update deposit_contracts dc
+                set current_balance = dc.current_balance + a.interest,
+                    last_accrual_date = greatest(dc.last_accrual_date, cast(:asOfDate as date)),
+                    accrued_through_date = greatest(dc.accrued_through_date, cast(:asOfDate as date)),
+                    version = dc.version + 1
+                from accrual a
+                where dc.id = a.contract_id
+                  and a.interest > 0
+                returning dc.id, dc.current_balance, a.interest, a.days
+            ),
+            inserted as (
+                insert into deposit_operations (contract_id, amount, operation_datetime, operation_type, description,
+                                                accrual_date, balance_after)
+                select p.id,
+                       p.interest,
+                       :operationDateTime,
+                       'INTEREST_ACCRUAL',
+                       'Автоначисление процентов за ' || p.days || ' дн.',
+                       cast(:asOfDate as date),
+                       p.current_balance
+                from posted p
+                returning 1
+            )
+            select (select count(*) from candidates) as processed,
+                   (select count(*) from inserted) as accrued
+            """, nativeQuery = true)
+    SetBasedAccrualResult accrueInterestSetBased(LocalDate asOfDate, LocalDateTime operationDateTime);
+
+    /**
+     * Проводка пополнения/снятия одним оператором: условный UPDATE баланса
+     * и INSERT операции в одном обращении к БД.
+     *
+     * Баланс меняется только у OPEN-договора, если остаток не уходит в минус,
+     * продукт допускает пополнение (delta > 0) или частичное снятие (delta < 0),
+     * а при enforceLimits — если новый остаток укладывается в min/max продукта.
+     * Проверки выполняются над текущей версией строки, поэтому параллельные
+     * проводки по одному договору не теряют друг друга.
+     * Если условие не выполнено, ничего не меняется и balance/operationId равны null.
+     */
+    @Query(value = """
+            with posted as (
+                update deposit_contracts dc
+                set current_balance = dc.current_balance + :delta,
+                    version = dc.version + 1
+                from deposit_products dp
+                where dp.id = dc.product_id
+                  and dc.id = :contractId
+                  and dc.status = 'OPEN'
+                  and dc.current_balance + :delta >= 0
+                  and (:delta <= 0 or coalesce(dp.allow_replenishment, true))
+                  and (:delta >= 0 or coalesce(dp.allow_partial_withdrawal, true))
+                  and (not :enforceLimits
+                       or dp.max_amount is null
+                       or :delta <= 0
+                       or dc.current_balance + :delta <= dp.max_amount)
+                  and (not :enforceLimits
+                       or dp.min_amount is null
+                       or :delta >= 0
+                       or dc.current_balance + :delta >= dp.min_amount)
+                returning dc.id, dc.current_balance
+            ),
+            inserted as (
+                insert into deposit_operations (contract_id, amount, operation_datetime, operation_type, description,
+                                                balance_after)
+                select p.id, abs(:delta), :operationDateTime, :operationType, :description, p.current_balance
+                from posted p
+                returning id
+            )
+            select (select current_balance from posted) as balance,
+                   (select id from inserted) as operationId
+            """, nativeQuery = true)
+    PostingResult postBalanceChange(
+            Long contractId,
+            BigDecimal delta,
+            boolean enforceLimits,
+            String operationType,
+            String description,
+            LocalDateTime operationDateTime
+    );
+
+    /**
+     * Итог проводки одним оператором.
+     */
+    interface PostingResult {
+
+        BigDecimal getBalance();
+
+        Long getOperationId();
+
+        default boolean isPosted() {
+            return getOperationId() != null;
+        }
+    }
+
+    /**
+     * Итог начисления одним оператором.
+     */
+    interface SetBasedAccrualResult {
+
+        Long getProcessed();
+
+        Long getAccrued();
+    }
+
+    /**
+     * Диапазон id договоров [fromId; toId].
+     */
+    interface IdRange {
+
+        Long getFromId();
+
+        Long getToId();
+    }
+
     List<DepositContract> findByCustomerId(Long customerId);
 }
@@ -2,10 +2,20 @@ package org.santayn.bankdeposit.repository;
 
 import org.santayn.bankdeposit.models.DepositOperation;
 import org.santayn.bankdeposit.models.DepositOperationType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий операций по вкладам.
@@ -14,11 +24,353 @@ public interface DepositOperationRepository extends JpaRepository<DepositOperati
 
     List<DepositOperation> findByContractIdOrderByOperationDateTime(Long contractId);
 
-    List<DepositOperation> findByOperationDateTimeBetween(LocalDateTime from, LocalDateTime to);
+    /**
+     * Первая страница истории договора — самые новые операции.
+     */
+    @Query("""
+            select new org.santayn.bankdeposit.repository.OperationRow(
+                o.id,
+                o.operationDateTime,
+                o.type,
+                o.amount,
+                o.balanceAfter,
+                o.description,
+                c.id,
+                c.contractNumber,
+                cu.id,
+                cu.lastName,
+                cu.firstName,
+                cu.middleName
+            )
+            from DepositOperation o
+            join o.contract c
+            join c.customer cu
+            where c.id = :contractId
+            order by o.operationDateTime desc, o.id desc
+            """)
+    List<OperationRow> findLatestRowsByContractId(Long contractId, Limit limit);
 
-    List<DepositOperation> findByTypeAndOperationDateTimeBetween(
+    /**
+     * Следующая страница истории: операции строго раньше курсора
+     * (operationDateTime, id). Читается диапазоном по индексу
+     * (contract_id, operation_datetime, id) без OFFSET.
+     */
+    @Query("""
+            select new org.santayn.bankdeposit.repository.OperationRow(
+                o.id,
+                o.operationDateTime,
+                o.type,
+                o.amount,
+                o.balanceAfter,
+                o.description,
+                c.id,
+                c.contractNumber,
+                cu.id,
+                cu.lastName,
+                cu.firstName,
+                cu.middleName
+            )
+            from DepositOperation o
+            join o.contract c
+            join c.customer cu
+            where c.id = :contractId
+              and (o.operationDateTime < :cursorDateTime
+                   or (o.operationDateTime = :cursorDateTime and o.id < :cursorId))
+            order by o.operationDateTime desc, o.id desc
+            """)
+    List<OperationRow> findRowsByContractIdBefore(
+            Long contractId,
+            LocalDateTime cursorDateTime,
+            Long cursorId,
+            Limit limit
+    );
+
+    /**
+     * Вся история договора в хронологическом порядке потоком — для выгрузок.
+     * Строки читаются из курсора порциями; поток нужно закрыть
+     * и читать внутри транзакции.
+     */
+    @Query("""
+            select o
+            from DepositOperation o
+            where o.contract.id = :contractId
+            order by o.operationDateTime, o.id
+            """)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<DepositOperation> streamByContractId(Long contractId);
+
+    /**
+     * Операции за период [from; to] всех клиентов, в хронологическом порядке.
+     */
+    @Query("""
+            select new org.santayn.bankdeposit.repository.OperationRow(
+                o.id,
+                o.operationDateTime,
+                o.type,
+                o.amount,
+                o.balanceAfter,
+                o.description,
+                c.id,
+                c.contractNumber,
+                cu.id,
+                cu.lastName,
+                cu.firstName,
+                cu.middleName
+            )
+            from DepositOperation o
+            join o.contract c
+            join c.customer cu
+            where o.operationDateTime between :from and :to
+            order by o.operationDateTime, o.id
+            """)
+    List<OperationRow> findRowsByPeriod(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Операции указанного типа за период [from; to] всех клиентов.
+     */
+    @Query("""
+            select new org.santayn.bankdeposit.repository.OperationRow(
+                o.id,
+                o.operationDateTime,
+                o.type,
+                o.amount,
+                o.balanceAfter,
+                o.description,
+                c.id,
+                c.contractNumber,
+                cu.id,
+                cu.lastName,
+                cu.firstName,
+                cu.middleName
+            )
+            from DepositOperation o
+            join o.contract c
+            join c.customer cu
+            where o.type = :type
+              and o.operationDateTime between :from and :to
+            order by o.operationDateTime, o.id
+            """)
+    List<OperationRow> findRowsByTypeAndPeriod(
+            DepositOperationType type,
+            LocalDateTime from,
+            LocalDateTime to
+    );
+
+    /**
+     * Операции клиента за период [from; to].
+     * Фильтр по клиенту выполняется в БД: договоры клиента по индексу customer_id,
+     * их операции — по индексу (contract_id, operation_datetime, id).
+     */
+    @Query("""
+            select new org.santayn.bankdeposit.repository.OperationRow(
+                o.id,
+                o.operationDateTime,
+                o.type,
+                o.amount,
+                o.balanceAfter,
+                o.description,
+                c.id,
+                c.contractNumber,
+                cu.id,
+                cu.lastName,
+                cu.firstName,
+                cu.middleName
+            )
+            from DepositOperation o
+            join o.contract c
+            join c.customer cu
+            where cu.id = :customerId
+              and o.operationDateTime between :from and :to
+            order by o.operationDateTime, o.id
+            """)
+    List<OperationRow> findRowsByCustomerIdAndPeriod(
+            Long customerId,
+            LocalDateTime from,
+            LocalDateTime to
+    );
+
+    /**
+     * Операции клиента указанного типа за период [from; to].
+     */
+    @Query("""
+            select new org.santayn.bankdeposit.repository.OperationRow(
+                o.id,
+                o.operationDateTime,
+                o.type,
+                o.amount,
+                o.balanceAfter,
+                o.description,
+                c.id,
+                c.contractNumber,
+                cu.id,
+                cu.lastName,
+                cu.firstName,
+                cu.middleName
+            )
+            from DepositOperation o
+            join o.contract c
+            join c.customer cu
+            where cu.id = :customerId
+              and o.type = :type
+              and o.operationDateTime between :from and :to
+            order by o.operationDateTime, o.id
+            """)
+    List<OperationRow> findRowsByCustomerIdAndTypeAndPeriod(
+            Long customerId,
             DepositOperationType type,
             LocalDateTime from,
             LocalDateTime to
     );
+
+    /**
+     * Операции за период [from; to] потоком, в хронологическом порядке —
+     * для выгрузок; type == null — все типы, customerId == null — все клиенты.
+     * Память не растёт с числом строк; поток нужно закрыть и читать внутри транзакции.
+     */
+    @Query("""
+            select new org.santayn.bankdeposit.repository.OperationRow(
+                o.id,
+                o.operationDateTime,
+                o.type,
+                o.amount,
+                o.balanceAfter,
+                o.description,
+                c.id,
+                c.contractNumber,
+                cu.id,
+                cu.lastName,
+                cu.firstName,
+                cu.middleName
+            )
+            from DepositOperation o
+            join o.contract c
+            join c.customer cu
+            where o.operationDateTime between :from and :to
+              and (:type is null or o.type = :type)
+              and (:customerId is null or cu.id = :customerId)
+            order by o.operationDateTime, o.id
+            """)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<OperationRow> streamRows(
+            LocalDateTime from,
+            LocalDateTime to,
+            DepositOperationType type,
+            Long customerId
+    );
+
+    /**
+     * Какие из договоров уже получили автоначисление за дату
+     * (проба по уникальному индексу (contract_id, accrual_date) секции месяца).
+     */
+    default Set<Long> findContractIdsAccruedOn(LocalDate accrualDate, Collection<Long> contractIds) {
+        return findContractIdsAccruedOn(accrualDate, monthStart(accrualDate), monthStart(accrualDate).plusMonths(1),
+                contractIds);
+    }
+
+    default boolean existsByContractIdAndAccrualDate(Long contractId, LocalDate accrualDate) {
+        return existsAccrual(contractId, accrualDate, monthStart(accrualDate), monthStart(accrualDate).plusMonths(1));
+    }
+
+    /**
+     * Операция автоначисления датируется днём начисления, поэтому условие
+     * на месяц operationDateTime отсекает все секции, кроме одной.
+     */
+    @Query("""
+            select o.contract.id
+            from DepositOperation o
+            where o.accrualDate = :accrualDate
+              and o.operationDateTime >= :monthStart
+              and o.operationDateTime < :monthEnd
+              and o.contract.id in :contractIds
+            """)
+    Set<Long> findContractIdsAccruedOn(
+            LocalDate accrualDate,
+            LocalDateTime monthStart,
+            LocalDateTime monthEnd,
+            Collection<Long> contractIds
+    );
+
+    @Query("""
+            select count(o) > 0
+            from DepositOperation o
+            where o.contract.id = :contractId
+              and o.accrualDate = :accrualDate
+              and o.operationDateTime >= :monthStart
+              and o.operationDateTime < :monthEnd
+            """)
+    boolean existsAccrual(Long contractId, LocalDate accrualDate, LocalDateTime monthStart, LocalDateTime monthEnd);
+
+    private static LocalDateTime monthStart(LocalDate date) {
+        return date.withDayOfMonth(1).atStartOfDay();
+    }
+
+    /**
+     * Остаток после последней операции договора не позже момента
+     * (индекс (contract_id, operation_datetime, id) INCLUDE (balance_after)).
+     * Вызывается с Limit.of(1).
+     */
+    @Query("""
+            select o.balanceAfter
+            from DepositOperation o
+            where o.contract.id = :contractId
+              and o.operationDateTime <= :asOf
+            order by o.operationDateTime desc, o.id desc
+            """)
+    List<BigDecimal> findBalanceAfterAsOf(Long contractId, LocalDateTime asOf, Limit limit);
+
+    /**
+     * Создаёт недостающие помесячные секции deposit_operations на months месяцев
+     * начиная с месяца fromMonth. Возвращает число созданных секций.
+     */
+    @Query(value = "select ensure_deposit_operations_partitions(cast(:fromMonth as date), :months)",
+            nativeQuery = true)
+    int ensureMonthlyPartitions(LocalDate fromMonth, int months);
+
+    /**
+     * Обороты за дни [fromDate; toDate] из таблицы daily_turnover
+     * по продуктам и типам операций; customerId == null — по всем клиентам.
+     * Обороты архивных договоров сохраняются, клиент ищется и среди них.
+     */
+    @Query(value = """
+            select t.product_id as productId,
+                   t.operation_type as operationType,
+                   sum(t.total_amount) as totalAmount,
+                   sum(t.operation_count) as operationCount
+            from daily_turnover t
+            where t.turnover_date between :fromDate and :toDate
+              and (cast(:customerId as bigint) is null
+                   or t.contract_id in (select dc.id from deposit_contracts_all dc where dc.customer_id = :customerId))
+            group by t.product_id, t.operation_type
+            """, nativeQuery = true)
+    List<TurnoverRow> sumDailyTurnover(LocalDate fromDate, LocalDate toDate, Long customerId);
+
+    /**
+     * Те же обороты напрямую по операциям за [from; to) — для текущего дня.
+     */
+    @Query(value = """
+            select dc.product_id as productId,
+                   o.operation_type as operationType,
+                   sum(o.amount) as totalAmount,
+                   count(*) as operationCount
+            from deposit_operations o
+            join deposit_contracts dc on dc.id = o.contract_id
+            where o.operation_datetime >= :from
+              and o.operation_datetime < :to
+              and (cast(:customerId as bigint) is null or dc.customer_id = :customerId)
+            group by dc.product_id, o.operation_type
+            """, nativeQuery = true)
+    List<TurnoverRow> sumOperations(LocalDateTime from, LocalDateTime to, Long customerId);
+
+    interface TurnoverRow {
+        Long getProductId();
+
+        String getOperationType();
+
+        BigDecimal getTotalAmount();
+
+        Long getOperationCount();
+    }
 }
@@ -0,0 +1,39 @@
+package org.santayn.bankdeposit.repository;
+
+import org.santayn.bankdeposit.models.DepositOperationType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Операция для отчётов, выгрузок и таблиц UI: только выводимые поля.
+ * Заполняется конструктором в запросе — сущности и прокси не создаются.
+ *
+ * @param id                id операции
+ * @param operationDateTime дата и время операции
+ * @param type              тип операции
+ * @param amount            сумма
+ * @param balanceAfter      остаток после операции
+ * @param description       описание
+ * @param contractId        id договора
+ * @param contractNumber    № договора
+ * @param customerId        id клиента
+ * @param lastName          фамилия клиента
+ * @param firstName         имя клиента
+ * @param middleName        отчество клиента
+ */
+public record OperationRow(
+        Long id,
+        LocalDateTime operationDateTime,
+        DepositOperationType type,
+        BigDecimal amount,
+        BigDecimal balanceAfter,
+        String description,
+        Long contractId,
+        String contractNumber,
+        Long customerId,
+        String lastName,
+        String firstName,
+        String middleName
+) {
+}
@@ -0,0 +1,58 @@
+package org.santayn.bankdeposit.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Итог пакетного начисления процентов.
+ *
+ * @param accrualDate    дата, на которую выполнялось начисление
+ * @param processedCount сколько OPEN-договоров просмотрено
+ * @param accruedCount   по скольким договорам проценты начислены
+ * @param failedCount    по скольким договорам начисление завершилось ошибкой
+ * @param errors         описания ошибок по договорам
+ */
+public record AccrualRunReport(
+        LocalDate accrualDate,
+        int processedCount,
+        int accruedCount,
+        int failedCount,
+        List<String> errors
+) {
+
+    public AccrualRunReport {
+        errors = List.copyOf(errors);
+    }
+
+    public static AccrualRunReport empty(LocalDate accrualDate) {
+        return new AccrualRunReport(accrualDate, 0, 0, 0, List.of());
+    }
+
+    /**
+     * Объединяет результаты двух частей одного прогона.
+     */
+    public AccrualRunReport merge(AccrualRunReport other) {
+        List<String> mergedErrors = new ArrayList<>(errors);
+        mergedErrors.addAll(other.errors());
+        return new AccrualRunReport(
+                accrualDate,
+                processedCount + other.processedCount(),
+                accruedCount + other.accruedCount(),
+                failedCount + other.failedCount(),
+                mergedErrors
+        );
+    }
+
+    /**
+     * Договоры, просмотренные без начисления: уже начислено на дату,
+     * нулевой баланс или ставка, период ещё не наступил.
+     */
+    public int skippedCount() {
+        return processedCount - accruedCount - failedCount;
+    }
+
+    public boolean hasErrors() {
+        return !errors.isEmpty();
+    }
+}
@@ -0,0 +1,88 @@
+package org.santayn.bankdeposit.service;
+
+import lombok.RequiredArgsConstructor;
+import org.santayn.bankdeposit.models.AccrualRun;
+import org.santayn.bankdeposit.models.AccrualRunStatus;
+import org.santayn.bankdeposit.models.AccrualStrategy;
+import org.santayn.bankdeposit.repository.AccrualRunRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Ведение журнала прогонов начисления процентов (таблица accrual_runs).
+ *
+ * Записи пишутся в собственных транзакциях, чтобы журнал сохранялся
+ * и при откате самого прогона.
+ */
+@Service
+@RequiredArgsConstructor
+public class AccrualRunService {
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final AccrualRunRepository accrualRunRepository;
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public AccrualRun start(LocalDate accrualDate, AccrualStrategy strategy) {
+        AccrualRun run = AccrualRun.builder()
+                .accrualDate(accrualDate)
+                .strategy(strategy)
+                .status(AccrualRunStatus.RUNNING)
+                .startedAt(LocalDateTime.now())
+                .build();
+        return accrualRunRepository.save(run);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public AccrualRun finish(Long runId, AccrualRunReport report) {
+        AccrualRun run = getRun(runId);
+        run.setStatus(AccrualRunStatus.COMPLETED);
+        run.setContractsProcessed(report.processedCount());
+        run.setContractsAccrued(report.accruedCount());
+        run.setContractsSkipped(report.skippedCount());
+        run.setContractsFailed(report.failedCount());
+        if (report.hasErrors()) {
+            run.setErrorMessage(truncate(String.join("; ", report.errors())));
+        }
+        stamp(run);
+        return accrualRunRepository.save(run);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public AccrualRun fail(Long runId, Exception error) {
+        AccrualRun run = getRun(runId);
+        run.setStatus(AccrualRunStatus.FAILED);
+        run.setErrorMessage(truncate(error.getMessage()));
+        stamp(run);
+        return accrualRunRepository.save(run);
+    }
+
+    @Transactional(readOnly = true)
+    public List<AccrualRun> getRunsByDate(LocalDate accrualDate) {
+        return accrualRunRepository.findByAccrualDateOrderByStartedAtDesc(accrualDate);
+    }
+
+    private AccrualRun getRun(Long runId) {
+        return accrualRunRepository.findById(runId)
+                .orElseThrow(() -> new EntityNotFoundException("Прогон начисления с id=" + runId + " не найден"));
+    }
+
+    private void stamp(AccrualRun run) {
+        LocalDateTime now = LocalDateTime.now();
+        run.setFinishedAt(now);
+        run.setDurationMs(Duration.between(run.getStartedAt(), now).toMillis());
+    }
+
+    private String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
@@ -0,0 +1,15 @@
+package org.santayn.bankdeposit.service;
+
+/**
+ * Итог переноса закрытых договоров в архив.
+ *
+ * @param contracts  сколько договоров перенесено
+ * @param operations сколько их операций перенесено
+ * @param batches    число порций (транзакций)
+ */
+public record ArchiveRunResult(
+        long contracts,
+        long operations,
+        int batches
+) {
+}
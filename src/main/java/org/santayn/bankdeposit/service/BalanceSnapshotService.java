@@ -0,0 +1,150 @@
+package org.santayn.bankdeposit.service;
+
+import lombok.RequiredArgsConstructor;
+import org.santayn.bankdeposit.repository.BalanceSnapshotRepository;
+import org.santayn.bankdeposit.repository.DepositContractRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Остатки «на дату» по снимкам.
+ *
+ * Снимок — остаток договора на конец дня, одна строка на договор и дату.
+ * Снимки пишутся ежедневно или на конец месяца (takeSnapshot / takeMonthlySnapshot);
+ * остаток на произвольную дату = ближайший снимок не позже неё + операции после снимка,
+ * то есть читается не вся история, а только хвост за период между снимками.
+ *
+ * Снимать можно только завершившийся день: операции текущего дня ещё идут.
+ * Операции, датированные уже снятым днём (начисление за вчера после снимка,
+ * повторное или догоняющее начисление), пересчитывают снимки этого и следующих
+ * дней триггером deposit_operations (V11) в той же транзакции.
+ *
+ * Регулярные снимки делает BalanceSnapshotInitializer (при запуске и по расписанию),
+ * досоздавая пропущенные даты через getMissingSnapshotDates.
+ */
+@Service
+@RequiredArgsConstructor
+public class BalanceSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceSnapshotService.class);
+
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final DepositContractRepository depositContractRepository;
+    private final ContractArchiveService contractArchiveService;
+
+    /**
+     * Снимает остатки всех действующих договоров на конец дня.
+     *
+     * @return число записанных снимков
+     */
+    @Transactional
+    public int takeSnapshot(LocalDate snapshotDate) {
+        if (snapshotDate == null) {
+            throw new InvalidOperationException("Не указана дата снимка остатков");
+        }
+        if (!snapshotDate.isBefore(LocalDate.now())) {
+            throw new InvalidOperationException("Снимок остатков возможен только за завершившийся день");
+        }
+
+        int written = balanceSnapshotRepository.upsertSnapshots(snapshotDate);
+        logger.info("Снимок остатков на {}: {} договоров", snapshotDate, written);
+        return written;
+    }
+
+    /**
+     * Снимок на последний день месяца.
+     */
+    @Transactional
+    public int takeMonthlySnapshot(YearMonth month) {
+        if (month == null) {
+            throw new InvalidOperationException("Не указан месяц снимка остатков");
+        }
+        return takeSnapshot(month.atEndOfMonth());
+    }
+
+    /**
+     * Даты снимков, которых не хватает к сегодняшнему дню: каждый завершившийся
+     * день (или, при monthly, конец каждого завершившегося месяца) после
+     * последнего снимка. Если снимков ещё нет — только последняя такая дата:
+     * история до неё пересчитывается один раз, дальше снимки идут от неё.
+     */
+    @Transactional(readOnly = true)
+    public List<LocalDate> getMissingSnapshotDates(LocalDate today, boolean monthly) {
+        if (today == null) {
+            throw new InvalidOperationException("Не указана текущая дата");
+        }
+
+        LocalDate target = monthly ? lastMonthEndNotAfter(today.minusDays(1)) : today.minusDays(1);
+        LocalDate latest = balanceSnapshotRepository.findLatestSnapshotDate();
+        if (latest == null) {
+            return List.of(target);
+        }
+
+        List<LocalDate> dates = new ArrayList<>();
+        for (LocalDate date = nextSnapshotDate(latest, monthly); !date.isAfter(target);
+             date = nextSnapshotDate(date, monthly)) {
+            dates.add(date);
+        }
+        return dates;
+    }
+
+    /**
+     * Остаток договора на конец дня asOf.
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getBalanceAsOf(Long contractId, LocalDate asOf) {
+        if (contractId == null) {
+            throw new InvalidOperationException("Не указан идентификатор договора");
+        }
+        if (asOf == null) {
+            throw new InvalidOperationException("Не указана дата остатка");
+        }
+        if (!depositContractRepository.existsById(contractId) && !contractArchiveService.isArchived(contractId)) {
+            throw new EntityNotFoundException("Договор с id=" + contractId + " не найден");
+        }
+
+        return normalizeMoney(balanceSnapshotRepository.findBalanceAsOf(contractId, asOf));
+    }
+
+    /**
+     * Остаток портфеля на конец дня asOf.
+     */
+    @Transactional(readOnly = true)
+    public PortfolioBalance getPortfolioAsOf(LocalDate asOf) {
+        if (asOf == null) {
+            throw new InvalidOperationException("Не указана дата остатка");
+        }
+
+        BalanceSnapshotRepository.PortfolioTotals totals = balanceSnapshotRepository.findPortfolioAsOf(asOf);
+        return new PortfolioBalance(asOf, totals.getContractCount(), normalizeMoney(totals.getTotalBalance()));
+    }
+
+    private static LocalDate nextSnapshotDate(LocalDate after, boolean monthly) {
+        if (!monthly) {
+            return after.plusDays(1);
+        }
+        LocalDate monthEnd = YearMonth.from(after).atEndOfMonth();
+        return after.isBefore(monthEnd) ? monthEnd : YearMonth.from(after).plusMonths(1).atEndOfMonth();
+    }
+
+    private static LocalDate lastMonthEndNotAfter(LocalDate date) {
+        YearMonth month = YearMonth.from(date);
+        return date.equals(month.atEndOfMonth()) ? date : month.minusMonths(1).atEndOfMonth();
+    }
+
+    private BigDecimal normalizeMoney(BigDecimal value) {
+        if (value == null) {
+            return BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
+        }
+        return value.setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,58 @@
+package org.santayn.bankdeposit.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Параметры параллельной пакетной обработки (начисление, прогноз).
+ *
+ * Каждый рабочий поток держит своё соединение, поэтому число потоков
+ * ограничено размером пула Hikari за вычетом соединений,
+ * оставляемых интерактивным пользователям.
+ */
+@Component
+@RequiredArgsConstructor
+public class BatchParallelism {
+
+    private final DataSource dataSource;
+
+    /**
+     * Желаемое число рабочих потоков.
+     */
+    @Value("${bankdeposit.accrual.parallelism:4}")
+    private int parallelism;
+
+    /**
+     * Сколько соединений пула всегда оставляем интерактивным пользователям.
+     */
+    @Value("${bankdeposit.accrual.reserved-connections:2}")
+    private int reservedConnections;
+
+    public int workerCount() {
+        int requested = Math.max(1, parallelism);
+
+        if (dataSource instanceof HikariDataSource hikari) {
+            int available = hikari.getMaximumPoolSize() - reservedConnections;
+            return Math.max(1, Math.min(requested, available));
+        }
+
+        return requested;
+    }
+
+    /**
+     * Ограниченный пул потоков на один прогон; закрывается вызывающим кодом.
+     */
+    public ExecutorService newExecutor(String threadNamePrefix, int tasks) {
+        return Executors.newFixedThreadPool(
+                Math.max(1, Math.min(workerCount(), tasks)),
+                new CustomizableThreadFactory(threadNamePrefix)
+        );
+    }
+}
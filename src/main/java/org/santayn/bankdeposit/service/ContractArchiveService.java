@@ -0,0 +1,177 @@
+package org.santayn.bankdeposit.service;
+
+import lombok.RequiredArgsConstructor;
+import org.santayn.bankdeposit.models.DepositOperationType;
+import org.santayn.bankdeposit.repository.ArchivedDepositContractRepository;
+import org.santayn.bankdeposit.repository.ArchivedDepositOperationRepository;
+import org.santayn.bankdeposit.repository.ContractRow;
+import org.santayn.bankdeposit.repository.OperationRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Архив закрытых договоров.
+ *
+ * Договоры, закрытые раньше чем closedMonths месяцев назад, вместе с операциями
+ * переносятся из deposit_contracts / deposit_operations в архивные таблицы
+ * порциями по batchSize, каждая порция — отдельная транзакция. Обороты
+ * daily_turnover и снимки остатков при переносе не меняются.
+ *
+ * Отчёты читают архив, только если период отчёта его затрагивает:
+ * начинается не позже самой поздней архивной операции.
+ * Архивные строки отдаются теми же записями ContractRow / OperationRow,
+ * что и рабочие.
+ */
+@Service
+@RequiredArgsConstructor
+public class ContractArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContractArchiveService.class);
+
+    private final ArchivedDepositContractRepository archivedDepositContractRepository;
+    private final ArchivedDepositOperationRepository archivedDepositOperationRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Сколько месяцев закрытый договор остаётся в рабочих таблицах.
+     */
+    @Value("${bankdeposit.archive.closed-months:36}")
+    private int closedMonths;
+
+    /**
+     * Договоров в одной порции (транзакции) переноса.
+     */
+    @Value("${bankdeposit.archive.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Переносит в архив договоры, закрытые раньше чем closedMonths месяцев до today.
+     */
+    public ArchiveRunResult archiveClosedContracts(LocalDate today) {
+        if (today == null) {
+            throw new InvalidOperationException("Не указана дата архивации");
+        }
+        return archiveClosedBefore(today.minusMonths(Math.max(0, closedMonths)));
+    }
+
+    /**
+     * Переносит в архив договоры, закрытые раньше closedBefore, порциями до исчерпания.
+     */
+    public ArchiveRunResult archiveClosedBefore(LocalDate closedBefore) {
+        if (closedBefore == null) {
+            throw new InvalidOperationException("Не указана граница архивации");
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int limit = Math.max(1, batchSize);
+        long contracts = 0;
+        long operations = 0;
+        int batches = 0;
+
+        while (true) {
+            ArchivedDepositContractRepository.ArchiveBatchResult batch = tx.execute(status -> {
+                archivedDepositContractRepository.enterArchivingMode();
+                return archivedDepositContractRepository.archiveClosedBatch(closedBefore, limit, LocalDateTime.now());
+            });
+
+            if (batch == null || batch.getContracts() == 0) {
+                break;
+            }
+
+            batches++;
+            contracts += batch.getContracts();
+            operations += batch.getOperations();
+
+            if (batch.getContracts() < limit) {
+                break;
+            }
+        }
+
+        if (contracts > 0) {
+            logger.info("В архив перенесено договоров: {}, операций: {} (закрыты до {})",
+                    contracts, operations, closedBefore);
+        }
+        return new ArchiveRunResult(contracts, operations, batches);
+    }
+
+    /**
+     * Затрагивает ли период, начинающийся с from, архивные операции.
+     */
+    @Transactional(readOnly = true)
+    public boolean coversPeriod(LocalDateTime from) {
+        LocalDateTime latest = archivedDepositOperationRepository.findLatestOperationDateTime();
+        return latest != null && (from == null || !from.isAfter(latest));
+    }
+
+    /**
+     * Архивные операции за период [from; to]; type == null — все типы,
+     * customerId == null — все клиенты.
+     */
+    @Transactional(readOnly = true)
+    public List<OperationRow> getOperations(
+            LocalDateTime from,
+            LocalDateTime to,
+            DepositOperationType type,
+            Long customerId
+    ) {
+        if (!coversPeriod(from)) {
+            return List.of();
+        }
+        return archivedDepositOperationRepository.findRows(from, to, type, customerId);
+    }
+
+    /**
+     * Архивные операции за период потоком; пустой поток, если период
+     * архив не затрагивает. Поток нужно закрыть и читать внутри транзакции.
+     */
+    @Transactional(readOnly = true)
+    public Stream<OperationRow> streamOperations(
+            LocalDateTime from,
+            LocalDateTime to,
+            DepositOperationType type,
+            Long customerId
+    ) {
+        if (!coversPeriod(from)) {
+            return Stream.empty();
+        }
+        return archivedDepositOperationRepository.streamRows(from, to, type, customerId);
+    }
+
+    /**
+     * Остаток архивного договора на момент asOf — balanceAfter последней
+     * операции не позже asOf; null, если операций к этому моменту не было.
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getBalanceAfterAsOf(Long contractId, LocalDateTime asOf) {
+        List<BigDecimal> balances = archivedDepositOperationRepository.findBalanceAfterAsOf(contractId, asOf, Limit.of(1));
+        return balances.isEmpty() ? null : balances.get(0);
+    }
+
+    /**
+     * Архивные договоры клиента.
+     */
+    @Transactional(readOnly = true)
+    public List<ContractRow> getContractsByCustomer(Long customerId) {
+        if (customerId == null) {
+            throw new InvalidOperationException("Не указан клиент");
+        }
+        return archivedDepositContractRepository.findRowsByCustomerId(customerId);
+    }
+
+    @Transactional(readOnly = true)
+    public boolean isArchived(Long contractId) {
+        return contractId != null && archivedDepositContractRepository.existsById(contractId);
+    }
+}
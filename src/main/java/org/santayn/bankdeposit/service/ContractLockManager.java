@@ -0,0 +1,176 @@
+package org.santayn.bankdeposit.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Полосатая (striped) блокировка проводок по договору внутри JVM.
+ *
+ * Фиксированный массив ReentrantLock; договор попадает в полосу по хэшу id,
+ * поэтому на договор ничего не создаётся. Проводки по одному договору
+ * из разных сеансов UI и пакетных потоков выстраиваются в очередь в памяти,
+ * а не на блокировках строк и конфликтах версий в БД; разные договоры
+ * (почти всегда — разные полосы) идут параллельно.
+ *
+ * Блокировка берётся снаружи транзакции и держится до её фиксации.
+ * Повторный захват тем же потоком допустим (ReentrantLock).
+ * Несколько договоров сразу (withLocks) блокируются по возрастанию номера
+ * полосы, поэтому встречных ожиданий между такими захватами не бывает.
+ *
+ * По каждой полосе считаются захваты, захваты с ожиданием и суммарное
+ * время ожидания.
+ */
+@Component
+public class ContractLockManager {
+
+    /**
+     * Число полос; округляется вверх до степени двойки.
+     */
+    @Value("${bankdeposit.posting.lock-stripes:64}")
+    private int stripes;
+
+    private ReentrantLock[] locks;
+    private int mask;
+
+    private AtomicLongArray acquisitions;
+    private AtomicLongArray contended;
+    private AtomicLongArray waitNanos;
+
+    @PostConstruct
+    void init() {
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+
+        acquisitions = new AtomicLongArray(size);
+        contended = new AtomicLongArray(size);
+        waitNanos = new AtomicLongArray(size);
+    }
+
+    public <T> T withLock(Long contractId, Supplier<T> action) {
+        if (contractId == null) {
+            return action.get();
+        }
+
+        int stripe = stripeOf(contractId);
+        ReentrantLock lock = locks[stripe];
+
+        acquire(lock, stripe);
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void runWithLock(Long contractId, Runnable action) {
+        withLock(contractId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Выполняет действие под блокировками всех указанных договоров.
+     */
+    public <T> T withLocks(Collection<Long> contractIds, Supplier<T> action) {
+        TreeSet<Integer> used = new TreeSet<>();
+        for (Long contractId : contractIds) {
+            if (contractId != null) {
+                used.add(stripeOf(contractId));
+            }
+        }
+
+        List<ReentrantLock> held = new ArrayList<>(used.size());
+        try {
+            for (int stripe : used) {
+                ReentrantLock lock = locks[stripe];
+                acquire(lock, stripe);
+                held.add(lock);
+            }
+            return action.get();
+        } finally {
+            for (int i = held.size() - 1; i >= 0; i--) {
+                held.get(i).unlock();
+            }
+        }
+    }
+
+    public void runWithLocks(Collection<Long> contractIds, Runnable action) {
+        withLocks(contractIds, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public int getStripeCount() {
+        return locks.length;
+    }
+
+    public long getTotalWaitNanos() {
+        long total = 0;
+        for (int i = 0; i < waitNanos.length(); i++) {
+            total += waitNanos.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Статистика по полосам, отсортированная по убыванию времени ожидания.
+     */
+    public List<StripeStats> getStripeStats() {
+        List<StripeStats> result = new ArrayList<>(locks.length);
+        for (int i = 0; i < locks.length; i++) {
+            result.add(new StripeStats(i, acquisitions.get(i), contended.get(i), waitNanos.get(i)));
+        }
+        result.sort((a, b) -> Long.compare(b.waitNanos(), a.waitNanos()));
+        return result;
+    }
+
+    int stripeOf(long contractId) {
+        // Перемешивание битов: соседние id попадают в разные полосы
+        long h = contractId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void acquire(ReentrantLock lock, int stripe) {
+        acquisitions.incrementAndGet(stripe);
+
+        if (lock.tryLock()) {
+            return;
+        }
+
+        contended.incrementAndGet(stripe);
+        long started = System.nanoTime();
+        try {
+            lock.lockInterruptibly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvalidOperationException("Ожидание блокировки договора прервано");
+        } finally {
+            waitNanos.addAndGet(stripe, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Счётчики одной полосы.
+     */
+    public record StripeStats(int stripe, long acquisitions, long contended, long waitNanos) {
+    }
+}
@@ -0,0 +1,27 @@
+package org.santayn.bankdeposit.service;
+
+/**
+ * Соглашение о числе дней в году при расчёте процентов.
+ */
+public enum DayCountConvention {
+
+    /**
+     * Фактическое число дней / 365 (используется в начислении по умолчанию).
+     */
+    ACT_365_FIXED(365),
+
+    /**
+     * Фактическое число дней / 360.
+     */
+    ACT_360(360);
+
+    private final int daysInYear;
+
+    DayCountConvention(int daysInYear) {
+        this.daysInYear = daysInYear;
+    }
+
+    public int getDaysInYear() {
+        return daysInYear;
+    }
+}
@@ -21,6 +21,10 @@ import java.util.UUID;
 
 /**
  * Сервис управления договорами вкладов.
+ *
+ * Проводки по существующему договору выполняются под блокировкой полосы
+ * договора (ContractLockManager) и через PostingRetry: при конфликте версии
+ * договора проводка повторяется в новой транзакции.
  */
 @Service
 @RequiredArgsConstructor
@@ -30,6 +34,8 @@ public class DepositContractService {
     private final DepositProductRepository depositProductRepository;
     private final CustomerRepository customerRepository;
     private final DepositOperationService depositOperationService;
+    private final PostingRetry postingRetry;
+    private final ContractLockManager contractLocks;
 
     // -------------------- ЧТЕНИЕ ДЛЯ UI --------------------
 
@@ -101,6 +107,7 @@ public class DepositContractService {
         contract.setProduct(product);
 
         contract.setOpenDate(openDate != null ? openDate : LocalDate.now());
+        contract.setAccruedThroughDate(contract.getOpenDate());
         contract.setStatus(DepositContractStatus.OPEN);
 
         BigDecimal normalizedInitial = normalizeMoney(initialAmount);
@@ -130,111 +137,146 @@ public class DepositContractService {
 
     /**
      * Пополнение вклада.
+     *
+     * Баланс меняется одним условным оператором вместе с записью операции;
+     * договор читается только для ответа UI (или для объяснения отказа).
      */
-    @Transactional
-    public DepositContract deposit(
+    public DepositContract deposit(Long contractId, BigDecimal amount, String description) {
+        return contractLocks.withLock(contractId, () -> postingRetry.execute(
+                "Пополнение вклада",
+                contractId,
+                () -> postDeposit(contractId, amount, description)
+        ));
+    }
+
+    private DepositContract postDeposit(
             Long contractId,
             BigDecimal amount,
             String description
     ) {
-        DepositContract contract = getContractById(contractId);
-        ensureOpen(contract);
-
-        DepositProduct product = contract.getProduct();
-        if (product != null && Boolean.FALSE.equals(product.getAllowReplenishment())) {
-            throw new InvalidOperationException("Данный продукт не допускает пополнение");
+        if (contractId == null) {
+            throw new InvalidOperationException("Не указан идентификатор договора");
         }
-
         if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new InvalidOperationException("Сумма пополнения должна быть больше нуля");
         }
 
         BigDecimal normalizedAmount = normalizeMoney(amount);
-        BigDecimal newBalance = normalizeMoney(contract.getCurrentBalance()).add(normalizedAmount);
 
-        if (product != null && product.getMaxAmount() != null) {
-            if (newBalance.compareTo(product.getMaxAmount()) > 0) {
-                throw new InvalidOperationException("Превышен максимальный лимит суммы по продукту");
-            }
-        }
-
-        contract.setCurrentBalance(newBalance);
-
-        DepositContract saved = depositContractRepository.save(contract);
-
-        depositOperationService.createOperation(
-                saved,
+        boolean posted = depositOperationService.postBalanceChange(
+                contractId,
                 DepositOperationType.DEPOSIT,
                 normalizedAmount,
                 description != null && !description.isBlank() ? description.trim() : "Пополнение вклада",
-                LocalDateTime.now()
+                true
         );
 
-        initializeContractForUi(saved);
-        return saved;
+        DepositContract contract = getContractWithRelations(contractId);
+
+        if (!posted) {
+            ensureOpen(contract);
+
+            DepositProduct product = contract.getProduct();
+            if (product != null && Boolean.FALSE.equals(product.getAllowReplenishment())) {
+                throw new InvalidOperationException("Данный продукт не допускает пополнение");
+            }
+
+            BigDecimal newBalance = normalizeMoney(contract.getCurrentBalance()).add(normalizedAmount);
+            if (product != null && product.getMaxAmount() != null
+                    && newBalance.compareTo(product.getMaxAmount()) > 0) {
+                throw new InvalidOperationException("Превышен максимальный лимит суммы по продукту");
+            }
+
+            throw concurrentChange();
+        }
+
+        return contract;
     }
 
     /**
      * Снятие средств.
+     *
+     * Баланс меняется одним условным оператором вместе с записью операции;
+     * договор читается только для ответа UI (или для объяснения отказа).
      */
-    @Transactional
-    public DepositContract withdraw(
+    public DepositContract withdraw(Long contractId, BigDecimal amount, String description) {
+        return contractLocks.withLock(contractId, () -> postingRetry.execute(
+                "Снятие средств",
+                contractId,
+                () -> postWithdrawal(contractId, amount, description)
+        ));
+    }
+
+    private DepositContract postWithdrawal(
             Long contractId,
             BigDecimal amount,
             String description
     ) {
-        DepositContract contract = getContractById(contractId);
-        ensureOpen(contract);
-
-        DepositProduct product = contract.getProduct();
-        if (product != null && Boolean.FALSE.equals(product.getAllowPartialWithdrawal())) {
-            throw new InvalidOperationException("Данный продукт не допускает частичное снятие");
+        if (contractId == null) {
+            throw new InvalidOperationException("Не указан идентификатор договора");
         }
-
         if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new InvalidOperationException("Сумма снятия должна быть больше нуля");
         }
 
-        BigDecimal current = normalizeMoney(contract.getCurrentBalance());
         BigDecimal normalizedAmount = normalizeMoney(amount);
 
-        if (current.compareTo(normalizedAmount) < 0) {
-            throw new InvalidOperationException("Недостаточно средств для снятия");
-        }
+        boolean posted = depositOperationService.postBalanceChange(
+                contractId,
+                DepositOperationType.WITHDRAWAL,
+                normalizedAmount,
+                description != null && !description.isBlank() ? description.trim() : "Снятие средств",
+                true
+        );
 
-        BigDecimal newBalance = current.subtract(normalizedAmount);
+        DepositContract contract = getContractWithRelations(contractId);
 
-        if (product != null && product.getMinAmount() != null) {
-            if (newBalance.compareTo(product.getMinAmount()) < 0) {
-                throw new InvalidOperationException("После снятия остаток будет меньше минимальной суммы по продукту");
+        if (!posted) {
+            ensureOpen(contract);
+
+            DepositProduct product = contract.getProduct();
+            if (product != null && Boolean.FALSE.equals(product.getAllowPartialWithdrawal())) {
+                throw new InvalidOperationException("Данный продукт не допускает частичное снятие");
             }
-        }
 
-        contract.setCurrentBalance(newBalance);
+            BigDecimal current = normalizeMoney(contract.getCurrentBalance());
+            if (current.compareTo(normalizedAmount) < 0) {
+                throw new InvalidOperationException("Недостаточно средств для снятия");
+            }
 
-        DepositContract saved = depositContractRepository.save(contract);
+            BigDecimal newBalance = current.subtract(normalizedAmount);
+            if (product != null && product.getMinAmount() != null
+                    && newBalance.compareTo(product.getMinAmount()) < 0) {
+                throw new InvalidOperationException("После снятия остаток будет меньше минимальной суммы по продукту");
+            }
 
-        depositOperationService.createOperation(
-                saved,
-                DepositOperationType.WITHDRAWAL,
-                normalizedAmount,
-                description != null && !description.isBlank() ? description.trim() : "Снятие средств",
-                LocalDateTime.now()
-        );
+            throw concurrentChange();
+        }
 
-        initializeContractForUi(saved);
-        return saved;
+        return contract;
     }
 
     /**
      * Ручное начисление процентов (если пользователь вводит сумму).
      */
-    @Transactional
     public DepositContract accrueInterestManual(
             Long contractId,
             BigDecimal amount,
             String description,
             LocalDateTime dateTime
+    ) {
+        return contractLocks.withLock(contractId, () -> postingRetry.execute(
+                "Начисление процентов",
+                contractId,
+                () -> postManualInterest(contractId, amount, description, dateTime)
+        ));
+    }
+
+    private DepositContract postManualInterest(
+            Long contractId,
+            BigDecimal amount,
+            String description,
+            LocalDateTime dateTime
     ) {
         DepositContract contract = getContractById(contractId);
         ensureOpen(contract);
@@ -263,8 +305,15 @@ public class DepositContractService {
     /**
      * Закрытие вклада.
      */
-    @Transactional
     public DepositContract closeContract(Long contractId, LocalDate closeDate) {
+        return contractLocks.withLock(contractId, () -> postingRetry.execute(
+                "Закрытие вклада",
+                contractId,
+                () -> postClosing(contractId, closeDate)
+        ));
+    }
+
+    private DepositContract postClosing(Long contractId, LocalDate closeDate) {
         DepositContract contract = getContractById(contractId);
         ensureOpen(contract);
 
@@ -305,6 +354,18 @@ public class DepositContractService {
         }
     }
 
+    /**
+     * Договор вместе с клиентом и продуктом одним запросом.
+     */
+    private DepositContract getContractWithRelations(Long id) {
+        return depositContractRepository.findByIdWithCustomerAndProduct(id)
+                .orElseThrow(() -> new EntityNotFoundException("Договор с id=" + id + " не найден"));
+    }
+
+    private InvalidOperationException concurrentChange() {
+        return new InvalidOperationException("Состояние договора изменилось, повторите операцию");
+    }
+
     private void validateAmountAgainstProduct(BigDecimal amount, DepositProduct product) {
         BigDecimal normalized = normalizeMoney(amount);
 
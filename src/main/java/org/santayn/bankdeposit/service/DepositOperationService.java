@@ -9,13 +9,18 @@ import org.santayn.bankdeposit.models.DepositOperationType;
 import org.santayn.bankdeposit.models.DepositProduct;
 import org.santayn.bankdeposit.repository.DepositContractRepository;
 import org.santayn.bankdeposit.repository.DepositOperationRepository;
+import org.santayn.bankdeposit.repository.OperationRow;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Сервис операций по вкладам.
@@ -23,9 +28,12 @@ import java.util.List;
  * Отвечает за:
  * - сохранение операций
  * - выдачу списка операций по договору
- * - пополнение
- * - снятие
+ * - пополнение и снятие (одним условным оператором БД)
  * - начисление процентов
+ * - отметку последнего начисления процентов по договору
+ *
+ * Проводки по id договора выполняются под блокировкой полосы договора
+ * (ContractLockManager) и через PostingRetry (повтор при конфликте версии).
  */
 @Service
 @RequiredArgsConstructor
@@ -33,6 +41,9 @@ public class DepositOperationService {
 
     private final DepositOperationRepository depositOperationRepository;
     private final DepositContractRepository depositContractRepository;
+    private final PostingRetry postingRetry;
+    private final ContractLockManager contractLocks;
+    private final ContractArchiveService contractArchiveService;
 
     @Transactional(readOnly = true)
     public List<DepositOperation> getOperationsByContract(Long contractId) {
@@ -47,119 +58,241 @@ public class DepositOperationService {
         return ops;
     }
 
-    @Transactional
-    public DepositOperation createOperation(
-            DepositContract contract,
-            DepositOperationType type,
-            BigDecimal amount,
-            String description,
-            LocalDateTime dateTime
-    ) {
-        if (contract == null) {
-            throw new InvalidOperationException("Не указан договор для операции");
+    /**
+     * Страница истории операций договора, от новых к старым.
+     * Страницы выбираются по курсору (operationDateTime, id), а не по OFFSET,
+     * поэтому стоимость страницы не зависит от её номера.
+     * Строки страницы — записи OperationRow, а не сущности.
+     *
+     * @param after    курсор из предыдущей страницы; null — первая страница
+     * @param pageSize число операций на странице
+     */
+    @Transactional(readOnly = true)
+    public OperationPage getOperationPage(Long contractId, OperationCursor after, int pageSize) {
+        requireContractId(contractId, "История операций");
+        if (pageSize <= 0) {
+            throw new InvalidOperationException("Размер страницы должен быть больше нуля");
         }
-        if (type == null) {
-            throw new InvalidOperationException("Не указан тип операции");
+        if (after != null && (after.operationDateTime() == null || after.id() == null)) {
+            throw new InvalidOperationException("Некорректный курсор страницы операций");
         }
-        if (amount == null) {
-            throw new InvalidOperationException("Не указана сумма операции");
+
+        // Лишняя строка показывает, есть ли следующая страница
+        Limit limit = Limit.of(pageSize + 1);
+        List<OperationRow> ops = after == null
+                ? depositOperationRepository.findLatestRowsByContractId(contractId, limit)
+                : depositOperationRepository.findRowsByContractIdBefore(
+                        contractId,
+                        after.operationDateTime(),
+                        after.id(),
+                        limit
+                );
+
+        boolean hasMore = ops.size() > pageSize;
+        if (hasMore) {
+            ops = ops.subList(0, pageSize);
         }
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new InvalidOperationException("Сумма операции должна быть больше нуля");
+
+        return new OperationPage(ops, hasMore ? OperationCursor.of(ops.get(ops.size() - 1)) : null);
+    }
+
+    /**
+     * Обходит всю историю договора в хронологическом порядке, не собирая её в список.
+     * Для выгрузок: строки читаются из курсора БД порциями.
+     */
+    @Transactional(readOnly = true)
+    public void forEachOperation(Long contractId, Consumer<DepositOperation> action) {
+        requireContractId(contractId, "Выгрузка операций");
+
+        try (Stream<DepositOperation> ops = depositOperationRepository.streamByContractId(contractId)) {
+            ops.forEach(action);
         }
+    }
 
-        BigDecimal normalizedAmount = normalizeMoney(amount);
+    /**
+     * Остаток по договору на момент asOf — balanceAfter последней
+     * операции не позже asOf (одно чтение по индексу).
+     * Операции архивного договора читаются из архива.
+     * Если операций к этому моменту не было, остаток нулевой.
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getBalanceAsOf(Long contractId, LocalDateTime asOf) {
+        requireContractId(contractId, "Остаток на дату");
+        if (asOf == null) {
+            throw new InvalidOperationException("Не указан момент, на который нужен остаток");
+        }
 
-        DepositOperation op = new DepositOperation();
-        op.setContract(contract);
-        op.setType(type);
-        op.setAmount(normalizedAmount);
-        op.setDescription(description != null ? description.trim() : null);
-        op.setOperationDateTime(dateTime != null ? dateTime : LocalDateTime.now());
+        List<BigDecimal> balances = depositOperationRepository.findBalanceAfterAsOf(contractId, asOf, Limit.of(1));
+        BigDecimal balance = balances.isEmpty() ? null : balances.get(0);
 
-        DepositOperation saved = depositOperationRepository.save(op);
+        // Архивный договор переносится вместе со всеми операциями
+        if (balances.isEmpty() && contractArchiveService.isArchived(contractId)) {
+            balance = contractArchiveService.getBalanceAfterAsOf(contractId, asOf);
+        }
+
+        if (balance == null) {
+            return BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
+        }
+        return balance;
+    }
 
-        initializeOperationForUi(saved);
+    @Transactional
+    public DepositOperation createOperation(
+            DepositContract contract,
+            DepositOperationType type,
+            BigDecimal amount,
+            String description,
+            LocalDateTime dateTime
+    ) {
+        return saveOperation(contract, type, amount, description, dateTime, null);
+    }
 
-        return saved;
+    /**
+     * Операция пакетного автоначисления процентов за дату accrualDate.
+     * Повторная запись за ту же дату по договору отклоняется уникальным ключом.
+     */
+    @Transactional
+    public DepositOperation createAccrualOperation(
+            DepositContract contract,
+            BigDecimal amount,
+            String description,
+            LocalDate accrualDate,
+            LocalDateTime dateTime
+    ) {
+        if (accrualDate == null) {
+            throw new InvalidOperationException("Не указана дата начисления процентов");
+        }
+        return saveOperation(contract, DepositOperationType.INTEREST_ACCRUAL, amount, description, dateTime, accrualDate);
     }
 
     /**
      * Внутренний удобный вариант, когда у нас есть только id договора.
      */
-    @Transactional
     public DepositOperation createSystemOperation(
             Long contractId,
             DepositOperationType type,
             BigDecimal amount,
             String description
     ) {
-        DepositContract contract = getOpenContractOrThrow(contractId, "Системная операция");
-        return createOperation(contract, type, amount, description, LocalDateTime.now());
+        return contractLocks.withLock(contractId, () -> postingRetry.execute("Системная операция", contractId, () -> {
+            DepositContract contract = getOpenContractOrThrow(contractId, "Системная операция");
+            return createOperation(contract, type, amount, description, LocalDateTime.now());
+        }));
     }
 
+    /**
+     * Пополнение или снятие одним оператором БД: условный UPDATE баланса
+     * и INSERT операции (см. DepositContractRepository.postBalanceChange).
+     *
+     * Сущность договора не читается. Если проводка не прошла условия
+     * (договор не найден/не открыт, не хватает средств, ограничения продукта),
+     * возвращается false — причину выясняет вызывающий код.
+     *
+     * @param enforceLimits проверять ли min/max суммы продукта
+     */
     @Transactional
-    public void deposit(Long contractId, BigDecimal amount) {
-        DepositContract contract = getOpenContractOrThrow(contractId, "Пополнение");
-        validateAmount(amount, "Пополнение");
+    public boolean postBalanceChange(
+            Long contractId,
+            DepositOperationType type,
+            BigDecimal amount,
+            String description,
+            boolean enforceLimits
+    ) {
+        return applyBalanceChange(contractId, type, amount, description, enforceLimits);
+    }
 
-        DepositProduct product = contract.getProduct();
-        if (product != null && Boolean.FALSE.equals(product.getAllowReplenishment())) {
-            throw new InvalidOperationException("Пополнение запрещено условиями продукта");
+    /**
+     * Проводка баланса в транзакции вызывающего: вызывается изнутри сервиса,
+     * мимо прокси, из postDeposit / postWithdrawal, которые выполняются
+     * в транзакции PostingRetry.
+     */
+    private boolean applyBalanceChange(
+            Long contractId,
+            DepositOperationType type,
+            BigDecimal amount,
+            String description,
+            boolean enforceLimits
+    ) {
+        if (type != DepositOperationType.DEPOSIT && type != DepositOperationType.WITHDRAWAL) {
+            throw new InvalidOperationException("Проводкой баланса выполняются только пополнение и снятие");
         }
 
         BigDecimal normalizedAmount = normalizeMoney(amount);
-
-        BigDecimal newBalance = safeBalance(contract).add(normalizedAmount);
-        contract.setCurrentBalance(newBalance);
-
-        depositContractRepository.save(contract);
-
-        createOperation(
-                contract,
-                DepositOperationType.DEPOSIT,
-                normalizedAmount,
-                "Пополнение вклада",
+        BigDecimal delta = type == DepositOperationType.WITHDRAWAL
+                ? normalizedAmount.negate()
+                : normalizedAmount;
+
+        return depositContractRepository.postBalanceChange(
+                contractId,
+                delta,
+                enforceLimits,
+                type.name(),
+                description,
                 LocalDateTime.now()
+        ).isPosted();
+    }
+
+    public void deposit(Long contractId, BigDecimal amount) {
+        contractLocks.runWithLock(
+                contractId,
+                () -> postingRetry.run("Пополнение", contractId, () -> postDeposit(contractId, amount))
         );
     }
 
-    @Transactional
-    public void withdraw(Long contractId, BigDecimal amount) {
-        DepositContract contract = getOpenContractOrThrow(contractId, "Снятие");
-        validateAmount(amount, "Снятие");
+    private void postDeposit(Long contractId, BigDecimal amount) {
+        requireContractId(contractId, "Пополнение");
+        validateAmount(amount, "Пополнение");
 
-        DepositProduct product = contract.getProduct();
-        if (product != null && Boolean.FALSE.equals(product.getAllowPartialWithdrawal())) {
-            throw new InvalidOperationException("Частичное снятие запрещено условиями продукта");
-        }
+        if (!applyBalanceChange(contractId, DepositOperationType.DEPOSIT, amount, "Пополнение вклада", false)) {
+            DepositContract contract = getOpenContractOrThrow(contractId, "Пополнение");
 
-        BigDecimal normalizedAmount = normalizeMoney(amount);
+            DepositProduct product = contract.getProduct();
+            if (product != null && Boolean.FALSE.equals(product.getAllowReplenishment())) {
+                throw new InvalidOperationException("Пополнение запрещено условиями продукта");
+            }
 
-        BigDecimal current = safeBalance(contract);
-        if (current.compareTo(normalizedAmount) < 0) {
-            throw new InvalidOperationException("Недостаточно средств на вкладе");
+            throw concurrentChange("Пополнение");
         }
+    }
 
-        BigDecimal newBalance = current.subtract(normalizedAmount);
-        contract.setCurrentBalance(newBalance);
+    public void withdraw(Long contractId, BigDecimal amount) {
+        contractLocks.runWithLock(
+                contractId,
+                () -> postingRetry.run("Снятие", contractId, () -> postWithdrawal(contractId, amount))
+        );
+    }
 
-        depositContractRepository.save(contract);
+    private void postWithdrawal(Long contractId, BigDecimal amount) {
+        requireContractId(contractId, "Снятие");
+        validateAmount(amount, "Снятие");
 
-        createOperation(
-                contract,
-                DepositOperationType.WITHDRAWAL,
-                normalizedAmount,
-                "Снятие средств",
-                LocalDateTime.now()
-        );
+        if (!applyBalanceChange(contractId, DepositOperationType.WITHDRAWAL, amount, "Снятие средств", false)) {
+            DepositContract contract = getOpenContractOrThrow(contractId, "Снятие");
+
+            DepositProduct product = contract.getProduct();
+            if (product != null && Boolean.FALSE.equals(product.getAllowPartialWithdrawal())) {
+                throw new InvalidOperationException("Частичное снятие запрещено условиями продукта");
+            }
+
+            if (safeBalance(contract).compareTo(normalizeMoney(amount)) < 0) {
+                throw new InvalidOperationException("Недостаточно средств на вкладе");
+            }
+
+            throw concurrentChange("Снятие");
+        }
     }
 
     /**
      * Начисление процентов вручную.
      */
-    @Transactional
     public void accrueInterest(Long contractId, BigDecimal amount) {
+        contractLocks.runWithLock(
+                contractId,
+                () -> postingRetry.run("Начисление процентов", contractId, () -> postManualInterest(contractId, amount))
+        );
+    }
+
+    private void postManualInterest(Long contractId, BigDecimal amount) {
         DepositContract contract = getOpenContractOrThrow(contractId, "Начисление процентов");
         validateAmount(amount, "Начисление процентов");
 
@@ -181,11 +314,51 @@ public class DepositOperationService {
 
     // ---------------------- Private helpers ----------------------
 
-    private DepositContract getOpenContractOrThrow(Long contractId, String action) {
-        if (contractId == null) {
-            throw new InvalidOperationException(action + ": не указан id договора");
+    private DepositOperation saveOperation(
+            DepositContract contract,
+            DepositOperationType type,
+            BigDecimal amount,
+            String description,
+            LocalDateTime dateTime,
+            LocalDate accrualDate
+    ) {
+        if (contract == null) {
+            throw new InvalidOperationException("Не указан договор для операции");
+        }
+        if (type == null) {
+            throw new InvalidOperationException("Не указан тип операции");
+        }
+        if (amount == null) {
+            throw new InvalidOperationException("Не указана сумма операции");
+        }
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new InvalidOperationException("Сумма операции должна быть больше нуля");
+        }
+
+        BigDecimal normalizedAmount = normalizeMoney(amount);
+
+        DepositOperation op = new DepositOperation();
+        op.setContract(contract);
+        op.setType(type);
+        op.setAmount(normalizedAmount);
+        op.setDescription(description != null ? description.trim() : null);
+        op.setOperationDateTime(dateTime != null ? dateTime : LocalDateTime.now());
+        op.setAccrualDate(accrualDate);
+        op.setBalanceAfter(safeBalance(contract));
+
+        DepositOperation saved = depositOperationRepository.save(op);
+
+        if (type == DepositOperationType.INTEREST_ACCRUAL) {
+            advanceAccrualWatermark(contract, op.getOperationDateTime().toLocalDate());
         }
 
+        // Связи договора здесь не прогреваются: метод вызывают и пакетные начисления
+        return saved;
+    }
+
+    private DepositContract getOpenContractOrThrow(Long contractId, String action) {
+        requireContractId(contractId, action);
+
         DepositContract contract = depositContractRepository.findById(contractId)
                 .orElseThrow(() ->
                         new EntityNotFoundException(action + ": договор с id=" + contractId + " не найден")
@@ -201,6 +374,36 @@ public class DepositOperationService {
         return contract;
     }
 
+    /**
+     * Сдвигает отметку последнего начисления процентов по договору.
+     * Вызывается для каждой операции INTEREST_ACCRUAL (авто и ручной),
+     * поэтому поиск базовой даты начисления не требует чтения истории.
+     * Отметка только растёт: начисление задним числом её не откатывает.
+     */
+    private void advanceAccrualWatermark(DepositContract contract, LocalDate accrualDate) {
+        if (contract.getLastAccrualDate() == null || contract.getLastAccrualDate().isBefore(accrualDate)) {
+            contract.setLastAccrualDate(accrualDate);
+        }
+        if (contract.getAccruedThroughDate() == null || contract.getAccruedThroughDate().isBefore(accrualDate)) {
+            contract.setAccruedThroughDate(accrualDate);
+        }
+        depositContractRepository.save(contract);
+    }
+
+    private void requireContractId(Long contractId, String action) {
+        if (contractId == null) {
+            throw new InvalidOperationException(action + ": не указан id договора");
+        }
+    }
+
+    /**
+     * Проводка не прошла, хотя на свежем чтении все условия выполняются:
+     * договор успели изменить параллельно.
+     */
+    private InvalidOperationException concurrentChange(String action) {
+        return new InvalidOperationException(action + ": состояние договора изменилось, повторите операцию");
+    }
+
     private void validateAmount(BigDecimal amount, String action) {
         if (amount == null) {
             throw new InvalidOperationException(action + ": не указана сумма");
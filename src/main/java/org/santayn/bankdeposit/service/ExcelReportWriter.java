@@ -0,0 +1,240 @@
+package org.santayn.bankdeposit.service;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormat;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Потоковая запись отчёта в .xlsx (SXSSF).
+ *
+ * В памяти держится только окно из rowWindow последних строк листа,
+ * остальные сбрасываются во временный файл, поэтому память не зависит
+ * от числа строк.
+ *
+ * Ширина колонок считается по длине значений в первых sampleRows строках
+ * каждого листа (autoSizeColumn меряет каждую ячейку и со сброшенными
+ * строками не работает).
+ *
+ * Когда лист доходит до maxRowsPerSheet строк (по умолчанию — предел Excel),
+ * запись продолжается на следующем листе «Имя (2)», «Имя (3)»… с той же шапкой.
+ *
+ * Ячейки строки заполняются по порядку: startRow, затем text/date/dateTime/money.
+ */
+final class ExcelReportWriter implements AutoCloseable {
+
+    /**
+     * Предел строк листа .xlsx (1 048 576).
+     */
+    static final int EXCEL_MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    private static final int MIN_COLUMN_CHARS = 8;
+    private static final int MAX_COLUMN_CHARS = 60;
+
+    private final SXSSFWorkbook wb;
+    private final int maxRowsPerSheet;
+    private final int sampleRows;
+
+    private final CellStyle headerStyle;
+    private final CellStyle dateStyle;
+    private final CellStyle dateTimeStyle;
+    private final CellStyle moneyStyle;
+
+    private String baseName;
+    private String[] headers;
+    private SXSSFSheet sheet;
+    private int part;
+    private int nextRow;
+    private int[] widths;
+
+    private Row row;
+    private int col;
+
+    ExcelReportWriter(int rowWindow, int maxRowsPerSheet, int sampleRows) {
+        this.wb = new SXSSFWorkbook(Math.max(1, rowWindow));
+        this.wb.setCompressTempFiles(true);
+        this.maxRowsPerSheet = Math.max(2, Math.min(maxRowsPerSheet, EXCEL_MAX_ROWS));
+        this.sampleRows = Math.max(0, sampleRows);
+
+        DataFormat df = wb.createDataFormat();
+
+        Font font = wb.createFont();
+        font.setBold(true);
+        headerStyle = wb.createCellStyle();
+        headerStyle.setFont(font);
+        headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+        headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        headerStyle.setBorderBottom(BorderStyle.THIN);
+        headerStyle.setBorderTop(BorderStyle.THIN);
+        headerStyle.setBorderLeft(BorderStyle.THIN);
+        headerStyle.setBorderRight(BorderStyle.THIN);
+
+        dateStyle = wb.createCellStyle();
+        dateStyle.setDataFormat(df.getFormat("dd.mm.yyyy"));
+
+        dateTimeStyle = wb.createCellStyle();
+        dateTimeStyle.setDataFormat(df.getFormat("dd.mm.yyyy hh:mm"));
+
+        moneyStyle = wb.createCellStyle();
+        moneyStyle.setDataFormat(df.getFormat("#,##0.00"));
+    }
+
+    /**
+     * Начинает новый лист с шапкой (шапка может быть пустой).
+     */
+    void startSheet(String name, String... headers) {
+        finishSheet();
+        this.baseName = name;
+        this.headers = headers;
+        this.part = 0;
+        openSheet();
+    }
+
+    /**
+     * Начинает следующую строку; при заполнении листа переходит на новый.
+     */
+    void startRow() {
+        if (sheet == null) {
+            throw new IllegalStateException("Лист не начат");
+        }
+        if (nextRow >= maxRowsPerSheet) {
+            finishSheet();
+            openSheet();
+        }
+        row = sheet.createRow(nextRow++);
+        col = 0;
+    }
+
+    void text(String value) {
+        String v = value != null ? value : "";
+        Cell cell = row.createCell(col);
+        cell.setCellValue(v);
+        track(v.length());
+    }
+
+    void date(LocalDate value) {
+        Cell cell = row.createCell(col);
+        if (value == null) {
+            cell.setCellValue("");
+        } else {
+            cell.setCellValue(value);
+            cell.setCellStyle(dateStyle);
+        }
+        track(10);
+    }
+
+    void dateTime(LocalDateTime value) {
+        Cell cell = row.createCell(col);
+        if (value == null) {
+            cell.setCellValue("");
+        } else {
+            cell.setCellValue(value);
+            cell.setCellStyle(dateTimeStyle);
+        }
+        track(16);
+    }
+
+    void money(BigDecimal value) {
+        Cell cell = row.createCell(col);
+        cell.setCellValue(value != null ? value.doubleValue() : 0d);
+        cell.setCellStyle(moneyStyle);
+        track(moneyLength(value));
+    }
+
+    /**
+     * Сколько листов создано (с учётом продолжений).
+     */
+    int getSheetCount() {
+        return wb.getNumberOfSheets();
+    }
+
+    void writeTo(File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            writeTo(out);
+        }
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        finishSheet();
+        wb.write(out);
+    }
+
+    /**
+     * Удаляет временные файлы строк.
+     */
+    @Override
+    public void close() throws IOException {
+        wb.dispose();
+        wb.close();
+    }
+
+    private void openSheet() {
+        part++;
+        sheet = wb.createSheet(part == 1 ? baseName : baseName + " (" + part + ")");
+        nextRow = 0;
+        widths = new int[headers.length];
+
+        if (headers.length > 0) {
+            row = sheet.createRow(nextRow++);
+            col = 0;
+            for (String header : headers) {
+                Cell cell = row.createCell(col);
+                cell.setCellValue(header);
+                cell.setCellStyle(headerStyle);
+                track(header.length());
+            }
+        }
+    }
+
+    /**
+     * Проставляет ширину колонок текущего листа по собранным длинам.
+     */
+    private void finishSheet() {
+        if (sheet == null) {
+            return;
+        }
+        for (int i = 0; i < widths.length; i++) {
+            int chars = Math.min(MAX_COLUMN_CHARS, Math.max(MIN_COLUMN_CHARS, widths[i] + 2));
+            sheet.setColumnWidth(i, chars * 256);
+        }
+        sheet = null;
+        row = null;
+    }
+
+    private void track(int length) {
+        if (nextRow <= sampleRows + 1) {
+            if (col >= widths.length) {
+                int[] grown = new int[col + 1];
+                System.arraycopy(widths, 0, grown, 0, widths.length);
+                widths = grown;
+            }
+            widths[col] = Math.max(widths[col], length);
+        }
+        col++;
+    }
+
+    private static int moneyLength(BigDecimal value) {
+        if (value == null) {
+            return 4;
+        }
+        String plain = value.abs().setScale(0, RoundingMode.DOWN).toPlainString();
+        int groups = (plain.length() - 1) / 3;
+        return plain.length() + groups + 3 + (value.signum() < 0 ? 1 : 0);
+    }
+}
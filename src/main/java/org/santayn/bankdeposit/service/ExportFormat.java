@@ -0,0 +1,30 @@
+package org.santayn.bankdeposit.service;
+
+/**
+ * Текстовый формат выгрузки операций (для хранилища данных).
+ */
+public enum ExportFormat {
+
+    /**
+     * CSV (RFC 4180, разделитель — запятая, строки через \n) с шапкой из имён колонок.
+     */
+    CSV("csv"),
+
+    /**
+     * JSON lines: один объект на строку.
+     */
+    NDJSON("ndjson");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Расширение файла (без точки и без .gz).
+     */
+    public String getExtension() {
+        return extension;
+    }
+}
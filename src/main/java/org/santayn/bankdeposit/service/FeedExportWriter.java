@@ -0,0 +1,447 @@
+package org.santayn.bankdeposit.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Потоковая запись выгрузки в CSV или NDJSON через FileChannel.
+ *
+ * Значения кодируются в UTF-8 сразу в один переиспользуемый direct-буфер
+ * (без промежуточных строк и byte[] на запись); полный буфер уходит
+ * в канал целиком. Память не зависит от числа записей.
+ *
+ * С gzip буфер сжимается Deflater прямо из direct-памяти во второй такой же
+ * буфер; заголовок и хвост (CRC32, размер) gzip пишутся вручную.
+ *
+ * Поля записи передаются по порядку колонок (text/number/decimal/dateTime),
+ * затем endRecord. Null в CSV — пустое поле, в NDJSON — null.
+ * Дата и время — ISO-8601 без зоны.
+ */
+final class FeedExportWriter implements AutoCloseable {
+
+    static final int MIN_BUFFER_BYTES = 4 * 1024;
+
+    /**
+     * Самое длинное кодирование одного символа (\\u00XX в JSON).
+     */
+    private static final int MAX_CHAR_BYTES = 6;
+
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel channel;
+    private final ExportFormat format;
+    private final ByteBuffer buffer;
+    private final byte[][] keys;
+    private final byte[] digits = new byte[20];
+
+    private final Deflater deflater;
+    private final CRC32 crc;
+    private final ByteBuffer compressed;
+
+    private int col;
+    private long records;
+    private boolean closed;
+
+    private FeedExportWriter(
+            FileChannel channel,
+            ExportFormat format,
+            boolean gzip,
+            int bufferBytes,
+            String[] columns
+    ) throws IOException {
+        if (columns.length == 0) {
+            throw new IllegalArgumentException("Не заданы колонки выгрузки");
+        }
+
+        int size = Math.max(MIN_BUFFER_BYTES, bufferBytes);
+        this.channel = channel;
+        this.format = format;
+        this.buffer = ByteBuffer.allocateDirect(size);
+
+        this.keys = new byte[columns.length][];
+        for (int i = 0; i < columns.length; i++) {
+            keys[i] = ('"' + columns[i] + "\":").getBytes(StandardCharsets.UTF_8);
+        }
+
+        if (gzip) {
+            this.deflater = new Deflater(Deflater.BEST_SPEED, true);
+            this.crc = new CRC32();
+            this.compressed = ByteBuffer.allocateDirect(size);
+            writeFully(ByteBuffer.wrap(GZIP_HEADER));
+        } else {
+            this.deflater = null;
+            this.crc = null;
+            this.compressed = null;
+        }
+
+        if (format == ExportFormat.CSV) {
+            for (String column : columns) {
+                text(column);
+            }
+            endLine();
+        }
+    }
+
+    /**
+     * Создаёт (или перезаписывает) файл выгрузки.
+     */
+    static FeedExportWriter open(
+            Path file,
+            ExportFormat format,
+            boolean gzip,
+            int bufferBytes,
+            String... columns
+    ) throws IOException {
+        FileChannel channel = FileChannel.open(
+                file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        );
+        try {
+            return new FeedExportWriter(channel, format, gzip, bufferBytes, columns);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    void text(String value) throws IOException {
+        beginField();
+        if (value == null) {
+            putNull();
+        } else if (format == ExportFormat.NDJSON) {
+            putJsonString(value);
+        } else {
+            putCsvString(value);
+        }
+    }
+
+    void number(Long value) throws IOException {
+        beginField();
+        if (value == null) {
+            putNull();
+        } else {
+            putLong(value);
+        }
+    }
+
+    void decimal(BigDecimal value) throws IOException {
+        beginField();
+        if (value == null) {
+            putNull();
+        } else {
+            putAscii(value.toPlainString());
+        }
+    }
+
+    void dateTime(LocalDateTime value) throws IOException {
+        beginField();
+        if (value == null) {
+            putNull();
+            return;
+        }
+
+        boolean quoted = format == ExportFormat.NDJSON;
+        ensure(48);
+        if (quoted) {
+            buffer.put((byte) '"');
+        }
+        putDateTime(value);
+        if (quoted) {
+            buffer.put((byte) '"');
+        }
+    }
+
+    /**
+     * Завершает запись; все колонки должны быть заполнены.
+     */
+    void endRecord() throws IOException {
+        if (col != keys.length) {
+            throw new IllegalStateException("Заполнено колонок: " + col + " из " + keys.length);
+        }
+        endLine();
+        records++;
+    }
+
+    /**
+     * Сколько записей (без шапки CSV) записано.
+     */
+    long getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Сбрасывает буфер, дописывает хвост gzip и закрывает файл.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            flush();
+            if (deflater != null) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflate();
+                }
+                ByteBuffer trailer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+                trailer.putInt((int) crc.getValue());
+                trailer.putInt((int) deflater.getBytesRead());
+                writeFully(trailer.flip());
+            }
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+            channel.close();
+        }
+    }
+
+    // -------------------- Кодирование --------------------
+
+    private void beginField() throws IOException {
+        if (col >= keys.length) {
+            throw new IllegalStateException("Лишнее поле: колонок " + keys.length);
+        }
+
+        if (format == ExportFormat.NDJSON) {
+            byte[] key = keys[col];
+            ensure(key.length + 1);
+            buffer.put(col == 0 ? (byte) '{' : (byte) ',');
+            buffer.put(key);
+        } else if (col > 0) {
+            ensure(1);
+            buffer.put((byte) ',');
+        }
+        col++;
+    }
+
+    private void endLine() throws IOException {
+        ensure(2);
+        if (format == ExportFormat.NDJSON) {
+            buffer.put((byte) '}');
+        }
+        buffer.put((byte) '\n');
+        col = 0;
+    }
+
+    private void putNull() throws IOException {
+        if (format == ExportFormat.NDJSON) {
+            ensure(NULL.length);
+            buffer.put(NULL);
+        }
+    }
+
+    private void putCsvString(String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+
+        if (!quote) {
+            putUtf8(value, false);
+            return;
+        }
+
+        ensure(1);
+        buffer.put((byte) '"');
+        putUtf8(value, false);
+        ensure(1);
+        buffer.put((byte) '"');
+    }
+
+    private void putJsonString(String value) throws IOException {
+        ensure(1);
+        buffer.put((byte) '"');
+        putUtf8(value, true);
+        ensure(1);
+        buffer.put((byte) '"');
+    }
+
+    /**
+     * UTF-8 с экранированием: для JSON — кавычки, \\ и управляющие символы,
+     * для CSV — удвоение кавычек (поле с ними всегда в кавычках).
+     * Одиночная половина суррогатной пары заменяется на '?', как в String.getBytes.
+     */
+    private void putUtf8(String value, boolean json) throws IOException {
+        int length = value.length();
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            ensure(MAX_CHAR_BYTES);
+
+            if (c == '"') {
+                buffer.put(json ? (byte) '\\' : (byte) '"');
+                buffer.put((byte) '"');
+            } else if (json && (c == '\\' || c < 0x20)) {
+                putJsonEscape(c);
+            } else if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c)
+                    && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (cp >> 18)));
+                buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (cp & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private void putJsonEscape(char c) {
+        buffer.put((byte) '\\');
+        switch (c) {
+            case '\\' -> buffer.put((byte) '\\');
+            case '\n' -> buffer.put((byte) 'n');
+            case '\r' -> buffer.put((byte) 'r');
+            case '\t' -> buffer.put((byte) 't');
+            default -> {
+                buffer.put((byte) 'u');
+                buffer.put((byte) '0');
+                buffer.put((byte) '0');
+                buffer.put(HEX[c >> 4]);
+                buffer.put(HEX[c & 0xF]);
+            }
+        }
+    }
+
+    private void putLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            putAscii(Long.toString(value));
+            return;
+        }
+
+        ensure(digits.length);
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+
+        int pos = digits.length;
+        do {
+            digits[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        buffer.put(digits, pos, digits.length - pos);
+    }
+
+    /**
+     * yyyy-MM-ddTHH:mm:ss[.ffffff|.fffffffff]; годы вне 0..9999 — через toString.
+     */
+    private void putDateTime(LocalDateTime value) {
+        int year = value.getYear();
+        if (year < 0 || year > 9999) {
+            buffer.put(value.toString().getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+
+        putPadded(year, 4);
+        buffer.put((byte) '-');
+        putPadded(value.getMonthValue(), 2);
+        buffer.put((byte) '-');
+        putPadded(value.getDayOfMonth(), 2);
+        buffer.put((byte) 'T');
+        putPadded(value.getHour(), 2);
+        buffer.put((byte) ':');
+        putPadded(value.getMinute(), 2);
+        buffer.put((byte) ':');
+        putPadded(value.getSecond(), 2);
+
+        int nano = value.getNano();
+        if (nano != 0) {
+            buffer.put((byte) '.');
+            if (nano % 1000 == 0) {
+                putPadded(nano / 1000, 6);
+            } else {
+                putPadded(nano, 9);
+            }
+        }
+    }
+
+    private void putPadded(int value, int width) {
+        for (int divisor = pow10(width - 1); divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + (value / divisor) % 10));
+        }
+    }
+
+    private static int pow10(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+
+    private void putAscii(String value) throws IOException {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            ensure(1);
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    // -------------------- Канал --------------------
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+
+        if (deflater == null) {
+            writeFully(buffer);
+        } else if (buffer.hasRemaining()) {
+            // Отдельный срез: Deflater держит ссылку на вход, а буфер ниже очищается
+            ByteBuffer input = buffer.slice();
+            crc.update(buffer);
+            deflater.setInput(input);
+            while (!deflater.needsInput()) {
+                deflate();
+            }
+        }
+
+        buffer.clear();
+    }
+
+    private void deflate() throws IOException {
+        compressed.clear();
+        deflater.deflate(compressed);
+        compressed.flip();
+        writeFully(compressed);
+    }
+
+    private void writeFully(ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+}
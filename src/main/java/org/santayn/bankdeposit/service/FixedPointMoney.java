@@ -0,0 +1,197 @@
+package org.santayn.bankdeposit.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Арифметика денег и ставок в фиксированной точке на long.
+ *
+ * - суммы хранятся в копейках (scale 2)
+ * - годовая ставка и доля года — в единицах 10^-10 (scale 10),
+ *   как в прежнем BigDecimal-расчёте с divide(..., 10, HALF_UP)
+ *
+ * Произведение сумма * ставка * доля года считается в 128 битах без
+ * создания объектов, округление до копеек — по явно указанному RoundingMode.
+ * Если результат не помещается в 128 бит или аргументы отрицательные,
+ * используется точный BigDecimal-расчёт с тем же результатом.
+ */
+public final class FixedPointMoney {
+
+    /**
+     * Масштаб ставки и доли года: 10 знаков после запятой.
+     */
+    public static final int FACTOR_SCALE = 10;
+
+    public static final int DAYS_IN_YEAR = 365;
+
+    private static final long FACTOR_ONE = 10_000_000_000L;
+
+    /**
+     * 10^20 = (10^5)^4: деление 128-битного числа выполняется четырьмя
+     * делениями на 10^5, чтобы промежуточные значения помещались в long.
+     */
+    private static final long LIMB_DIVISOR = 100_000L;
+    private static final long HALF_LIMB = LIMB_DIVISOR / 2;
+    private static final long LOW_32_BITS = 0xFFFF_FFFFL;
+
+    private FixedPointMoney() {
+    }
+
+    /**
+     * Сумма в копейках (HALF_UP до 2 знаков, как normalizeMoney).
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        if (amount == null) {
+            return 0L;
+        }
+        return amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromMinorUnits(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, 2);
+    }
+
+    /**
+     * Годовая ставка в процентах -> доля (rate/100), округлённая HALF_UP
+     * до 10 знаков, в единицах 10^-10.
+     */
+    public static long scaleRate(BigDecimal percentRate) {
+        if (percentRate == null) {
+            return 0L;
+        }
+        return percentRate.movePointRight(FACTOR_SCALE - 2)
+                .setScale(0, RoundingMode.HALF_UP)
+                .longValueExact();
+    }
+
+    /**
+     * Доля года days/daysInYear, округлённая HALF_UP до 10 знаков, в единицах 10^-10.
+     */
+    public static long dayFraction(long days, int daysInYear) {
+        if (days < 0) {
+            return -dayFraction(-days, daysInYear);
+        }
+        // round(days * 10^10 / base) = floor((2 * days * 10^10 + base) / (2 * base))
+        long numerator = Math.addExact(Math.multiplyExact(days, 2 * FACTOR_ONE), daysInYear);
+        return numerator / (2L * daysInYear);
+    }
+
+    public static long dayFraction(long days) {
+        return dayFraction(days, DAYS_IN_YEAR);
+    }
+
+    /**
+     * Простые проценты в копейках:
+     * round(balance * rate * dayFraction), где rate и dayFraction в единицах 10^-10.
+     */
+    public static long simpleInterest(
+            long balanceMinor,
+            long rateScaled,
+            long dayFractionScaled,
+            RoundingMode mode
+    ) {
+        if (balanceMinor < 0 || rateScaled < 0 || dayFractionScaled < 0) {
+            return simpleInterestExact(balanceMinor, rateScaled, dayFractionScaled, mode);
+        }
+
+        // balance * rate -> 128 бит (оба множителя неотрицательные)
+        long hi = Math.multiplyHigh(balanceMinor, rateScaled);
+        long lo = balanceMinor * rateScaled;
+
+        // (hi:lo) * dayFraction -> 128 бит, переполнение -> точный расчёт
+        long carry = Math.multiplyHigh(lo, dayFractionScaled) + ((lo >> 63) & dayFractionScaled);
+        long newLo = lo * dayFractionScaled;
+        long newHi;
+        try {
+            newHi = Math.addExact(Math.multiplyExact(hi, dayFractionScaled), carry);
+        } catch (ArithmeticException e) {
+            return simpleInterestExact(balanceMinor, rateScaled, dayFractionScaled, mode);
+        }
+
+        return divideByFactorSquared(newHi, newLo, mode, balanceMinor, rateScaled, dayFractionScaled);
+    }
+
+    /**
+     * (hi:lo) / 10^20 с округлением.
+     * Остаток разбирается на «цифры» по основанию 10^5: старшая сравнивается
+     * с половиной, для младших достаточно знать, есть ли среди них ненулевые.
+     */
+    private static long divideByFactorSquared(
+            long hi,
+            long lo,
+            RoundingMode mode,
+            long balanceMinor,
+            long rateScaled,
+            long dayFractionScaled
+    ) {
+        long remainderTopDigit = 0;
+        boolean lowerDigitsNonZero = false;
+
+        for (int step = 0; step < 4; step++) {
+            long cur = hi >>> 32;
+            long q0 = cur / LIMB_DIVISOR;
+            long r = cur % LIMB_DIVISOR;
+
+            cur = (r << 32) | (hi & LOW_32_BITS);
+            long q1 = cur / LIMB_DIVISOR;
+            r = cur % LIMB_DIVISOR;
+
+            cur = (r << 32) | (lo >>> 32);
+            long q2 = cur / LIMB_DIVISOR;
+            r = cur % LIMB_DIVISOR;
+
+            cur = (r << 32) | (lo & LOW_32_BITS);
+            long q3 = cur / LIMB_DIVISOR;
+            r = cur % LIMB_DIVISOR;
+
+            hi = (q0 << 32) | q1;
+            lo = (q2 << 32) | q3;
+
+            if (step < 3) {
+                lowerDigitsNonZero |= r != 0;
+            } else {
+                remainderTopDigit = r;
+            }
+        }
+
+        if (hi != 0 || lo < 0) {
+            return simpleInterestExact(balanceMinor, rateScaled, dayFractionScaled, mode);
+        }
+
+        long quotient = lo;
+        boolean remainderZero = remainderTopDigit == 0 && !lowerDigitsNonZero;
+        int comparedToHalf = remainderTopDigit != HALF_LIMB
+                ? Long.compare(remainderTopDigit, HALF_LIMB)
+                : (lowerDigitsNonZero ? 1 : 0);
+
+        return switch (mode) {
+            case DOWN, FLOOR -> quotient;
+            case UP, CEILING -> remainderZero ? quotient : quotient + 1;
+            case HALF_UP -> comparedToHalf >= 0 ? quotient + 1 : quotient;
+            case HALF_DOWN -> comparedToHalf > 0 ? quotient + 1 : quotient;
+            case HALF_EVEN -> comparedToHalf > 0 || (comparedToHalf == 0 && (quotient & 1) == 1)
+                    ? quotient + 1
+                    : quotient;
+            case UNNECESSARY -> {
+                if (!remainderZero) {
+                    throw new ArithmeticException("Требуется округление");
+                }
+                yield quotient;
+            }
+        };
+    }
+
+    private static long simpleInterestExact(
+            long balanceMinor,
+            long rateScaled,
+            long dayFractionScaled,
+            RoundingMode mode
+    ) {
+        return BigDecimal.valueOf(balanceMinor)
+                .multiply(BigDecimal.valueOf(rateScaled))
+                .multiply(BigDecimal.valueOf(dayFractionScaled))
+                .movePointLeft(2 * FACTOR_SCALE)
+                .setScale(0, mode)
+                .longValueExact();
+    }
+}
@@ -1,33 +1,48 @@
 package org.santayn.bankdeposit.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
+import org.santayn.bankdeposit.models.AccrualCheckpoint;
+import org.santayn.bankdeposit.models.AccrualRun;
+import org.santayn.bankdeposit.models.AccrualStrategy;
 import org.santayn.bankdeposit.models.DepositContract;
 import org.santayn.bankdeposit.models.DepositContractStatus;
-import org.santayn.bankdeposit.models.DepositOperation;
-import org.santayn.bankdeposit.models.DepositOperationType;
 import org.santayn.bankdeposit.models.DepositProduct;
+import org.santayn.bankdeposit.repository.AccrualCheckpointRepository;
 import org.santayn.bankdeposit.repository.DepositContractRepository;
+import org.santayn.bankdeposit.repository.DepositOperationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Сервис автоматического начисления процентов.
  *
  * Логика:
- * - берём все OPEN-договоры
+ * - берём OPEN-договоры порциями по id, каждая порция — отдельная транзакция
  * - определяем дату последнего начисления:
- *      * последняя операция INTEREST_ACCRUAL
+ *      * отметка accruedThroughDate на договоре
  *      * иначе дата открытия
  * - считаем дни
- * - проценты = balance * rate/100 * days/365
- * - создаём операцию INTEREST_ACCRUAL
+ * - проценты = balance * rate/100 * days/365,
+ *   для продуктов с капитализацией — balance * ((1 + rate/100/365)^days - 1)
+ *   (множитель берётся из CompoundingFactorCache)
+ * - создаём операцию INTEREST_ACCRUAL с датой начисления (уникальна для договора)
  * - увеличиваем баланс (упрощённая модель для учебного проекта)
  *
  * Если у продукта capitalization=false, в реальном банке проценты могли бы
@@ -38,41 +53,514 @@ import java.util.List;
 public class InterestAccrualService {
 
     private final DepositContractRepository depositContractRepository;
+    private final DepositOperationRepository depositOperationRepository;
     private final DepositOperationService depositOperationService;
+    private final AccrualCheckpointRepository accrualCheckpointRepository;
+    private final AccrualRunService accrualRunService;
+    private final PlatformTransactionManager transactionManager;
+    private final BatchParallelism batchParallelism;
+    private final CompoundingFactorCache compoundingFactorCache;
+    private final ContractLockManager contractLocks;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Размер порции договоров, фиксируемой одной транзакцией.
+     */
+    @Value("${bankdeposit.accrual.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * Пакетное начисление по всем OPEN-договорам выбранным способом.
+     * Каждый прогон и его статистика записываются в журнал accrual_runs.
+     */
+    public AccrualRunReport runAccrual(LocalDate asOfDate, AccrualStrategy strategy) {
+        LocalDate расчетнаяДата = asOfDate != null ? asOfDate : LocalDate.now();
+        AccrualStrategy способ = strategy != null ? strategy : AccrualStrategy.SEQUENTIAL;
+
+        AccrualRun run = accrualRunService.start(расчетнаяДата, способ);
+
+        try {
+            AccrualRunReport report = switch (способ) {
+                case SEQUENTIAL -> accrueSequential(расчетнаяДата);
+                case PARALLEL -> accrueParallel(расчетнаяДата);
+                case SET_BASED -> accrueSetBased(расчетнаяДата);
+                case WORK_CLAIMING -> accrueWorkClaiming(расчетнаяДата);
+            };
+            accrualRunService.finish(run.getId(), report);
+            return report;
+        } catch (RuntimeException e) {
+            accrualRunService.fail(run.getId(), e);
+            throw e;
+        }
+    }
 
-    @Transactional
+    /**
+     * Пакетное начисление по всем OPEN-договорам.
+     *
+     * Договоры читаются порциями по id (keyset), каждая порция фиксируется
+     * отдельной транзакцией вместе с контрольной точкой, после чего контекст
+     * персистентности очищается. Если предыдущий прогон на ту же дату упал,
+     * обработка продолжается с последней зафиксированной порции.
+     *
+     * @return количество договоров, по которым начислены проценты за прогон
+     */
     public int accrueInterestForAll(LocalDate asOfDate) {
+        return runAccrual(asOfDate, AccrualStrategy.SEQUENTIAL).accruedCount();
+    }
+
+    /**
+     * Параллельное пакетное начисление по всем OPEN-договорам.
+     *
+     * id договоров делятся на диапазоны примерно равного размера, каждый диапазон
+     * обрабатывается отдельным потоком ограниченного пула порциями по chunkSize,
+     * у каждой порции своя транзакция (и своё соединение). Число потоков
+     * ограничено размером пула соединений (см. BatchParallelism).
+     *
+     * Контрольная точка здесь не ведётся: при повторном запуске договоры,
+     * уже начисленные на эту дату, отсекаются пробой по (contract_id, accrual_date).
+     */
+    public AccrualRunReport accrueInterestForAllParallel(LocalDate asOfDate) {
+        return runAccrual(asOfDate, AccrualStrategy.PARALLEL);
+    }
+
+    /**
+     * Начисление по одному договору под блокировкой его полосы
+     * (ContractLockManager), в отдельной транзакции.
+     */
+    public boolean accrueInterestForContract(Long contractId, LocalDate asOfDate) {
+        if (contractId == null) {
+            throw new InvalidOperationException("Не указан договор");
+        }
+
         LocalDate расчетнаяДата = asOfDate != null ? asOfDate : LocalDate.now();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        return contractLocks.withLock(contractId, () -> tx.execute(status -> {
+            DepositContract contract = depositContractRepository.findById(contractId)
+                    .orElseThrow(() -> new EntityNotFoundException("Договор с id=" + contractId + " не найден"));
+
+            return accrueIfNotYetAccrued(contract, расчетнаяДата);
+        }));
+    }
 
-        List<DepositContract> active = depositContractRepository.findByStatus(DepositContractStatus.OPEN);
+    // -------------------- Способы выполнения --------------------
+
+    private AccrualRunReport accrueSequential(LocalDate расчетнаяДата) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        AccrualCheckpoint checkpoint = tx.execute(status -> startOrResumeCheckpoint(расчетнаяДата));
+
+        long lastContractId = checkpoint.getLastContractId();
+        AccrualRunReport report = new AccrualRunReport(
+                расчетнаяДата,
+                checkpoint.getProcessedCount(),
+                checkpoint.getAccruedCount(),
+                checkpoint.getFailedCount(),
+                List.of()
+        );
 
-        int accruedCount = 0;
+        while (true) {
+            ChunkResult chunk = runChunk(расчетнаяДата, lastContractId, Long.MAX_VALUE, true);
 
-        for (DepositContract contract : active) {
-            boolean accrued = accrueInterestForContractInternal(contract, расчетнаяДата);
-            if (accrued) {
-                accruedCount++;
+            if (chunk.processed() == 0) {
+                break;
             }
+
+            lastContractId = chunk.lastContractId();
+            report = report.merge(chunk.toReport(расчетнаяДата));
         }
 
-        return accruedCount;
+        tx.executeWithoutResult(status -> completeCheckpoint(расчетнаяДата));
+
+        return report;
     }
 
-    @Transactional
-    public boolean accrueInterestForContract(Long contractId, LocalDate asOfDate) {
-        if (contractId == null) {
-            throw new InvalidOperationException("Не указан договор");
+    private AccrualRunReport accrueParallel(LocalDate расчетнаяДата) {
+        List<DepositContractRepository.IdRange> ranges = depositContractRepository.findIdRangesByStatus(
+                DepositContractStatus.OPEN.name(),
+                batchParallelism.workerCount()
+        );
+
+        if (ranges.isEmpty()) {
+            return AccrualRunReport.empty(расчетнаяДата);
         }
 
-        DepositContract contract = depositContractRepository.findById(contractId)
-                .orElseThrow(() -> new EntityNotFoundException("Договор с id=" + contractId + " не найден"));
+        ExecutorService executor = batchParallelism.newExecutor("accrual-worker-", ranges.size());
 
-        if (contract.getStatus() != DepositContractStatus.OPEN) {
-            return false;
+        try {
+            List<CompletableFuture<AccrualRunReport>> futures = ranges.stream()
+                    .map(range -> CompletableFuture.supplyAsync(
+                            () -> accrueRange(расчетнаяДата, range.getFromId(), range.getToId()),
+                            executor
+                    ))
+                    .toList();
+
+            AccrualRunReport report = AccrualRunReport.empty(расчетнаяДата);
+            for (CompletableFuture<AccrualRunReport> future : futures) {
+                report = report.merge(future.join());
+            }
+            return report;
+        } finally {
+            executor.shutdown();
         }
+    }
 
-        LocalDate расчетнаяДата = asOfDate != null ? asOfDate : LocalDate.now();
+    /**
+     * Начисление одним SQL-оператором внутри PostgreSQL, в одной транзакции.
+     * Формула и округление совпадают с Java-расчётом calculateDailyInterest.
+     * Договоры продуктов с капитализацией затем начисляются Java-расчётом
+     * порциями (сложные проценты по кэшу множителей).
+     */
+    private AccrualRunReport accrueSetBased(LocalDate расчетнаяДата) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        DepositContractRepository.SetBasedAccrualResult result = tx.execute(status -> {
+            DepositContractRepository.SetBasedAccrualResult r = depositContractRepository.accrueInterestSetBased(
+                    расчетнаяДата,
+                    accrualDateTime(расчетнаяДата)
+            );
+            // Сущности в контексте больше не соответствуют строкам БД
+            entityManager.clear();
+            return r;
+        });
+
+        AccrualRunReport report = new AccrualRunReport(
+                расчетнаяДата,
+                Math.toIntExact(result.getProcessed()),
+                Math.toIntExact(result.getAccrued()),
+                0,
+                List.of()
+        );
+
+        long lastContractId = 0L;
+        while (true) {
+            long afterId = lastContractId;
+            ChunkResult chunk = tx.execute(status -> accrueCapitalizedChunk(расчетнаяДата, afterId));
+
+            if (chunk.processed() == 0) {
+                break;
+            }
+
+            lastContractId = chunk.lastContractId();
+            report = report.merge(chunk.toReport(расчетнаяДата));
+        }
+
+        return report;
+    }
+
+    /**
+     * Начисление с захватом работы: каждый рабочий поток (в том числе в других
+     * экземплярах приложения) берёт порцию ещё не начисленных договоров через
+     * FOR UPDATE SKIP LOCKED и фиксирует её своей транзакцией. Заблокированные
+     * чужой транзакцией договоры пропускаются, поэтому потоки делят договоры
+     * между собой, а от двойного начисления дополнительно защищает уникальный
+     * ключ (contract_id, accrual_date).
+     *
+     * processedCount здесь — число договоров, захваченных этим экземпляром.
+     */
+    private AccrualRunReport accrueWorkClaiming(LocalDate расчетнаяДата) {
+        int workers = batchParallelism.workerCount();
+        ExecutorService executor = batchParallelism.newExecutor("accrual-claim-", workers);
+
+        try {
+            List<CompletableFuture<AccrualRunReport>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                futures.add(CompletableFuture.supplyAsync(() -> accrueClaimedChunks(расчетнаяДата), executor));
+            }
+
+            AccrualRunReport report = AccrualRunReport.empty(расчетнаяДата);
+            for (CompletableFuture<AccrualRunReport> future : futures) {
+                report = report.merge(future.join());
+            }
+            return report;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private AccrualRunReport accrueClaimedChunks(LocalDate расчетнаяДата) {
+        long lastContractId = 0L;
+        AccrualRunReport report = AccrualRunReport.empty(расчетнаяДата);
+
+        while (true) {
+            ChunkResult chunk = runClaimedChunk(расчетнаяДата, lastContractId);
+
+            if (chunk.processed() == 0) {
+                break;
+            }
+
+            lastContractId = chunk.lastContractId();
+            report = report.merge(chunk.toReport(расчетнаяДата));
+        }
+
+        return report;
+    }
+
+    /**
+     * Обработка одного диапазона id в рабочем потоке параллельного прогона.
+     */
+    private AccrualRunReport accrueRange(LocalDate расчетнаяДата, long fromId, long toId) {
+        long lastContractId = fromId - 1;
+        AccrualRunReport report = AccrualRunReport.empty(расчетнаяДата);
+
+        while (true) {
+            ChunkResult chunk = runChunk(расчетнаяДата, lastContractId, toId, false);
+
+            if (chunk.processed() == 0) {
+                break;
+            }
+
+            lastContractId = chunk.lastContractId();
+            report = report.merge(chunk.toReport(расчетнаяДата));
+        }
+
+        return report;
+    }
+
+    // -------------------- Порции и контрольные точки --------------------
+
+    /**
+     * Обрабатывает порцию (afterId; toId] одной транзакцией.
+     * Если порция не фиксируется, договоры порции обрабатываются поштучно,
+     * каждый в своей транзакции: ошибочные учитываются как failed,
+     * остальные начисляются.
+     */
+    private ChunkResult runChunk(LocalDate расчетнаяДата, long afterId, long toId, boolean withCheckpoint) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        try {
+            return tx.execute(status -> {
+                ChunkResult result = accrueChunk(расчетнаяДата, afterId, toId);
+                if (withCheckpoint) {
+                    saveCheckpoint(расчетнаяДата, result);
+                }
+                return result;
+            });
+        } catch (RuntimeException chunkError) {
+            ChunkResult result = accrueContractByContract(расчетнаяДата, afterId, toId);
+            if (withCheckpoint) {
+                tx.executeWithoutResult(status -> saveCheckpoint(расчетнаяДата, result));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Захватывает и обрабатывает одну порцию договоров с id > afterId.
+     * Блокировки захвата держатся до фиксации транзакции порции.
+     */
+    private ChunkResult runClaimedChunk(LocalDate расчетнаяДата, long afterId) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<Long> claimed = new ArrayList<>();
+
+        try {
+            return tx.execute(status -> {
+                claimed.addAll(depositContractRepository.claimOpenIdsForAccrual(расчетнаяДата, afterId, chunkSize));
+
+                if (claimed.isEmpty()) {
+                    return ChunkResult.empty(afterId);
+                }
+
+                int accrued = accrueContracts(
+                        depositContractRepository.findAllByIdInWithProduct(claimed),
+                        расчетнаяДата
+                );
+                return new ChunkResult(claimed.get(claimed.size() - 1), claimed.size(), accrued, 0, List.of());
+            });
+        } catch (RuntimeException chunkError) {
+            if (claimed.isEmpty()) {
+                throw chunkError;
+            }
+            return accrueEachInOwnTransaction(расчетнаяДата, claimed);
+        }
+    }
 
+    /**
+     * Начисляет проценты по одной порции договоров из диапазона (afterId; toId].
+     * Должен вызываться внутри транзакции.
+     *
+     * Полосные блокировки на порцию не берутся (держать их до фиксации
+     * порции значило бы останавливать проводки UI); конфликт с параллельной
+     * проводкой ловится версией договора, и порция проводится поштучно.
+     */
+    private ChunkResult accrueChunk(LocalDate расчетнаяДата, long afterId, long toId) {
+        List<DepositContract> chunk = depositContractRepository.findChunkByStatusAndIdRange(
+                DepositContractStatus.OPEN,
+                afterId,
+                toId,
+                Limit.of(chunkSize)
+        );
+
+        if (chunk.isEmpty()) {
+            return ChunkResult.empty(afterId);
+        }
+
+        long lastContractId = chunk.get(chunk.size() - 1).getId();
+        int accrued = accrueContracts(chunk, расчетнаяДата);
+
+        return new ChunkResult(lastContractId, chunk.size(), accrued, 0, List.of());
+    }
+
+    private ChunkResult accrueCapitalizedChunk(LocalDate расчетнаяДата, long afterId) {
+        List<DepositContract> chunk = depositContractRepository.findCapitalizedChunkByStatus(
+                DepositContractStatus.OPEN,
+                afterId,
+                Limit.of(chunkSize)
+        );
+
+        if (chunk.isEmpty()) {
+            return ChunkResult.empty(afterId);
+        }
+
+        long lastContractId = chunk.get(chunk.size() - 1).getId();
+        int accrued = accrueContracts(chunk, расчетнаяДата);
+
+        return new ChunkResult(lastContractId, chunk.size(), accrued, 0, List.of());
+    }
+
+    /**
+     * Начисление по загруженной порции договоров внутри текущей транзакции.
+     *
+     * @return по скольким договорам начислены проценты
+     */
+    private int accrueContracts(List<DepositContract> chunk, LocalDate расчетнаяДата) {
+        // Одна проба по уникальному индексу на всю порцию вместо чтения истории
+        Set<Long> alreadyAccrued = depositOperationRepository.findContractIdsAccruedOn(
+                расчетнаяДата,
+                chunk.stream().map(DepositContract::getId).toList()
+        );
+
+        int accrued = 0;
+        for (DepositContract contract : chunk) {
+            if (alreadyAccrued.contains(contract.getId())) {
+                continue;
+            }
+            if (accrueInterestForContractInternal(contract, расчетнаяДата)) {
+                accrued++;
+            }
+        }
+
+        // Изменения порции уходят в БД, контекст персистентности освобождается
+        entityManager.flush();
+        entityManager.clear();
+
+        return accrued;
+    }
+
+    private ChunkResult accrueContractByContract(LocalDate расчетнаяДата, long afterId, long toId) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        List<Long> ids = tx.execute(status -> depositContractRepository.findIdsByStatusAndIdRange(
+                DepositContractStatus.OPEN,
+                afterId,
+                toId,
+                Limit.of(chunkSize)
+        ));
+
+        if (ids.isEmpty()) {
+            return ChunkResult.empty(afterId);
+        }
+
+        return accrueEachInOwnTransaction(расчетнаяДата, ids);
+    }
+
+    /**
+     * Поштучная обработка договоров упавшей порции: каждый договор блокируется
+     * (полоса в JVM и строка в БД) и начисляется в своей транзакции,
+     * ошибочные учитываются как failed.
+     */
+    private ChunkResult accrueEachInOwnTransaction(LocalDate расчетнаяДата, List<Long> ids) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        int accrued = 0;
+        int failed = 0;
+        List<String> errors = new ArrayList<>();
+
+        for (Long id : ids) {
+            try {
+                Boolean done = contractLocks.withLock(id, () -> tx.execute(status ->
+                        depositContractRepository.findByIdForUpdate(id)
+                                .map(contract -> accrueIfNotYetAccrued(contract, расчетнаяДата))
+                                .orElse(false)));
+                if (Boolean.TRUE.equals(done)) {
+                    accrued++;
+                }
+            } catch (RuntimeException e) {
+                failed++;
+                errors.add("Договор id=" + id + ": " + e.getMessage());
+            }
+        }
+
+        return new ChunkResult(ids.get(ids.size() - 1), ids.size(), accrued, failed, errors);
+    }
+
+    private AccrualCheckpoint startOrResumeCheckpoint(LocalDate расчетнаяДата) {
+        AccrualCheckpoint checkpoint = accrualCheckpointRepository.findByAccrualDate(расчетнаяДата)
+                .orElseGet(() -> AccrualCheckpoint.builder()
+                        .accrualDate(расчетнаяДата)
+                        .completed(true)
+                        .build());
+
+        // Завершённый (или новый) прогон начинаем сначала: повторное начисление
+        // за ту же дату всё равно отсекается пробой по (contract_id, accrual_date).
+        if (Boolean.TRUE.equals(checkpoint.getCompleted())) {
+            checkpoint.setLastContractId(0L);
+            checkpoint.setProcessedCount(0);
+            checkpoint.setAccruedCount(0);
+            checkpoint.setFailedCount(0);
+            checkpoint.setCompleted(false);
+        }
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+
+        return accrualCheckpointRepository.save(checkpoint);
+    }
+
+    private void saveCheckpoint(LocalDate расчетнаяДата, ChunkResult result) {
+        if (result.processed() == 0) {
+            return;
+        }
+
+        AccrualCheckpoint checkpoint = accrualCheckpointRepository.findByAccrualDate(расчетнаяДата)
+                .orElseThrow(() -> new EntityNotFoundException(
+                        "Контрольная точка начисления на " + расчетнаяДата + " не найдена"));
+        checkpoint.setLastContractId(result.lastContractId());
+        checkpoint.setProcessedCount(checkpoint.getProcessedCount() + result.processed());
+        checkpoint.setAccruedCount(checkpoint.getAccruedCount() + result.accrued());
+        checkpoint.setFailedCount(checkpoint.getFailedCount() + result.failed());
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        accrualCheckpointRepository.save(checkpoint);
+    }
+
+    private void completeCheckpoint(LocalDate расчетнаяДата) {
+        accrualCheckpointRepository.findByAccrualDate(расчетнаяДата).ifPresent(checkpoint -> {
+            checkpoint.setCompleted(true);
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+            accrualCheckpointRepository.save(checkpoint);
+        });
+    }
+
+    private record ChunkResult(long lastContractId, int processed, int accrued, int failed, List<String> errors) {
+
+        static ChunkResult empty(long afterId) {
+            return new ChunkResult(afterId, 0, 0, 0, List.of());
+        }
+
+        AccrualRunReport toReport(LocalDate accrualDate) {
+            return new AccrualRunReport(accrualDate, processed, accrued, failed, errors);
+        }
+    }
+
+    // -------------------- Начисление по договору --------------------
+
+    private boolean accrueIfNotYetAccrued(DepositContract contract, LocalDate расчетнаяДата) {
+        if (contract.getStatus() != DepositContractStatus.OPEN) {
+            return false;
+        }
+        if (depositOperationRepository.existsByContractIdAndAccrualDate(contract.getId(), расчетнаяДата)) {
+            return false;
+        }
         return accrueInterestForContractInternal(contract, расчетнаяДата);
     }
 
@@ -97,14 +585,17 @@ public class InterestAccrualService {
             return false;
         }
 
-        BigDecimal interest = calculateDailyInterest(balance, rate, days);
+        DepositProduct product = contract.getProduct();
+        boolean capitalization = product != null && Boolean.TRUE.equals(product.getCapitalization());
+
+        BigDecimal interest = capitalization
+                ? calculateCompoundInterest(balance, rate, days)
+                : calculateDailyInterest(balance, rate, days);
 
         if (interest.compareTo(BigDecimal.ZERO) <= 0) {
             return false;
         }
 
-        DepositProduct product = contract.getProduct();
-
         // В учебной модели добавим к балансу в любом случае
         contract.setCurrentBalance(balance.add(interest));
 
@@ -112,34 +603,26 @@ public class InterestAccrualService {
 
         String desc = "Автоначисление процентов за " + days + " дн.";
 
-        depositOperationService.createOperation(
+        depositOperationService.createAccrualOperation(
                 saved,
-                DepositOperationType.INTEREST_ACCRUAL,
                 interest,
-                product != null && Boolean.TRUE.equals(product.getCapitalization())
+                capitalization
                         ? desc + " (капитализация)"
                         : desc,
-                LocalDateTime.of(расчетнаяДата, java.time.LocalTime.of(12, 0))
+                расчетнаяДата,
+                accrualDateTime(расчетнаяДата)
         );
 
         return true;
     }
 
+    /**
+     * Базовая дата начисления берётся из отметки на договоре (O(1)),
+     * история операций не читается.
+     */
     private LocalDate resolveLastAccrualBaseDate(DepositContract contract) {
-        List<DepositOperation> ops = depositOperationService.getOperationsByContract(contract.getId());
-
-        LocalDateTime lastAccrual = null;
-
-        for (int i = ops.size() - 1; i >= 0; i--) {
-            DepositOperation op = ops.get(i);
-            if (op.getType() == DepositOperationType.INTEREST_ACCRUAL) {
-                lastAccrual = op.getOperationDateTime();
-                break;
-            }
-        }
-
-        if (lastAccrual != null) {
-            return lastAccrual.toLocalDate();
+        if (contract.getAccruedThroughDate() != null) {
+            return contract.getAccruedThroughDate();
         }
 
         if (contract.getOpenDate() != null) {
@@ -149,17 +632,50 @@ public class InterestAccrualService {
         return LocalDate.now();
     }
 
+    /**
+     * Время, которым датируется операция автоначисления.
+     */
+    private LocalDateTime accrualDateTime(LocalDate расчетнаяДата) {
+        return LocalDateTime.of(расчетнаяДата, LocalTime.of(12, 0));
+    }
+
+    /**
+     * interest = balance * round(rate/100, 10) * round(days/365, 10), HALF_UP до копеек.
+     * Считается в фиксированной точке на long (см. FixedPointMoney), результат
+     * совпадает с BigDecimal-расчётом до копейки. Суммы вне диапазона long
+     * копеек считаются через BigDecimal.
+     */
     private BigDecimal calculateDailyInterest(BigDecimal balance, BigDecimal rate, long days) {
-        // interest = balance * rate/100 * days/365
+        try {
+            long interestMinor = FixedPointMoney.simpleInterest(
+                    FixedPointMoney.toMinorUnits(balance),
+                    FixedPointMoney.scaleRate(rate),
+                    FixedPointMoney.dayFraction(days),
+                    RoundingMode.HALF_UP
+            );
+            return FixedPointMoney.fromMinorUnits(interestMinor);
+        } catch (ArithmeticException e) {
+            return calculateDailyInterestExact(balance, rate, days);
+        }
+    }
+
+    /**
+     * Сложные проценты с ежедневной капитализацией:
+     * interest = round(balance * (1 + rate/100/365)^days, 2) - balance, HALF_UP.
+     */
+    private BigDecimal calculateCompoundInterest(BigDecimal balance, BigDecimal rate, long days) {
+        BigDecimal factor = compoundingFactorCache.factor(rate, days);
+        return normalizeMoney(balance.multiply(factor)).subtract(balance);
+    }
+
+    private BigDecimal calculateDailyInterestExact(BigDecimal balance, BigDecimal rate, long days) {
         BigDecimal годоваяДоля = rate
-                .divide(BigDecimal.valueOf(100), 10, RoundingMode.HALF_UP);
+                .divide(BigDecimal.valueOf(100), FixedPointMoney.FACTOR_SCALE, RoundingMode.HALF_UP);
 
         BigDecimal dayFraction = BigDecimal.valueOf(days)
-                .divide(BigDecimal.valueOf(365), 10, RoundingMode.HALF_UP);
-
-        BigDecimal interest = balance.multiply(годоваяДоля).multiply(dayFraction);
+                .divide(BigDecimal.valueOf(FixedPointMoney.DAYS_IN_YEAR), FixedPointMoney.FACTOR_SCALE, RoundingMode.HALF_UP);
 
-        return normalizeMoney(interest);
+        return normalizeMoney(balance.multiply(годоваяДоля).multiply(dayFraction));
     }
 
     private BigDecimal normalizeMoney(BigDecimal v) {
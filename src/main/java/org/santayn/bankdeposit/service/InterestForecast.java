@@ -0,0 +1,26 @@
+package org.santayn.bankdeposit.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+
+/**
+ * Прогноз начисленных процентов на дату (без записи в БД).
+ *
+ * @param horizonDate      дата, до которой выполнен прогноз
+ * @param contractsCount   сколько OPEN-договоров учтено
+ * @param totalInterest    сумма процентов по всем договорам
+ * @param byProduct        проценты в разрезе продуктов (id продукта -> сумма)
+ * @param byCustomer       проценты в разрезе клиентов (id клиента -> сумма)
+ * @param byMonth          проценты в разрезе месяцев начисления
+ */
+public record InterestForecast(
+        LocalDate horizonDate,
+        long contractsCount,
+        BigDecimal totalInterest,
+        Map<Long, BigDecimal> byProduct,
+        Map<Long, BigDecimal> byCustomer,
+        Map<YearMonth, BigDecimal> byMonth
+) {
+}
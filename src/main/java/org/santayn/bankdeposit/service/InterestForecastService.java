@@ -0,0 +1,183 @@
+package org.santayn.bankdeposit.service;
+
+import lombok.RequiredArgsConstructor;
+import org.santayn.bankdeposit.models.DepositContractStatus;
+import org.santayn.bankdeposit.repository.ContractInterestRow;
+import org.santayn.bankdeposit.repository.DepositContractRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+/**
+ * Прогноз процентов ("сколько будем должны к дате X") без записи в БД.
+ *
+ * Логика:
+ * - OPEN-договоры читаются потоком по диапазонам id, параллельно,
+ *   только нужные поля (без сущностей), в read-only транзакциях
+ * - период от accruedThroughDate (иначе даты открытия) до даты прогноза
+ *   режется по календарным месяцам: прогноз предполагает начисление
+ *   на конец каждого месяца и на дату прогноза
+ * - проценты за каждый отрезок считаются так же, как в InterestAccrualService
+ *   (FixedPointMoney, HALF_UP до копеек); для продуктов с капитализацией —
+ *   сложные (множитель из CompoundingFactorCache), иначе простые
+ * - как и в InterestAccrualService, начисленное за отрезок прибавляется
+ *   к остатку для всех продуктов, поэтому база следующего отрезка растёт
+ * - результат агрегируется по продуктам, клиентам и месяцам
+ */
+@Service
+@RequiredArgsConstructor
+public class InterestForecastService {
+
+    private final DepositContractRepository depositContractRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final BatchParallelism batchParallelism;
+    private final CompoundingFactorCache compoundingFactorCache;
+
+    public InterestForecast forecast(LocalDate horizonDate) {
+        if (horizonDate == null) {
+            throw new InvalidOperationException("Не указана дата прогноза");
+        }
+
+        List<DepositContractRepository.IdRange> ranges = depositContractRepository.findIdRangesByStatus(
+                DepositContractStatus.OPEN.name(),
+                batchParallelism.workerCount()
+        );
+
+        Totals totals = new Totals();
+
+        if (!ranges.isEmpty()) {
+            ExecutorService executor = batchParallelism.newExecutor("forecast-worker-", ranges.size());
+            try {
+                List<CompletableFuture<Totals>> futures = ranges.stream()
+                        .map(range -> CompletableFuture.supplyAsync(
+                                () -> forecastRange(horizonDate, range.getFromId(), range.getToId()),
+                                executor
+                        ))
+                        .toList();
+
+                for (CompletableFuture<Totals> future : futures) {
+                    totals.merge(future.join());
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        return new InterestForecast(
+                horizonDate,
+                totals.contracts,
+                FixedPointMoney.fromMinorUnits(totals.total),
+                toMoney(totals.byProduct, new HashMap<>()),
+                toMoney(totals.byCustomer, new HashMap<>()),
+                toMoney(totals.byMonth, new TreeMap<>())
+        );
+    }
+
+    private Totals forecastRange(LocalDate horizonDate, long fromId, long toId) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(true);
+
+        return tx.execute(status -> {
+            Totals totals = new Totals();
+            try (Stream<ContractInterestRow> rows = depositContractRepository.streamInterestRowsByStatusAndIdRange(
+                    DepositContractStatus.OPEN,
+                    fromId,
+                    toId
+            )) {
+                rows.forEach(row -> forecastContract(row, horizonDate, totals));
+            }
+            return totals;
+        });
+    }
+
+    private void forecastContract(ContractInterestRow row, LocalDate horizonDate, Totals totals) {
+        totals.contracts++;
+
+        long principal = FixedPointMoney.toMinorUnits(row.balance());
+        long rate = FixedPointMoney.scaleRate(row.interestRate());
+        LocalDate start = row.baseDate() != null ? row.baseDate() : LocalDate.now();
+
+        if (principal <= 0 || rate <= 0 || !start.isBefore(horizonDate)) {
+            return;
+        }
+
+        boolean capitalization = Boolean.TRUE.equals(row.capitalization());
+        long contractInterest = 0;
+
+        while (start.isBefore(horizonDate)) {
+            // Отрезок (start; end] целиком лежит в одном календарном месяце
+            YearMonth month = YearMonth.from(start.plusDays(1));
+            LocalDate end = month.atEndOfMonth().isBefore(horizonDate) ? month.atEndOfMonth() : horizonDate;
+
+            long days = ChronoUnit.DAYS.between(start, end);
+            long interest = capitalization
+                    ? compoundInterest(principal, row.interestRate(), days)
+                    : FixedPointMoney.simpleInterest(
+                            principal,
+                            rate,
+                            FixedPointMoney.dayFraction(days),
+                            RoundingMode.HALF_UP
+                    );
+
+            if (interest > 0) {
+                totals.byMonth.merge(month, interest, Long::sum);
+                contractInterest += interest;
+                principal += interest;
+            }
+
+            start = end;
+        }
+
+        if (contractInterest > 0) {
+            totals.total += contractInterest;
+            totals.byProduct.merge(row.productId(), contractInterest, Long::sum);
+            totals.byCustomer.merge(row.customerId(), contractInterest, Long::sum);
+        }
+    }
+
+    /**
+     * Сложные проценты за days дней в копейках, как в InterestAccrualService.
+     */
+    private long compoundInterest(long principal, BigDecimal percentRate, long days) {
+        BigDecimal factor = compoundingFactorCache.factor(percentRate, days);
+        return FixedPointMoney.toMinorUnits(FixedPointMoney.fromMinorUnits(principal).multiply(factor)) - principal;
+    }
+
+    private <K> Map<K, BigDecimal> toMoney(Map<K, Long> minorUnits, Map<K, BigDecimal> target) {
+        minorUnits.forEach((key, value) -> target.put(key, FixedPointMoney.fromMinorUnits(value)));
+        return target;
+    }
+
+    /**
+     * Промежуточные суммы одного рабочего потока (в копейках).
+     */
+    private static final class Totals {
+
+        private long contracts;
+        private long total;
+        private final Map<Long, Long> byProduct = new HashMap<>();
+        private final Map<Long, Long> byCustomer = new HashMap<>();
+        private final Map<YearMonth, Long> byMonth = new HashMap<>();
+
+        private void merge(Totals other) {
+            contracts += other.contracts;
+            total += other.total;
+            other.byProduct.forEach((key, value) -> byProduct.merge(key, value, Long::sum));
+            other.byCustomer.forEach((key, value) -> byCustomer.merge(key, value, Long::sum));
+            other.byMonth.forEach((key, value) -> byMonth.merge(key, value, Long::sum));
+        }
+    }
+}
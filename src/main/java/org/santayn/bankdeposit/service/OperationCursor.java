@@ -0,0 +1,22 @@
+package org.santayn.bankdeposit.service;
+
+import org.santayn.bankdeposit.repository.OperationRow;
+
+import java.time.LocalDateTime;
+
+/**
+ * Позиция в истории операций договора: последняя отданная операция.
+ * Следующая страница начинается строго после неё.
+ *
+ * @param operationDateTime дата и время операции
+ * @param id                id операции (различает операции с одинаковым временем)
+ */
+public record OperationCursor(
+        LocalDateTime operationDateTime,
+        Long id
+) {
+
+    public static OperationCursor of(OperationRow operation) {
+        return new OperationCursor(operation.operationDateTime(), operation.id());
+    }
+}
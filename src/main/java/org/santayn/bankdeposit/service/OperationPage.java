@@ -0,0 +1,25 @@
+package org.santayn.bankdeposit.service;
+
+import org.santayn.bankdeposit.repository.OperationRow;
+
+import java.util.List;
+
+/**
+ * Страница истории операций договора (от новых к старым).
+ *
+ * @param operations операции страницы
+ * @param nextCursor курсор следующей страницы; null, если история исчерпана
+ */
+public record OperationPage(
+        List<OperationRow> operations,
+        OperationCursor nextCursor
+) {
+
+    public OperationPage {
+        operations = List.copyOf(operations);
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
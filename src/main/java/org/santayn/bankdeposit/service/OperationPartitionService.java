@@ -0,0 +1,52 @@
+package org.santayn.bankdeposit.service;
+
+import lombok.RequiredArgsConstructor;
+import org.santayn.bankdeposit.repository.DepositOperationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+/**
+ * Помесячные секции таблицы операций (deposit_operations секционирована
+ * по operation_datetime).
+ *
+ * Секции создаются заранее: текущий месяц и monthsAhead следующих.
+ * Операции за месяц без секции попадают в секцию по умолчанию
+ * и переносятся в свою, когда та будет создана.
+ */
+@Service
+@RequiredArgsConstructor
+public class OperationPartitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OperationPartitionService.class);
+
+    private final DepositOperationRepository depositOperationRepository;
+
+    /**
+     * На сколько месяцев вперёд держать готовые секции.
+     */
+    @Value("${bankdeposit.operations.partitions-ahead:12}")
+    private int monthsAhead;
+
+    /**
+     * Создаёт недостающие секции от месяца date на monthsAhead месяцев вперёд.
+     *
+     * @return число созданных секций
+     */
+    @Transactional
+    public int ensurePartitions(LocalDate date) {
+        if (date == null) {
+            throw new InvalidOperationException("Не указан месяц секций операций");
+        }
+
+        int created = depositOperationRepository.ensureMonthlyPartitions(date, Math.max(0, monthsAhead) + 1);
+        if (created > 0) {
+            logger.info("Созданы секции операций: {} (с {})", created, date.withDayOfMonth(1));
+        }
+        return created;
+    }
+}
@@ -0,0 +1,18 @@
+package org.santayn.bankdeposit.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Остаток портфеля вкладов на конец дня.
+ *
+ * @param asOf          день, на конец которого посчитан остаток
+ * @param contractCount сколько договоров было открыто на эту дату
+ * @param totalBalance  сумма их остатков
+ */
+public record PortfolioBalance(
+        LocalDate asOf,
+        long contractCount,
+        BigDecimal totalBalance
+) {
+}
@@ -0,0 +1,331 @@
+package org.santayn.bankdeposit.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.santayn.bankdeposit.models.DepositContract;
+import org.santayn.bankdeposit.models.DepositOperationType;
+import org.santayn.bankdeposit.repository.DepositContractRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Асинхронный конвейер проводок пополнения/снятия с групповой фиксацией.
+ *
+ * Вызывающий код кладёт проводку в ограниченную очередь и сразу получает
+ * CompletableFuture с остатком после проводки. Писатель (один поток)
+ * собирает из очереди пачку — до batchSize проводок или пока не истечёт
+ * lingerMs с первой — и проводит её одной транзакцией: проводки
+ * упорядочиваются по договору (порядок внутри договора сохраняется),
+ * каждая выполняется условным UPDATE + INSERT (postBalanceChange).
+ * Future завершаются только после фиксации транзакции.
+ *
+ * Пачка пишется под блокировками всех её договоров (ContractLockManager)
+ * и через PostingRetry — так же, как прямые проводки DepositContractService,
+ * поэтому с ними она не пересекается.
+ *
+ * На первой проводке договора, не прошедшей условия, пачка по этому договору
+ * останавливается: она и все следующие проводки договора проводятся после
+ * фиксации поштучно через DepositContractService, по порядку подачи и под
+ * теми же блокировками. Так отказ (например, нехватка средств) не «спасается»
+ * более поздним пополнением, а вызывающий получает тот же результат или
+ * ту же ошибку, что и при прямом вызове. Пачка, упавшая целиком, проводится
+ * поштучно так же.
+ *
+ * Если очередь заполнена, submit ждёт освобождения места не дольше
+ * offerTimeoutMs, после чего отклоняет проводку.
+ *
+ * Конвейер подключается явно: экраны UI проводят операции напрямую
+ * через DepositContractService, конвейер нужен источникам пачек проводок.
+ */
+@Component
+@RequiredArgsConstructor
+public class PostingPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostingPipeline.class);
+
+    private final DepositContractRepository depositContractRepository;
+    private final DepositContractService depositContractService;
+    private final ContractLockManager contractLocks;
+    private final PostingRetry postingRetry;
+
+    /**
+     * Максимум проводок в одной транзакции.
+     */
+    @Value("${bankdeposit.posting.pipeline.batch-size:200}")
+    private int batchSize;
+
+    /**
+     * Сколько ждать добора пачки после первой проводки, мс.
+     */
+    @Value("${bankdeposit.posting.pipeline.linger-ms:5}")
+    private long lingerMs;
+
+    /**
+     * Ёмкость очереди.
+     */
+    @Value("${bankdeposit.posting.pipeline.queue-capacity:10000}")
+    private int queueCapacity;
+
+    /**
+     * Сколько submit ждёт места в заполненной очереди, мс.
+     */
+    @Value("${bankdeposit.posting.pipeline.offer-timeout-ms:1000}")
+    private long offerTimeoutMs;
+
+    private final LongAdder postedCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private BlockingQueue<PendingPosting> queue;
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        running = true;
+        writer = new Thread(this::writeLoop, "posting-pipeline-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Останавливает приём проводок и дописывает то, что уже в очереди.
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    public CompletableFuture<BigDecimal> deposit(Long contractId, BigDecimal amount, String description) {
+        return submit(contractId, DepositOperationType.DEPOSIT, amount, description, "Пополнение вклада");
+    }
+
+    public CompletableFuture<BigDecimal> withdraw(Long contractId, BigDecimal amount, String description) {
+        return submit(contractId, DepositOperationType.WITHDRAWAL, amount, description, "Снятие средств");
+    }
+
+    public long getPostedCount() {
+        return postedCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    /**
+     * Проводки, отклонённые из-за заполненной очереди.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    // -------------------- Приём проводок --------------------
+
+    private CompletableFuture<BigDecimal> submit(
+            Long contractId,
+            DepositOperationType type,
+            BigDecimal amount,
+            String description,
+            String defaultDescription
+    ) {
+        if (contractId == null) {
+            return CompletableFuture.failedFuture(new InvalidOperationException("Не указан идентификатор договора"));
+        }
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            return CompletableFuture.failedFuture(new InvalidOperationException("Сумма должна быть больше нуля"));
+        }
+        if (!running) {
+            return CompletableFuture.failedFuture(new InvalidOperationException("Приём проводок остановлен"));
+        }
+
+        PendingPosting posting = new PendingPosting(
+                contractId,
+                type,
+                amount.setScale(2, RoundingMode.HALF_UP),
+                description != null && !description.isBlank() ? description.trim() : defaultDescription,
+                new CompletableFuture<>()
+        );
+
+        try {
+            if (!queue.offer(posting, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejectedCount.increment();
+                return CompletableFuture.failedFuture(
+                        new InvalidOperationException("Очередь проводок переполнена, повторите позже"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new InvalidOperationException("Проводка прервана"));
+        }
+
+        return posting.result();
+    }
+
+    // -------------------- Писатель --------------------
+
+    private void writeLoop() {
+        List<PendingPosting> batch = new ArrayList<>();
+
+        while (running || !queue.isEmpty()) {
+            try {
+                collectBatch(batch);
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                logger.error("Сбой конвейера проводок", e);
+                batch.forEach(p -> p.result().completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Пачка: первая проводка (ждём до 100 мс, чтобы проверять остановку),
+     * затем добор до batchSize в пределах lingerMs.
+     */
+    private void collectBatch(List<PendingPosting> batch) throws InterruptedException {
+        PendingPosting first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+
+        int limit = Math.max(1, batchSize);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+
+        while (batch.size() < limit) {
+            queue.drainTo(batch, limit - batch.size());
+            if (batch.size() >= limit) {
+                break;
+            }
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+
+            PendingPosting next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void writeBatch(List<PendingPosting> batch) {
+        // Проводки договора идут подряд в порядке подачи; List.sort устойчив
+        List<PendingPosting> ordered = new ArrayList<>(batch);
+        ordered.sort(Comparator.comparing(PendingPosting::contractId));
+
+        Set<Long> contractIds = new LinkedHashSet<>();
+        ordered.forEach(p -> contractIds.add(p.contractId()));
+
+        contractLocks.runWithLocks(contractIds, () -> writeLocked(ordered));
+    }
+
+    private void writeLocked(List<PendingPosting> ordered) {
+        BigDecimal[] balances = new BigDecimal[ordered.size()];
+
+        try {
+            postingRetry.run("Пачка проводок", null, () -> postBatch(ordered, balances));
+        } catch (RuntimeException e) {
+            logger.warn("Пачка из {} проводок не зафиксирована, проводим поштучно", ordered.size(), e);
+            ordered.forEach(this::postIndividually);
+            return;
+        }
+
+        batchCount.increment();
+
+        // По порядку: отказ и всё, что после него по тому же договору, — поштучно
+        for (int i = 0; i < ordered.size(); i++) {
+            PendingPosting p = ordered.get(i);
+            if (balances[i] != null) {
+                postedCount.increment();
+                p.result().complete(balances[i]);
+            } else {
+                postIndividually(p);
+            }
+        }
+    }
+
+    /**
+     * Проводит пачку в текущей транзакции; по договору с отказом дальше не идёт.
+     * balances[i] — остаток после проводки или null, если она не проведена.
+     */
+    private void postBatch(List<PendingPosting> ordered, BigDecimal[] balances) {
+        Arrays.fill(balances, null);
+        LocalDateTime now = LocalDateTime.now();
+        Long stopped = null;
+
+        for (int i = 0; i < ordered.size(); i++) {
+            PendingPosting p = ordered.get(i);
+            if (p.contractId().equals(stopped)) {
+                continue;
+            }
+
+            DepositContractRepository.PostingResult result = depositContractRepository.postBalanceChange(
+                    p.contractId(),
+                    p.type() == DepositOperationType.WITHDRAWAL ? p.amount().negate() : p.amount(),
+                    true,
+                    p.type().name(),
+                    p.description(),
+                    now
+            );
+
+            if (result.isPosted()) {
+                balances[i] = result.getBalance();
+            } else {
+                stopped = p.contractId();
+            }
+        }
+    }
+
+    private void postIndividually(PendingPosting p) {
+        try {
+            DepositContract contract = p.type() == DepositOperationType.WITHDRAWAL
+                    ? depositContractService.withdraw(p.contractId(), p.amount(), p.description())
+                    : depositContractService.deposit(p.contractId(), p.amount(), p.description());
+            postedCount.increment();
+            p.result().complete(contract.getCurrentBalance());
+        } catch (RuntimeException e) {
+            p.result().completeExceptionally(e);
+        }
+    }
+
+    private record PendingPosting(
+            Long contractId,
+            DepositOperationType type,
+            BigDecimal amount,
+            String description,
+            CompletableFuture<BigDecimal> result
+    ) {
+    }
+}
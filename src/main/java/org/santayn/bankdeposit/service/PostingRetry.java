@@ -0,0 +1,158 @@
+package org.santayn.bankdeposit.service;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Повтор проводок по договору при конфликте оптимистической блокировки.
+ *
+ * Каждая попытка выполняется в своей транзакции; при конфликте версии
+ * транзакция откатывается, и после паузы со случайной составляющей
+ * (full jitter, экспоненциально растущий потолок) проводка повторяется
+ * на свежих данных. Число попыток ограничено.
+ *
+ * Если вызов уже идёт внутри чужой транзакции, повтор невозможен
+ * (она всё равно будет откачена) — действие выполняется один раз.
+ *
+ * Счётчики конфликтов и повторов по операциям и договорам показывают,
+ * где возникает конкуренция.
+ */
+@Component
+@RequiredArgsConstructor
+public class PostingRetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostingRetry.class);
+
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Максимальное число попыток одной проводки (включая первую).
+     */
+    @Value("${bankdeposit.posting.retry.max-attempts:5}")
+    private int maxAttempts;
+
+    /**
+     * Потолок паузы перед первым повтором, мс; удваивается с каждой попыткой.
+     */
+    @Value("${bankdeposit.posting.retry.base-backoff-ms:10}")
+    private long baseBackoffMs;
+
+    /**
+     * Предельная пауза между попытками, мс.
+     */
+    @Value("${bankdeposit.posting.retry.max-backoff-ms:200}")
+    private long maxBackoffMs;
+
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final Map<String, LongAdder> conflictsByOperation = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> conflictsByContract = new ConcurrentHashMap<>();
+
+    /**
+     * Выполняет проводку с повтором при конфликте версии.
+     *
+     * @param operation  название операции (для сообщений и счётчиков)
+     * @param contractId договор, по которому идёт проводка (для счётчиков)
+     */
+    public <T> T execute(String operation, Long contractId, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int attempts = Math.max(1, maxAttempts);
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return tx.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException e) {
+                recordConflict(operation, contractId);
+
+                if (attempt >= attempts) {
+                    exhausted.increment();
+                    logger.warn("{}: конфликт версий не разрешён за {} попыток", operation, attempts);
+                    throw new InvalidOperationException(
+                            operation + ": договор одновременно изменяется другими операциями, повторите позже");
+                }
+
+                retries.increment();
+                pause(attempt);
+            }
+        }
+    }
+
+    public void run(String operation, Long contractId, Runnable action) {
+        execute(operation, contractId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public long getConflictCount() {
+        return conflicts.sum();
+    }
+
+    public long getRetryCount() {
+        return retries.sum();
+    }
+
+    /**
+     * Сколько проводок так и не прошли после всех попыток.
+     */
+    public long getExhaustedCount() {
+        return exhausted.sum();
+    }
+
+    public Map<String, Long> getConflictsByOperation() {
+        return snapshot(conflictsByOperation);
+    }
+
+    /**
+     * Конфликты по id договоров — «горячие» счета.
+     */
+    public Map<Long, Long> getConflictsByContract() {
+        return snapshot(conflictsByContract);
+    }
+
+    private void recordConflict(String operation, Long contractId) {
+        conflicts.increment();
+        conflictsByOperation.computeIfAbsent(operation, key -> new LongAdder()).increment();
+
+        if (contractId != null) {
+            conflictsByContract.computeIfAbsent(contractId, key -> new LongAdder()).increment();
+        }
+    }
+
+    private void pause(int attempt) {
+        long ceiling = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(Math.max(1, ceiling) + 1);
+
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InvalidOperationException("Проводка прервана");
+        }
+    }
+
+    private <K> Map<K, Long> snapshot(Map<K, LongAdder> counters) {
+        Map<K, Long> result = new HashMap<>();
+        counters.forEach((key, value) -> result.put(key, value.sum()));
+        return result;
+    }
+}
@@ -0,0 +1,379 @@
+package org.santayn.bankdeposit.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.santayn.bankdeposit.models.DepositOperationType;
+import org.santayn.bankdeposit.repository.ContractRow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фоновое построение отчётов в файлы.
+ *
+ * Задания ставятся в ограниченную очередь и выполняются пулом из workers
+ * потоков; при заполненной очереди задание сразу отклоняется. Задание
+ * считает записанные строки и может быть отменено: ожидающее снимается
+ * с очереди, выполняющееся останавливается на следующей строке.
+ *
+ * Готовые файлы лежат во временном каталоге retentionMinutes после
+ * завершения задания; просроченные задания и их файлы удаляются при
+ * постановке новых, файлы прошлых запусков — при старте.
+ *
+ * UI опрашивает состояние через getJob и забирает файл через saveResult.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobService.class);
+
+    private static final String FILE_PREFIX = "report-";
+    private static final String FILE_SUFFIX = ".xlsx";
+
+    private final ReportService reportService;
+
+    /**
+     * Сколько отчётов строится одновременно (каждый держит соединение с БД).
+     */
+    @Value("${bankdeposit.report.jobs.workers:2}")
+    private int workers;
+
+    /**
+     * Сколько заданий может ждать в очереди.
+     */
+    @Value("${bankdeposit.report.jobs.queue-capacity:20}")
+    private int queueCapacity;
+
+    /**
+     * Каталог файлов отчётов.
+     */
+    @Value("${bankdeposit.report.jobs.directory:${java.io.tmpdir}/bankdeposit-reports}")
+    private String directory;
+
+    /**
+     * Сколько минут хранить завершённое задание и его файл.
+     */
+    @Value("${bankdeposit.report.jobs.retention-minutes:120}")
+    private long retentionMinutes;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<Long, ReportJob> jobs = new ConcurrentHashMap<>();
+
+    private Path store;
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() throws IOException {
+        store = Files.createDirectories(Path.of(directory));
+        deleteStaleFiles();
+
+        int threads = Math.max(1, workers);
+        executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                new CustomizableThreadFactory("report-job-")
+        );
+    }
+
+    /**
+     * Останавливает выполняющиеся отчёты; ожидающие не запускаются.
+     */
+    @PreDestroy
+    void stop() {
+        jobs.values().forEach(ReportJob::cancel);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Экспорт операций за период (клиент и тип могут быть null) в Excel.
+     */
+    public ReportJobStatus submitOperationsExport(
+            Long customerId,
+            LocalDate fromDate,
+            LocalDate toDate,
+            DepositOperationType type
+    ) {
+        if (fromDate == null || toDate == null) {
+            throw new InvalidOperationException("Для экспорта операций требуется указать период (дату с/по)");
+        }
+        if (toDate.isBefore(fromDate)) {
+            throw new InvalidOperationException("Дата 'по' не может быть раньше даты 'с'");
+        }
+
+        return submit(
+                "Операции за " + fromDate + " — " + toDate,
+                "report_operations_" + LocalDate.now() + FILE_SUFFIX,
+                (file, progress) -> reportService.exportOperationsByParamsToExcel(
+                        customerId, fromDate, toDate, type, file, progress)
+        );
+    }
+
+    /**
+     * Экспорт договоров клиента (всех или только активных) в Excel.
+     */
+    public ReportJobStatus submitContractsExport(Long customerId, boolean activeOnly) {
+        if (customerId == null) {
+            throw new InvalidOperationException("Не указан клиент");
+        }
+
+        return submit(
+                activeOnly ? "Активные вклады клиента" : "Договоры клиента",
+                "report_contracts_" + LocalDate.now() + FILE_SUFFIX,
+                (file, progress) -> {
+                    List<ContractRow> contracts = activeOnly
+                            ? reportService.getActiveContractsByCustomer(customerId)
+                            : reportService.getContractsByCustomer(customerId);
+                    reportService.exportReportsToExcel(contracts, null, file, progress);
+                }
+        );
+    }
+
+    public ReportJobStatus getJob(long jobId) {
+        return findJob(jobId).status();
+    }
+
+    /**
+     * Все хранимые задания, новые первыми.
+     */
+    public List<ReportJobStatus> getJobs() {
+        purgeExpired();
+        return jobs.values().stream()
+                .map(ReportJob::status)
+                .sorted(Comparator.comparingLong(ReportJobStatus::id).reversed())
+                .toList();
+    }
+
+    /**
+     * Отменяет задание; false — задание уже завершено.
+     */
+    public boolean cancel(long jobId) {
+        ReportJob job = findJob(jobId);
+        if (!job.cancel()) {
+            return false;
+        }
+
+        Future<?> future = job.future;
+        if (future != null && future.cancel(false)) {
+            executor.purge();
+        }
+        return true;
+    }
+
+    /**
+     * Копирует готовый файл отчёта в target.
+     */
+    public void saveResult(long jobId, File target) {
+        if (target == null) {
+            throw new InvalidOperationException("Не указан файл для экспорта");
+        }
+
+        ReportJob job = findJob(jobId);
+        Path file = job.resultFile();
+        if (file == null) {
+            throw new InvalidOperationException("Отчёт ещё не готов");
+        }
+
+        try {
+            Files.copy(file, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new InvalidOperationException("Ошибка сохранения отчёта: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Ставит в очередь произвольное построение отчёта в файл.
+     */
+    ReportJobStatus submit(String title, String fileName, ReportTask task) {
+        purgeExpired();
+
+        ReportJob job = new ReportJob(sequence.incrementAndGet(), title, fileName);
+        jobs.put(job.id, job);
+
+        try {
+            job.future = executor.submit(() -> execute(job, task));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw new InvalidOperationException("Очередь отчётов заполнена, повторите позже");
+        }
+
+        return job.status();
+    }
+
+    private void execute(ReportJob job, ReportTask task) {
+        if (!job.start()) {
+            return;
+        }
+
+        Path file = null;
+        try {
+            file = Files.createTempFile(store, FILE_PREFIX + job.id + "-", FILE_SUFFIX);
+            task.run(file.toFile(), job::rowWritten);
+            job.finish(ReportJobState.COMPLETED, file, null);
+
+        } catch (CancellationException e) {
+            deleteQuietly(file);
+            job.finish(ReportJobState.CANCELLED, null, null);
+
+        } catch (Exception e) {
+            deleteQuietly(file);
+            logger.warn("Отчёт '{}' (задание {}) не построен", job.title, job.id, e);
+            job.finish(ReportJobState.FAILED, null, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    private ReportJob findJob(long jobId) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new EntityNotFoundException("Задание отчёта не найдено: id=" + jobId);
+        }
+        return job;
+    }
+
+    private void purgeExpired() {
+        LocalDateTime border = LocalDateTime.now().minusMinutes(retentionMinutes);
+
+        jobs.values().removeIf(job -> {
+            if (!job.isFinishedBefore(border)) {
+                return false;
+            }
+            deleteQuietly(job.resultFile());
+            return true;
+        });
+    }
+
+    /**
+     * Файлы прошлых запусков недоступны (задания хранятся в памяти);
+     * удаляются те, что старше срока хранения.
+     */
+    private void deleteStaleFiles() throws IOException {
+        FileTime border = FileTime.from(Instant.now().minus(Duration.ofMinutes(retentionMinutes)));
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(store, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).compareTo(border) < 0) {
+                    deleteQuietly(file);
+                }
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Не удалось удалить файл отчёта {}", file, e);
+        }
+    }
+
+    /**
+     * Построение отчёта в заданный файл.
+     */
+    @FunctionalInterface
+    interface ReportTask {
+
+        void run(File file, ReportProgress progress);
+    }
+
+    private static final class ReportJob {
+
+        private final long id;
+        private final String title;
+        private final String fileName;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final AtomicLong rows = new AtomicLong();
+
+        private volatile boolean cancelRequested;
+        private volatile Future<?> future;
+
+        private ReportJobState state = ReportJobState.QUEUED;
+        private Path file;
+        private String error;
+        private LocalDateTime finishedAt;
+
+        ReportJob(long id, String title, String fileName) {
+            this.id = id;
+            this.title = title;
+            this.fileName = fileName;
+        }
+
+        synchronized boolean start() {
+            if (state != ReportJobState.QUEUED) {
+                return false;
+            }
+            state = ReportJobState.RUNNING;
+            return true;
+        }
+
+        void rowWritten() {
+            if (cancelRequested) {
+                throw new CancellationException("Отчёт отменён");
+            }
+            rows.incrementAndGet();
+        }
+
+        synchronized boolean cancel() {
+            if (state == ReportJobState.QUEUED) {
+                state = ReportJobState.CANCELLED;
+                finishedAt = LocalDateTime.now();
+                return true;
+            }
+            if (state == ReportJobState.RUNNING) {
+                cancelRequested = true;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void finish(ReportJobState state, Path file, String error) {
+            this.state = state;
+            this.file = file;
+            this.error = error;
+            this.finishedAt = LocalDateTime.now();
+        }
+
+        synchronized Path resultFile() {
+            return state == ReportJobState.COMPLETED ? file : null;
+        }
+
+        synchronized boolean isFinishedBefore(LocalDateTime border) {
+            return finishedAt != null && finishedAt.isBefore(border);
+        }
+
+        synchronized ReportJobStatus status() {
+            return new ReportJobStatus(id, title, state, rows.get(), fileName, error, createdAt, finishedAt);
+        }
+    }
+}
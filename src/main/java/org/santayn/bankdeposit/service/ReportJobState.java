@@ -0,0 +1,36 @@
+package org.santayn.bankdeposit.service;
+
+/**
+ * Состояние фонового задания отчёта.
+ */
+public enum ReportJobState {
+
+    /**
+     * Задание ждёт свободного потока в очереди.
+     */
+    QUEUED,
+
+    /**
+     * Отчёт строится.
+     */
+    RUNNING,
+
+    /**
+     * Файл отчёта готов.
+     */
+    COMPLETED,
+
+    /**
+     * Построение остановлено ошибкой.
+     */
+    FAILED,
+
+    /**
+     * Задание отменено пользователем.
+     */
+    CANCELLED;
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == FAILED || this == CANCELLED;
+    }
+}
@@ -0,0 +1,31 @@
+package org.santayn.bankdeposit.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Снимок состояния фонового задания отчёта.
+ *
+ * @param id            номер задания
+ * @param title         описание отчёта для UI
+ * @param state         состояние
+ * @param rowsProcessed сколько строк отчёта уже записано
+ * @param fileName      предлагаемое имя файла при сохранении
+ * @param error         текст ошибки (для FAILED)
+ * @param createdAt     когда задание поставлено в очередь
+ * @param finishedAt    когда задание завершилось (null, пока не завершено)
+ */
+public record ReportJobStatus(
+        long id,
+        String title,
+        ReportJobState state,
+        long rowsProcessed,
+        String fileName,
+        String error,
+        LocalDateTime createdAt,
+        LocalDateTime finishedAt
+) {
+
+    public boolean isFinished() {
+        return state.isFinished();
+    }
+}
@@ -0,0 +1,15 @@
+package org.santayn.bankdeposit.service;
+
+/**
+ * Ход построения отчёта: вызывается на каждую записанную строку.
+ *
+ * Реализация может остановить построение, выбросив CancellationException.
+ */
+@FunctionalInterface
+public interface ReportProgress {
+
+    ReportProgress NONE = () -> {
+    };
+
+    void rowWritten();
+}
@@ -0,0 +1,15 @@
+package org.santayn.bankdeposit.service;
+
+import java.util.List;
+
+/**
+ * Строки отчёта для показа на экране.
+ *
+ * @param rows      первые строки отчёта (не больше запрошенного предела)
+ * @param truncated true, если строк в отчёте больше и часть не показана
+ */
+public record ReportRows<T>(
+        List<T> rows,
+        boolean truncated
+) {
+}
@@ -1,73 +1,135 @@
 package org.santayn.bankdeposit.service;
 
 import lombok.RequiredArgsConstructor;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.santayn.bankdeposit.models.Customer;
-import org.santayn.bankdeposit.models.DepositContract;
 import org.santayn.bankdeposit.models.DepositContractStatus;
-import org.santayn.bankdeposit.models.DepositOperation;
 import org.santayn.bankdeposit.models.DepositOperationType;
-import org.santayn.bankdeposit.models.DepositProduct;
+import org.santayn.bankdeposit.repository.ContractRow;
 import org.santayn.bankdeposit.repository.CustomerRepository;
+import org.santayn.bankdeposit.repository.DepositContractRepository;
 import org.santayn.bankdeposit.repository.DepositOperationRepository;
+import org.santayn.bankdeposit.repository.OperationRow;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
 
 /**
  * Сервис для построения отчётов по вкладам и операциям.
  *
+ * Отчёты отдают неизменяемые записи ContractRow / OperationRow, заполняемые
+ * запросами только по выводимым колонкам: сущности, прокси и проверка
+ * изменений (dirty checking) на путях чтения не участвуют.
+ *
  * Дополнительно:
- * - Экспорт отчётов в Excel (.xlsx) через Apache POI.
+ * - Экспорт отчётов в Excel (.xlsx) через Apache POI, потоково (SXSSF).
+ * - Выгрузка операций для хранилища данных в CSV / NDJSON (опционально gzip)
+ *   через FileChannel (FeedExportWriter).
+ * - Договоры и операции, перенесённые в архив, входят в отчёты,
+ *   если период отчёта затрагивает архив (ContractArchiveService).
  */
 @Service
 @RequiredArgsConstructor
 public class ReportService {
 
+    /**
+     * Колонки выгрузки операций (шапка CSV и ключи NDJSON).
+     */
+    private static final String[] FEED_COLUMNS = {
+            "id",
+            "operation_datetime",
+            "operation_type",
+            "amount",
+            "balance_after",
+            "description",
+            "contract_id",
+            "contract_number",
+            "customer_id",
+            "last_name",
+            "first_name",
+            "middle_name"
+    };
+
+    /**
+     * Порядок операций в отчётах и выгрузках — как в запросах рабочих и архивных таблиц.
+     */
+    private static final Comparator<OperationRow> CHRONOLOGICAL = Comparator
+            .comparing(OperationRow::operationDateTime, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(OperationRow::id, Comparator.nullsLast(Comparator.naturalOrder()));
+
     private final CustomerRepository customerRepository;
-    private final DepositContractService depositContractService;
+    private final DepositContractRepository depositContractRepository;
     private final DepositOperationRepository depositOperationRepository;
+    private final ContractArchiveService contractArchiveService;
+
+    /**
+     * Сколько последних строк листа Excel держать в памяти при экспорте.
+     */
+    @Value("${bankdeposit.export.excel.row-window:500}")
+    private int excelRowWindow;
+
+    /**
+     * По скольким первым строкам листа подбирается ширина колонок.
+     */
+    @Value("${bankdeposit.export.excel.width-sample-rows:1000}")
+    private int excelWidthSampleRows;
+
+    /**
+     * Размер буфера выгрузки CSV / NDJSON (КБ).
+     */
+    @Value("${bankdeposit.export.feed.buffer-kb:256}")
+    private int feedBufferKb;
 
     /**
      * Возвращает список договоров выбранного клиента.
-     * Включает как открытые, так и закрытые вклады.
+     * Включает как открытые, так и закрытые вклады, в том числе архивные.
      */
     @Transactional(readOnly = true)
-    public List<DepositContract> getContractsByCustomer(Long customerId) {
-        return depositContractService.getContractsByCustomer(customerId);
+    public List<ContractRow> getContractsByCustomer(Long customerId) {
+        List<ContractRow> archived = contractArchiveService.getContractsByCustomer(customerId);
+        List<ContractRow> live = depositContractRepository.findRowsByCustomerId(customerId, null);
+        if (archived.isEmpty()) {
+            return live;
+        }
+
+        List<ContractRow> all = new ArrayList<>(archived);
+        all.addAll(live);
+        return all;
     }
 
     /**
      * Возвращает только активные (открытые) вклады клиента.
      */
     @Transactional(readOnly = true)
-    public List<DepositContract> getActiveContractsByCustomer(Long customerId) {
-        return depositContractService.getContractsByCustomer(customerId).stream()
-                .filter(c -> c.getStatus() == DepositContractStatus.OPEN)
-                .toList();
+    public List<ContractRow> getActiveContractsByCustomer(Long customerId) {
+        if (customerId == null) {
+            throw new InvalidOperationException("Не указан клиент");
+        }
+        return depositContractRepository.findRowsByCustomerId(customerId, DepositContractStatus.OPEN);
     }
 
     /**
      * Возвращает операции по всем договорам за период [fromDate; toDate] включительно.
      */
     @Transactional(readOnly = true)
-    public List<DepositOperation> getOperationsByPeriod(LocalDate fromDate, LocalDate toDate) {
+    public List<OperationRow> getOperationsByPeriod(LocalDate fromDate, LocalDate toDate) {
         LocalDateTime from = fromDate.atStartOfDay();
         LocalDateTime to = toDate.plusDays(1).atStartOfDay().minusNanos(1);
 
-        List<DepositOperation> list = depositOperationRepository.findByOperationDateTimeBetween(from, to);
-
-        initializeContractsForUi(list);
+        List<OperationRow> list = depositOperationRepository.findRowsByPeriod(from, to);
 
-        return list;
+        return withArchived(list, from, to, null, null);
     }
 
     /**
@@ -75,7 +137,7 @@ public class ReportService {
      * Если type == null, возвращает все операции за период.
      */
     @Transactional(readOnly = true)
-    public List<DepositOperation> getOperationsByPeriodAndType(
+    public List<OperationRow> getOperationsByPeriodAndType(
             LocalDate fromDate,
             LocalDate toDate,
             DepositOperationType type
@@ -87,12 +149,9 @@ public class ReportService {
         LocalDateTime from = fromDate.atStartOfDay();
         LocalDateTime to = toDate.plusDays(1).atStartOfDay().minusNanos(1);
 
-        List<DepositOperation> list =
-                depositOperationRepository.findByTypeAndOperationDateTimeBetween(type, from, to);
+        List<OperationRow> list = depositOperationRepository.findRowsByTypeAndPeriod(type, from, to);
 
-        initializeContractsForUi(list);
-
-        return list;
+        return withArchived(list, from, to, type, null);
     }
 
     /**
@@ -103,12 +162,10 @@ public class ReportService {
      * - если type == null -> фильтруем только по клиенту и периоду
      * - иначе -> фильтруем по клиенту + типу + периоду
      *
-     * ВАЖНО:
-     * Здесь специально "прогреваем" contractNumber внутри транзакции,
-     * чтобы UI мог отобразить № договора без LazyInitializationException.
+     * Фильтры выполняются в БД, № договора и клиент выбираются тем же запросом.
      */
     @Transactional(readOnly = true)
-    public List<DepositOperation> getOperationsByPeriodAndTypeForCustomer(
+    public List<OperationRow> getOperationsByPeriodAndTypeForCustomer(
             Long customerId,
             LocalDate fromDate,
             LocalDate toDate,
@@ -118,18 +175,56 @@ public class ReportService {
             return getOperationsByPeriodAndType(fromDate, toDate, type);
         }
 
-        List<DepositOperation> base = getOperationsByPeriodAndType(fromDate, toDate, type);
+        LocalDateTime from = fromDate.atStartOfDay();
+        LocalDateTime to = toDate.plusDays(1).atStartOfDay().minusNanos(1);
+
+        List<OperationRow> list = type == null
+                ? depositOperationRepository.findRowsByCustomerIdAndPeriod(customerId, from, to)
+                : depositOperationRepository.findRowsByCustomerIdAndTypeAndPeriod(customerId, type, from, to);
+
+        return withArchived(list, from, to, type, customerId);
+    }
+
+    /**
+     * Операции за период для показа на экране: первые maxRows строк
+     * по (дата и время, id), рабочие и архивные вместе. Строки читаются
+     * потоком и не дальше предела, поэтому длинный период не грузится
+     * в память целиком; полный отчёт — экспортом.
+     * progress вызывается на каждую прочитанную строку и может прервать чтение.
+     */
+    @Transactional(readOnly = true)
+    public ReportRows<OperationRow> getOperationsForScreen(
+            Long customerId,
+            LocalDate fromDate,
+            LocalDate toDate,
+            DepositOperationType type,
+            int maxRows,
+            ReportProgress progress
+    ) {
+        if (fromDate == null || toDate == null) {
+            throw new InvalidOperationException("Укажите обе даты периода");
+        }
+        if (toDate.isBefore(fromDate)) {
+            throw new InvalidOperationException("Дата 'по' не может быть раньше даты 'с'");
+        }
+        if (maxRows <= 0) {
+            throw new InvalidOperationException("Предел строк отчёта должен быть положительным");
+        }
 
-        List<DepositOperation> filtered = base.stream()
-                .filter(op -> op != null
-                        && op.getContract() != null
-                        && op.getContract().getCustomer() != null
-                        && customerId.equals(op.getContract().getCustomer().getId()))
-                .toList();
+        LocalDateTime from = fromDate.atStartOfDay();
+        LocalDateTime to = toDate.plusDays(1).atStartOfDay().minusNanos(1);
 
-        initializeContractsForUi(filtered);
+        try (Stream<OperationRow> archived = contractArchiveService.streamOperations(from, to, type, customerId);
+             Stream<OperationRow> live = depositOperationRepository.streamRows(from, to, type, customerId)) {
 
-        return filtered;
+            Iterator<OperationRow> rows = mergeChronologically(archived.iterator(), live.iterator());
+            List<OperationRow> list = new ArrayList<>(Math.min(maxRows, 1024));
+            while (rows.hasNext() && list.size() < maxRows) {
+                list.add(rows.next());
+                progress.rowWritten();
+            }
+            return new ReportRows<>(list, rows.hasNext());
+        }
     }
 
     /**
@@ -150,44 +245,46 @@ public class ReportService {
      * - если operations != null -> лист "Операции"
      *
      * Удобно вызывать прямо из UI: передать items из TableView.
+     * Запись потоковая (ExcelReportWriter): память не растёт с числом строк,
+     * слишком длинный лист продолжается на следующем.
      */
     public void exportReportsToExcel(
-            List<DepositContract> contracts,
-            List<DepositOperation> operations,
+            List<ContractRow> contracts,
+            List<OperationRow> operations,
             File file
+    ) {
+        exportReportsToExcel(contracts, operations, file, ReportProgress.NONE);
+    }
+
+    /**
+     * То же, с уведомлением о каждой записанной строке (для фоновых заданий).
+     */
+    public void exportReportsToExcel(
+            List<ContractRow> contracts,
+            List<OperationRow> operations,
+            File file,
+            ReportProgress progress
     ) {
         if (file == null) {
             throw new InvalidOperationException("Не указан файл для экспорта");
         }
 
-        try (Workbook wb = new XSSFWorkbook()) {
-            CreationHelper helper = wb.getCreationHelper();
-
-            CellStyle headerStyle = createHeaderStyle(wb);
-            CellStyle dateStyle = createDateStyle(wb, helper);
-            CellStyle dateTimeStyle = createDateTimeStyle(wb, helper);
-            CellStyle moneyStyle = createMoneyStyle(wb);
-
+        try (ExcelReportWriter writer = newExcelWriter()) {
             if (contracts != null) {
-                writeContractsSheet(wb, "Договоры", contracts, headerStyle, dateStyle, moneyStyle);
+                writeContractsSheet(writer, "Договоры", contracts, progress);
             }
             if (operations != null) {
-                // На всякий случай прогреем контракт (если список пришёл извне)
-                initializeContractsForUi(operations);
-                writeOperationsSheet(wb, "Операции", operations, headerStyle, dateTimeStyle, moneyStyle);
+                writeOperationsSheet(writer, "Операции", operations.iterator(), progress);
             }
 
             // Если оба списка null — чтобы файл не был пустым без листов
             if (contracts == null && operations == null) {
-                Sheet sheet = wb.createSheet("Отчёт");
-                Row row = sheet.createRow(0);
-                Cell cell = row.createCell(0);
-                cell.setCellValue("Нет данных для экспорта");
+                writer.startSheet("Отчёт");
+                writer.startRow();
+                writer.text("Нет данных для экспорта");
             }
 
-            try (FileOutputStream fos = new FileOutputStream(file)) {
-                wb.write(fos);
-            }
+            writer.writeTo(file);
 
         } catch (IOException e) {
             throw new InvalidOperationException("Ошибка сохранения Excel-файла: " + e.getMessage());
@@ -197,14 +294,14 @@ public class ReportService {
     /**
      * Экспорт только договоров в Excel (один лист).
      */
-    public void exportContractsToExcel(List<DepositContract> contracts, File file) {
+    public void exportContractsToExcel(List<ContractRow> contracts, File file) {
         exportReportsToExcel(contracts, null, file);
     }
 
     /**
      * Экспорт только операций в Excel (один лист).
      */
-    public void exportOperationsToExcel(List<DepositOperation> operations, File file) {
+    public void exportOperationsToExcel(List<OperationRow> operations, File file) {
         exportReportsToExcel(null, operations, file);
     }
 
@@ -214,7 +311,7 @@ public class ReportService {
      */
     @Transactional(readOnly = true)
     public void exportCustomerContractsToExcel(Long customerId, File file) {
-        List<DepositContract> contracts = getContractsByCustomer(customerId);
+        List<ContractRow> contracts = getContractsByCustomer(customerId);
         exportReportsToExcel(contracts, null, file);
     }
 
@@ -223,13 +320,16 @@ public class ReportService {
      */
     @Transactional(readOnly = true)
     public void exportActiveCustomerContractsToExcel(Long customerId, File file) {
-        List<DepositContract> contracts = getActiveContractsByCustomer(customerId);
+        List<ContractRow> contracts = getActiveContractsByCustomer(customerId);
         exportReportsToExcel(contracts, null, file);
     }
 
     /**
      * Экспорт операций по параметрам (клиент может быть null => все клиенты),
      * период обязателен.
+     *
+     * Операции (включая архивные) читаются из БД потоком прямо в файл,
+     * без списка в памяти.
      */
     @Transactional(readOnly = true)
     public void exportOperationsByParamsToExcel(
@@ -239,269 +339,285 @@ public class ReportService {
             DepositOperationType type,
             File file
     ) {
-        if (fromDate == null || toDate == null) {
-            throw new InvalidOperationException("Для экспорта операций требуется указать период (дату с/по)");
-        }
-        if (toDate.isBefore(fromDate)) {
-            throw new InvalidOperationException("Дата 'по' не может быть раньше даты 'с'");
-        }
-
-        List<DepositOperation> operations = getOperationsByPeriodAndTypeForCustomer(customerId, fromDate, toDate, type);
-        exportReportsToExcel(null, operations, file);
+        exportOperationsByParamsToExcel(customerId, fromDate, toDate, type, file, ReportProgress.NONE);
     }
 
-    // -------------------- Excel helpers --------------------
-
-    private void writeContractsSheet(
-            Workbook wb,
-            String sheetName,
-            List<DepositContract> contracts,
-            CellStyle headerStyle,
-            CellStyle dateStyle,
-            CellStyle moneyStyle
+    /**
+     * То же, с уведомлением о каждой записанной строке (для фоновых заданий).
+     */
+    @Transactional(readOnly = true)
+    public void exportOperationsByParamsToExcel(
+            Long customerId,
+            LocalDate fromDate,
+            LocalDate toDate,
+            DepositOperationType type,
+            File file,
+            ReportProgress progress
     ) {
-        Sheet sheet = wb.createSheet(sheetName);
-
-        int r = 0;
-
-        // Header
-        Row header = sheet.createRow(r++);
-        int c = 0;
+        validateOperationsExport(fromDate, toDate, file);
 
-        createCell(header, c++, "№ договора", headerStyle);
-        createCell(header, c++, "Клиент", headerStyle);
-        createCell(header, c++, "Продукт", headerStyle);
-        createCell(header, c++, "Статус", headerStyle);
-        createCell(header, c++, "Дата открытия", headerStyle);
-        createCell(header, c++, "Дата закрытия", headerStyle);
-        createCell(header, c++, "Начальная сумма", headerStyle);
-        createCell(header, c++, "Текущий баланс", headerStyle);
-        createCell(header, c++, "% годовых", headerStyle);
-
-        if (contracts != null) {
-            for (DepositContract dc : contracts) {
-                Row row = sheet.createRow(r++);
-                int col = 0;
-
-                String contractNumber = dc != null ? safe(dc.getContractNumber()) : "";
-                createCell(row, col++, contractNumber, null);
-
-                Customer customer = dc != null ? dc.getCustomer() : null;
-                createCell(row, col++, formatCustomerShort(customer), null);
-
-                DepositProduct product = dc != null ? dc.getProduct() : null;
-                createCell(row, col++, product != null ? safe(product.getName()) : "", null);
-
-                DepositContractStatus status = dc != null ? dc.getStatus() : null;
-                createCell(row, col++, status != null ? status.name() : "", null);
-
-                LocalDate openDate = dc != null ? dc.getOpenDate() : null;
-                createDateCell(row, col++, openDate, dateStyle);
-
-                LocalDate closeDate = dc != null ? dc.getCloseDate() : null;
-                createDateCell(row, col++, closeDate, dateStyle);
+        LocalDateTime from = fromDate.atStartOfDay();
+        LocalDateTime to = toDate.plusDays(1).atStartOfDay().minusNanos(1);
 
-                BigDecimal initialAmount = dc != null ? dc.getInitialAmount() : null;
-                createMoneyCell(row, col++, initialAmount, moneyStyle);
+        try (ExcelReportWriter writer = newExcelWriter();
+             Stream<OperationRow> archived = contractArchiveService.streamOperations(from, to, type, customerId);
+             Stream<OperationRow> live = depositOperationRepository.streamRows(from, to, type, customerId)) {
 
-                BigDecimal currentBalance = dc != null ? dc.getCurrentBalance() : null;
-                createMoneyCell(row, col++, currentBalance, moneyStyle);
+            Iterator<OperationRow> rows = mergeChronologically(archived.iterator(), live.iterator());
+            writeOperationsSheet(writer, "Операции", rows, progress);
+            writer.writeTo(file);
 
-                BigDecimal rate = dc != null ? dc.getInterestRate() : null;
-                if (rate == null) {
-                    createCell(row, col++, "", null);
-                } else {
-                    createCell(row, col++, rate.toPlainString(), null);
-                }
-            }
+        } catch (IOException e) {
+            throw new InvalidOperationException("Ошибка сохранения Excel-файла: " + e.getMessage());
         }
-
-        autosizeColumns(sheet, 9);
     }
 
-    private void writeOperationsSheet(
-            Workbook wb,
-            String sheetName,
-            List<DepositOperation> operations,
-            CellStyle headerStyle,
-            CellStyle dateTimeStyle,
-            CellStyle moneyStyle
-    ) {
-        Sheet sheet = wb.createSheet(sheetName);
-
-        int r = 0;
-
-        // Header
-        Row header = sheet.createRow(r++);
-        int c = 0;
-
-        createCell(header, c++, "Дата и время", headerStyle);
-        createCell(header, c++, "Тип операции", headerStyle);
-        createCell(header, c++, "Сумма", headerStyle);
-        createCell(header, c++, "№ договора", headerStyle);
-        createCell(header, c++, "Клиент", headerStyle);
-        createCell(header, c++, "Описание", headerStyle);
-
-        if (operations != null) {
-            for (DepositOperation op : operations) {
-                Row row = sheet.createRow(r++);
-                int col = 0;
-
-                LocalDateTime dt = op != null ? op.getOperationDateTime() : null;
-                createDateTimeCell(row, col++, dt, dateTimeStyle);
+    // =====================================================================
+    // ===================== CSV / NDJSON EXPORT (FEED) =====================
+    // =====================================================================
 
-                DepositOperationType type = op != null ? op.getType() : null;
-                createCell(row, col++, type != null ? type.name() : "", null);
+    /**
+     * Выгрузка операций по параметрам (клиент и тип могут быть null) в CSV или
+     * NDJSON для хранилища данных; gzip — сжимать файл.
+     *
+     * @return сколько операций выгружено
+     */
+    @Transactional(readOnly = true)
+    public long exportOperationsByParams(
+            Long customerId,
+            LocalDate fromDate,
+            LocalDate toDate,
+            DepositOperationType type,
+            ExportFormat format,
+            boolean gzip,
+            File file
+    ) {
+        return exportOperationsByParams(customerId, fromDate, toDate, type, format, gzip, file, ReportProgress.NONE);
+    }
 
-                BigDecimal amount = op != null ? op.getAmount() : null;
-                createMoneyCell(row, col++, amount, moneyStyle);
+    /**
+     * То же, с уведомлением о каждой записанной строке (для фоновых заданий).
+     *
+     * Операции (включая архивные) идут курсором БД вперёд (fetch size запроса)
+     * и кодируются сразу в буфер канала: ни списка, ни строк файла в памяти.
+     */
+    @Transactional(readOnly = true)
+    public long exportOperationsByParams(
+            Long customerId,
+            LocalDate fromDate,
+            LocalDate toDate,
+            DepositOperationType type,
+            ExportFormat format,
+            boolean gzip,
+            File file,
+            ReportProgress progress
+    ) {
+        validateOperationsExport(fromDate, toDate, file);
+        if (format == null) {
+            throw new InvalidOperationException("Не указан формат выгрузки");
+        }
 
-                DepositContract contract = op != null ? op.getContract() : null;
-                String contractNumber = contract != null ? safe(contract.getContractNumber()) : "";
-                createCell(row, col++, contractNumber, null);
+        LocalDateTime from = fromDate.atStartOfDay();
+        LocalDateTime to = toDate.plusDays(1).atStartOfDay().minusNanos(1);
 
-                Customer customer = contract != null ? contract.getCustomer() : null;
-                createCell(row, col++, formatCustomerShort(customer), null);
+        try (Stream<OperationRow> archived = contractArchiveService.streamOperations(from, to, type, customerId);
+             Stream<OperationRow> live = depositOperationRepository.streamRows(from, to, type, customerId);
+             FeedExportWriter writer = FeedExportWriter.open(
+                     file.toPath(), format, gzip, feedBufferKb * 1024, FEED_COLUMNS)) {
 
-                String desc = op != null ? safe(op.getDescription()) : "";
-                createCell(row, col++, desc, null);
+            Iterator<OperationRow> rows = mergeChronologically(archived.iterator(), live.iterator());
+            while (rows.hasNext()) {
+                OperationRow op = rows.next();
+                if (op == null) {
+                    continue;
+                }
+                writeFeedRecord(writer, op);
+                progress.rowWritten();
             }
-        }
+            return writer.getRecordCount();
 
-        autosizeColumns(sheet, 6);
-    }
-
-    private void autosizeColumns(Sheet sheet, int count) {
-        for (int i = 0; i < count; i++) {
-            sheet.autoSizeColumn(i);
+        } catch (IOException e) {
+            throw new InvalidOperationException("Ошибка записи файла выгрузки: " + e.getMessage());
         }
     }
 
-    private void createCell(Row row, int index, String value, CellStyle style) {
-        Cell cell = row.createCell(index);
-        cell.setCellValue(value != null ? value : "");
-        if (style != null) {
-            cell.setCellStyle(style);
-        }
+    private static void writeFeedRecord(FeedExportWriter writer, OperationRow op) throws IOException {
+        writer.number(op.id());
+        writer.dateTime(op.operationDateTime());
+        writer.text(op.type() != null ? op.type().name() : null);
+        writer.decimal(op.amount());
+        writer.decimal(op.balanceAfter());
+        writer.text(op.description());
+        writer.number(op.contractId());
+        writer.text(op.contractNumber());
+        writer.number(op.customerId());
+        writer.text(op.lastName());
+        writer.text(op.firstName());
+        writer.text(op.middleName());
+        writer.endRecord();
     }
 
-    private void createDateCell(Row row, int index, LocalDate value, CellStyle style) {
-        Cell cell = row.createCell(index);
-        if (value == null) {
-            cell.setCellValue("");
-            return;
-        }
-        cell.setCellValue(java.sql.Date.valueOf(value));
-        if (style != null) {
-            cell.setCellStyle(style);
+    private static void validateOperationsExport(LocalDate fromDate, LocalDate toDate, File file) {
+        if (fromDate == null || toDate == null) {
+            throw new InvalidOperationException("Для экспорта операций требуется указать период (дату с/по)");
         }
-    }
-
-    private void createDateTimeCell(Row row, int index, LocalDateTime value, CellStyle style) {
-        Cell cell = row.createCell(index);
-        if (value == null) {
-            cell.setCellValue("");
-            return;
+        if (toDate.isBefore(fromDate)) {
+            throw new InvalidOperationException("Дата 'по' не может быть раньше даты 'с'");
         }
-        cell.setCellValue(java.sql.Timestamp.valueOf(value));
-        if (style != null) {
-            cell.setCellStyle(style);
+        if (file == null) {
+            throw new InvalidOperationException("Не указан файл для экспорта");
         }
     }
 
-    private void createMoneyCell(Row row, int index, BigDecimal value, CellStyle style) {
-        Cell cell = row.createCell(index);
-        if (value == null) {
-            cell.setCellValue(0d);
-        } else {
-            cell.setCellValue(value.doubleValue());
-        }
-        if (style != null) {
-            cell.setCellStyle(style);
-        }
-    }
+    // -------------------- Excel helpers --------------------
 
-    private CellStyle createHeaderStyle(Workbook wb) {
-        Font font = wb.createFont();
-        font.setBold(true);
+    private ExcelReportWriter newExcelWriter() {
+        return new ExcelReportWriter(excelRowWindow, ExcelReportWriter.EXCEL_MAX_ROWS, excelWidthSampleRows);
+    }
 
-        CellStyle style = wb.createCellStyle();
-        style.setFont(font);
+    private void writeContractsSheet(
+            ExcelReportWriter writer,
+            String sheetName,
+            List<ContractRow> contracts,
+            ReportProgress progress
+    ) {
+        writer.startSheet(
+                sheetName,
+                "№ договора",
+                "Клиент",
+                "Продукт",
+                "Статус",
+                "Дата открытия",
+                "Дата закрытия",
+                "Начальная сумма",
+                "Текущий баланс",
+                "% годовых"
+        );
+
+        for (ContractRow dc : contracts) {
+            if (dc == null) {
+                continue;
+            }
+            writer.startRow();
 
-        style.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
-        style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            writer.text(safe(dc.contractNumber()));
+            writer.text(formatCustomerShort(dc.lastName(), dc.firstName(), dc.middleName()));
+            writer.text(safe(dc.productName()));
+            writer.text(dc.status() != null ? dc.status().name() : "");
+            writer.date(dc.openDate());
+            writer.date(dc.closeDate());
+            writer.money(dc.initialAmount());
+            writer.money(dc.currentBalance());
 
-        style.setBorderBottom(BorderStyle.THIN);
-        style.setBorderTop(BorderStyle.THIN);
-        style.setBorderLeft(BorderStyle.THIN);
-        style.setBorderRight(BorderStyle.THIN);
+            BigDecimal rate = dc.interestRate();
+            writer.text(rate != null ? rate.toPlainString() : "");
 
-        return style;
+            progress.rowWritten();
+        }
     }
 
-    private CellStyle createDateStyle(Workbook wb, CreationHelper helper) {
-        CellStyle style = wb.createCellStyle();
-        DataFormat df = helper.createDataFormat();
-        style.setDataFormat(df.getFormat("dd.mm.yyyy"));
-        return style;
-    }
+    private void writeOperationsSheet(
+            ExcelReportWriter writer,
+            String sheetName,
+            Iterator<OperationRow> rows,
+            ReportProgress progress
+    ) {
+        writer.startSheet(
+                sheetName,
+                "Дата и время",
+                "Тип операции",
+                "Сумма",
+                "№ договора",
+                "Клиент",
+                "Описание"
+        );
+
+        while (rows.hasNext()) {
+            OperationRow op = rows.next();
+            if (op == null) {
+                continue;
+            }
+            writer.startRow();
 
-    private CellStyle createDateTimeStyle(Workbook wb, CreationHelper helper) {
-        CellStyle style = wb.createCellStyle();
-        DataFormat df = helper.createDataFormat();
-        style.setDataFormat(df.getFormat("dd.mm.yyyy hh:mm"));
-        return style;
-    }
+            writer.dateTime(op.operationDateTime());
+            writer.text(op.type() != null ? op.type().name() : "");
+            writer.money(op.amount());
+            writer.text(safe(op.contractNumber()));
+            writer.text(formatCustomerShort(op.lastName(), op.firstName(), op.middleName()));
+            writer.text(safe(op.description()));
 
-    private CellStyle createMoneyStyle(Workbook wb) {
-        CellStyle style = wb.createCellStyle();
-        DataFormat df = wb.createDataFormat();
-        style.setDataFormat(df.getFormat("#,##0.00"));
-        return style;
+            progress.rowWritten();
+        }
     }
 
-    private String formatCustomerShort(Customer c) {
-        if (c == null) {
-            return "";
-        }
-        String middle = c.getMiddleName() != null && !c.getMiddleName().isBlank()
-                ? " " + c.getMiddleName().trim()
+    private static String formatCustomerShort(String lastName, String firstName, String middleName) {
+        String middle = middleName != null && !middleName.isBlank()
+                ? " " + middleName.trim()
                 : "";
-        return (safe(c.getLastName()) + " " + safe(c.getFirstName()) + middle).trim();
+        return (safe(lastName) + " " + safe(firstName) + middle).trim();
     }
 
-    private String safe(String s) {
+    private static String safe(String s) {
         return s == null ? "" : s.trim();
     }
 
     /**
-     * Принудительная инициализация поля contract для безопасного отображения
-     * в JavaFX таблицах после выхода из транзакции.
-     *
-     * Это обходной путь.
-     * Более правильный вариант — сделать join fetch в репозитории.
+     * Добавляет к операциям рабочих таблиц архивные за тот же период.
+     * Архив читается, только если период его затрагивает. Договор, оставшийся
+     * в рабочих таблицах, может иметь операции старше архивных, поэтому
+     * упорядоченные списки сливаются по (дата и время, id).
      */
-    private void initializeContractsForUi(List<DepositOperation> list) {
-        if (list == null || list.isEmpty()) {
-            return;
+    private List<OperationRow> withArchived(
+            List<OperationRow> live,
+            LocalDateTime from,
+            LocalDateTime to,
+            DepositOperationType type,
+            Long customerId
+    ) {
+        List<OperationRow> archived = contractArchiveService.getOperations(from, to, type, customerId);
+        if (archived.isEmpty()) {
+            return live;
         }
 
-        for (DepositOperation op : list) {
-            if (op == null) {
-                continue;
+        List<OperationRow> all = new ArrayList<>(archived.size() + live.size());
+        mergeChronologically(archived.iterator(), live.iterator()).forEachRemaining(all::add);
+        return all;
+    }
+
+    /**
+     * Слияние двух упорядоченных по (дата и время, id) последовательностей
+     * без чтения их целиком — для потоковых выгрузок.
+     */
+    private static Iterator<OperationRow> mergeChronologically(
+            Iterator<OperationRow> first,
+            Iterator<OperationRow> second
+    ) {
+        return new Iterator<>() {
+
+            private OperationRow a = first.hasNext() ? first.next() : null;
+            private OperationRow b = second.hasNext() ? second.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return a != null || b != null;
             }
 
-            DepositContract contract = op.getContract();
-            if (contract != null) {
-                // Трогаем contractNumber для инициализации прокси.
-                // Этого достаточно для отображения № договора в отчётах.
-                contract.getContractNumber();
+            @Override
+            public OperationRow next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
 
-                // Дополнительно прогреем клиента, чтобы в Excel/UI тоже было стабильно:
-                if (contract.getCustomer() != null) {
-                    contract.getCustomer().getId();
+                OperationRow result;
+                if (b == null || (a != null && CHRONOLOGICAL.compare(a, b) <= 0)) {
+                    result = a;
+                    a = first.hasNext() ? first.next() : null;
+                } else {
+                    result = b;
+                    b = second.hasNext() ? second.next() : null;
                 }
+                return result;
             }
-        }
+        };
     }
 }
@@ -0,0 +1,117 @@
+package org.santayn.bankdeposit.service;
+
+import lombok.RequiredArgsConstructor;
+import org.santayn.bankdeposit.models.DepositOperationType;
+import org.santayn.bankdeposit.repository.DepositOperationRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Итоги оборотов за период.
+ *
+ * Завершённые (и будущие) дни читаются из агрегата daily_turnover —
+ * не больше одной строки на договор, продукт и тип операции за день,
+ * вместо всех операций периода. Текущий день, по которому проводки ещё идут,
+ * считается напрямую по операциям (индекс по operation_datetime), поэтому
+ * итоги точные на момент запроса.
+ *
+ * Итоги по типам показывает вкладка «Отчёты» (кнопка «Итоги за период»).
+ */
+@Service
+@RequiredArgsConstructor
+public class TurnoverQueryService {
+
+    private final DepositOperationRepository depositOperationRepository;
+
+    /**
+     * Обороты за [fromDate; toDate] по продуктам и типам операций.
+     *
+     * @param customerId клиент; null — все клиенты
+     */
+    @Transactional(readOnly = true)
+    public List<TurnoverTotal> getTotalsByProductAndType(LocalDate fromDate, LocalDate toDate, Long customerId) {
+        validatePeriod(fromDate, toDate);
+
+        LocalDate today = LocalDate.now();
+        Map<String, TurnoverTotal> totals = new LinkedHashMap<>();
+
+        if (fromDate.isBefore(today)) {
+            LocalDate end = toDate.isBefore(today) ? toDate : today.minusDays(1);
+            merge(totals, depositOperationRepository.sumDailyTurnover(fromDate, end, customerId));
+        }
+
+        if (!today.isBefore(fromDate) && !today.isAfter(toDate)) {
+            merge(totals, depositOperationRepository.sumOperations(
+                    today.atStartOfDay(),
+                    today.plusDays(1).atStartOfDay(),
+                    customerId
+            ));
+        }
+
+        if (toDate.isAfter(today)) {
+            LocalDate start = fromDate.isAfter(today) ? fromDate : today.plusDays(1);
+            merge(totals, depositOperationRepository.sumDailyTurnover(start, toDate, customerId));
+        }
+
+        List<TurnoverTotal> result = new ArrayList<>(totals.values());
+        result.sort(Comparator.comparing(TurnoverTotal::productId, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(TurnoverTotal::type));
+        return result;
+    }
+
+    /**
+     * Обороты за [fromDate; toDate] по типам операций (все продукты вместе).
+     *
+     * @param customerId клиент; null — все клиенты
+     */
+    @Transactional(readOnly = true)
+    public Map<DepositOperationType, TurnoverTotal> getTotalsByType(
+            LocalDate fromDate,
+            LocalDate toDate,
+            Long customerId
+    ) {
+        Map<DepositOperationType, TurnoverTotal> result = new EnumMap<>(DepositOperationType.class);
+
+        for (TurnoverTotal total : getTotalsByProductAndType(fromDate, toDate, customerId)) {
+            result.merge(
+                    total.type(),
+                    new TurnoverTotal(null, total.type(), total.totalAmount(), total.operationCount()),
+                    (a, b) -> a.plus(b.totalAmount(), b.operationCount())
+            );
+        }
+
+        return result;
+    }
+
+    private void merge(Map<String, TurnoverTotal> totals, List<DepositOperationRepository.TurnoverRow> rows) {
+        for (DepositOperationRepository.TurnoverRow row : rows) {
+            DepositOperationType type = DepositOperationType.valueOf(row.getOperationType());
+            BigDecimal amount = row.getTotalAmount() != null ? row.getTotalAmount() : BigDecimal.ZERO;
+            long count = row.getOperationCount() != null ? row.getOperationCount() : 0L;
+
+            totals.merge(
+                    row.getProductId() + ":" + type,
+                    new TurnoverTotal(row.getProductId(), type, amount, count),
+                    (a, b) -> a.plus(b.totalAmount(), b.operationCount())
+            );
+        }
+    }
+
+    private void validatePeriod(LocalDate fromDate, LocalDate toDate) {
+        if (fromDate == null || toDate == null) {
+            throw new InvalidOperationException("Для итогов оборотов требуется указать период (дату с/по)");
+        }
+        if (toDate.isBefore(fromDate)) {
+            throw new InvalidOperationException("Дата 'по' не может быть раньше даты 'с'");
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.santayn.bankdeposit.service;
+
+import org.santayn.bankdeposit.models.DepositOperationType;
+
+import java.math.BigDecimal;
+
+/**
+ * Оборот за период по продукту и типу операции.
+ *
+ * @param productId      продукт; null в итогах по всем продуктам
+ * @param type           тип операции
+ * @param totalAmount    сумма операций
+ * @param operationCount число операций
+ */
+public record TurnoverTotal(
+        Long productId,
+        DepositOperationType type,
+        BigDecimal totalAmount,
+        long operationCount
+) {
+
+    TurnoverTotal plus(BigDecimal amount, long count) {
+        return new TurnoverTotal(productId, type, totalAmount.add(amount), operationCount + count);
+    }
+}
@@ -1,5 +1,6 @@
 package org.santayn.bankdeposit.ui;
 
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -20,9 +21,9 @@ import lombok.RequiredArgsConstructor;
 import org.santayn.bankdeposit.models.Customer;
 import org.santayn.bankdeposit.models.DepositContract;
 import org.santayn.bankdeposit.models.DepositContractStatus;
-import org.santayn.bankdeposit.models.DepositOperation;
 import org.santayn.bankdeposit.models.DepositProduct;
 import org.santayn.bankdeposit.models.User;
+import org.santayn.bankdeposit.repository.OperationRow;
 import org.santayn.bankdeposit.service.*;
 import org.santayn.bankdeposit.ui.MoneyUtil;
 import org.springframework.stereotype.Component;
@@ -110,19 +111,22 @@ public class DepositContractsController {
     // ---------------------- Таблица операций ----------------------
 
     @FXML
-    private TableView<DepositOperation> operationsTable;
+    private TableView<OperationRow> operationsTable;
 
     @FXML
-    private TableColumn<DepositOperation, LocalDateTime> opDateTimeColumn;
+    private TableColumn<OperationRow, LocalDateTime> opDateTimeColumn;
 
     @FXML
-    private TableColumn<DepositOperation, String> opTypeColumn;
+    private TableColumn<OperationRow, String> opTypeColumn;
 
     @FXML
-    private TableColumn<DepositOperation, BigDecimal> opAmountColumn;
+    private TableColumn<OperationRow, BigDecimal> opAmountColumn;
 
     @FXML
-    private TableColumn<DepositOperation, String> opDescriptionColumn;
+    private TableColumn<OperationRow, String> opDescriptionColumn;
+
+    @FXML
+    private Button loadMoreOperationsButton;
 
     // ---------------------- Блок открытия вклада ----------------------
 
@@ -154,7 +158,9 @@ public class DepositContractsController {
     private final ObservableList<Customer> customers = FXCollections.observableArrayList();
     private final ObservableList<DepositProduct> products = FXCollections.observableArrayList();
     private final ObservableList<DepositContract> contracts = FXCollections.observableArrayList();
-    private final ObservableList<DepositOperation> operations = FXCollections.observableArrayList();
+    private final ObservableList<OperationRow> operations = FXCollections.observableArrayList();
+
+    private OperationHistoryPager historyPager;
 
     private DepositContract selectedContract;
 
@@ -319,7 +325,7 @@ public class DepositContractsController {
     private void setupOperationsTable() {
         DateTimeFormatter fmt = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
 
-        opDateTimeColumn.setCellValueFactory(new PropertyValueFactory<>("operationDateTime"));
+        opDateTimeColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().operationDateTime()));
         opDateTimeColumn.setCellFactory(col -> new TableCell<>() {
             @Override
             protected void updateItem(LocalDateTime item, boolean empty) {
@@ -332,19 +338,18 @@ public class DepositContractsController {
             }
         });
 
-        opAmountColumn.setCellValueFactory(new PropertyValueFactory<>("amount"));
-        opDescriptionColumn.setCellValueFactory(new PropertyValueFactory<>("description"));
+        opAmountColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().amount()));
+        opDescriptionColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().description()));
 
         opTypeColumn.setCellValueFactory(cell -> {
-            try {
-                var t = cell.getValue().getType();
-                return new SimpleStringProperty(t != null ? t.name() : "");
-            } catch (Exception e) {
-                return new SimpleStringProperty("");
-            }
+            var t = cell.getValue().type();
+            return new SimpleStringProperty(t != null ? t.name() : "");
         });
 
         operationsTable.setItems(operations);
+
+        historyPager = new OperationHistoryPager(depositOperationService, operations);
+        loadMoreOperationsButton.disableProperty().bind(historyPager.hasMoreProperty().not());
     }
 
     private void setupSelectionListener() {
@@ -398,15 +403,19 @@ public class DepositContractsController {
     }
 
     private void loadOperationsForSelected() {
-        if (selectedContract == null || selectedContract.getId() == null) {
-            operations.clear();
-            return;
+        try {
+            historyPager.reset(selectedContract != null ? selectedContract.getId() : null);
+        } catch (Exception e) {
+            historyPager.reset(null);
         }
+    }
 
+    @FXML
+    private void onLoadMoreOperations() {
         try {
-            operations.setAll(depositOperationService.getOperationsByContract(selectedContract.getId()));
-        } catch (Exception e) {
-            operations.clear();
+            historyPager.loadMore();
+        } catch (InvalidOperationException | EntityNotFoundException ex) {
+            showError("Ошибка", ex.getMessage());
         }
     }
 
@@ -0,0 +1,63 @@
+package org.santayn.bankdeposit.ui;
+
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.collections.ObservableList;
+import org.santayn.bankdeposit.repository.OperationRow;
+import org.santayn.bankdeposit.service.DepositOperationService;
+import org.santayn.bankdeposit.service.OperationCursor;
+import org.santayn.bankdeposit.service.OperationPage;
+
+/**
+ * Постраничная загрузка истории операций договора в таблицу UI.
+ *
+ * При выборе договора загружается первая страница (самые новые операции),
+ * следующие — по кнопке «Показать ещё». Длинная история начислений
+ * не читается целиком при каждом выборе строки.
+ */
+final class OperationHistoryPager {
+
+    static final int PAGE_SIZE = 100;
+
+    private final DepositOperationService depositOperationService;
+    private final ObservableList<OperationRow> operations;
+    private final ReadOnlyBooleanWrapper hasMore = new ReadOnlyBooleanWrapper(false);
+
+    private Long contractId;
+    private OperationCursor cursor;
+
+    OperationHistoryPager(DepositOperationService depositOperationService,
+                          ObservableList<OperationRow> operations) {
+        this.depositOperationService = depositOperationService;
+        this.operations = operations;
+    }
+
+    /**
+     * Начинает историю заново: с первой страницы договора или пустую (contractId == null).
+     */
+    void reset(Long contractId) {
+        this.contractId = contractId;
+        this.cursor = null;
+        operations.clear();
+        hasMore.set(false);
+
+        if (contractId != null) {
+            loadMore();
+        }
+    }
+
+    void loadMore() {
+        if (contractId == null) {
+            return;
+        }
+
+        OperationPage page = depositOperationService.getOperationPage(contractId, cursor, PAGE_SIZE);
+        operations.addAll(page.operations());
+        cursor = page.nextCursor();
+        hasMore.set(page.hasMore());
+    }
+
+    ReadOnlyBooleanProperty hasMoreProperty() {
+        return hasMore.getReadOnlyProperty();
+    }
+}
@@ -1,16 +1,16 @@
 package org.santayn.bankdeposit.ui;
 
 import javafx.beans.binding.Bindings;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import lombok.RequiredArgsConstructor;
 import org.santayn.bankdeposit.models.Customer;
 import org.santayn.bankdeposit.models.DepositContract;
-import org.santayn.bankdeposit.models.DepositOperation;
 import org.santayn.bankdeposit.models.User;
+import org.santayn.bankdeposit.repository.OperationRow;
 import org.santayn.bankdeposit.service.*;
 import org.springframework.stereotype.Component;
 
@@ -41,22 +41,28 @@ public class OperationsController {
     private ComboBox<DepositContract> contractComboBox;
 
     @FXML
-    private TableView<DepositOperation> operationsTable;
+    private TableView<OperationRow> operationsTable;
 
     @FXML
-    private TableColumn<DepositOperation, Long> idColumn;
+    private TableColumn<OperationRow, Long> idColumn;
 
     @FXML
-    private TableColumn<DepositOperation, LocalDateTime> dateTimeColumn;
+    private TableColumn<OperationRow, LocalDateTime> dateTimeColumn;
 
     @FXML
-    private TableColumn<DepositOperation, String> typeColumn;
+    private TableColumn<OperationRow, String> typeColumn;
 
     @FXML
-    private TableColumn<DepositOperation, BigDecimal> amountColumn;
+    private TableColumn<OperationRow, BigDecimal> amountColumn;
 
     @FXML
-    private TableColumn<DepositOperation, String> descriptionColumn;
+    private TableColumn<OperationRow, BigDecimal> balanceAfterColumn;
+
+    @FXML
+    private TableColumn<OperationRow, String> descriptionColumn;
+
+    @FXML
+    private Button loadMoreButton;
 
     @FXML
     private TextField amountField;
@@ -76,7 +82,9 @@ public class OperationsController {
     @FXML
     private Button refreshButton;
 
-    private final ObservableList<DepositOperation> operations = FXCollections.observableArrayList();
+    private final ObservableList<OperationRow> operations = FXCollections.observableArrayList();
+
+    private OperationHistoryPager historyPager;
 
     @FXML
     public void initialize() {
@@ -134,10 +142,11 @@ public class OperationsController {
     }
 
     private void setupOperationsTable() {
-        idColumn.setCellValueFactory(new PropertyValueFactory<>("id"));
-        dateTimeColumn.setCellValueFactory(new PropertyValueFactory<>("operationDateTime"));
-        amountColumn.setCellValueFactory(new PropertyValueFactory<>("amount"));
-        descriptionColumn.setCellValueFactory(new PropertyValueFactory<>("description"));
+        idColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().id()));
+        dateTimeColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().operationDateTime()));
+        amountColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().amount()));
+        balanceAfterColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().balanceAfter()));
+        descriptionColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().description()));
 
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
         dateTimeColumn.setCellFactory(column -> new TableCell<>() {
@@ -154,12 +163,15 @@ public class OperationsController {
 
         typeColumn.setCellValueFactory(cellData ->
                 Bindings.createStringBinding(() ->
-                        cellData.getValue().getType() != null
-                                ? cellData.getValue().getType().name()
+                        cellData.getValue().type() != null
+                                ? cellData.getValue().type().name()
                                 : "")
         );
 
         operationsTable.setItems(operations);
+
+        historyPager = new OperationHistoryPager(depositOperationService, operations);
+        loadMoreButton.disableProperty().bind(historyPager.hasMoreProperty().not());
     }
 
     private void loadContracts() {
@@ -173,11 +185,7 @@ public class OperationsController {
 
     private void loadOperations() {
         DepositContract contract = contractComboBox.getValue();
-        if (contract == null || contract.getId() == null) {
-            operations.clear();
-            return;
-        }
-        operations.setAll(depositOperationService.getOperationsByContract(contract.getId()));
+        historyPager.reset(contract != null ? contract.getId() : null);
     }
 
     private void applyRoleUiAccess() {
@@ -197,6 +205,15 @@ public class OperationsController {
         loadContracts();
     }
 
+    @FXML
+    private void onLoadMore() {
+        try {
+            historyPager.loadMore();
+        } catch (InvalidOperationException | EntityNotFoundException ex) {
+            showError("Ошибка", ex.getMessage());
+        }
+    }
+
     @FXML
     private void onDeposit() {
         User current = sessionContext.getCurrentUser();
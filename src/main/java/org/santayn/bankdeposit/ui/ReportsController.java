@@ -1,21 +1,33 @@
 package org.santayn.bankdeposit.ui;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.FileChooser;
+import javafx.util.Duration;
 import javafx.util.StringConverter;
 import lombok.RequiredArgsConstructor;
 import org.santayn.bankdeposit.models.Customer;
-import org.santayn.bankdeposit.models.DepositContract;
 import org.santayn.bankdeposit.models.DepositContractStatus;
-import org.santayn.bankdeposit.models.DepositOperation;
 import org.santayn.bankdeposit.models.DepositOperationType;
-import org.santayn.bankdeposit.models.DepositProduct;
+import org.santayn.bankdeposit.repository.ContractRow;
+import org.santayn.bankdeposit.repository.OperationRow;
+import org.santayn.bankdeposit.service.ReportJobService;
+import org.santayn.bankdeposit.service.ReportJobStatus;
+import org.santayn.bankdeposit.service.ReportProgress;
+import org.santayn.bankdeposit.service.ReportRows;
 import org.santayn.bankdeposit.service.ReportService;
+import org.santayn.bankdeposit.service.TurnoverQueryService;
+import org.santayn.bankdeposit.service.TurnoverTotal;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
@@ -25,6 +37,11 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Контроллер вкладки "Отчёты".
@@ -33,10 +50,16 @@ import java.util.List;
  * 1) Договоры выбранного клиента
  * 2) Активные вклады клиента
  * 3) Операции за период (+ фильтр по типу + фильтр по клиенту)
+ * 4) Итоги оборотов за период по типам операций (TurnoverQueryService:
+ *    агрегат daily_turnover, без чтения всех операций периода)
  *
  * Дополнительно:
  * - Возможность выбора "Все клиенты" для отчёта по операциям.
- * - Экспорт текущего результата в Excel (.xlsx).
+ * - Отчёт строится в фоновом потоке (Task): экран не блокируется, ход и отмена —
+ *   в строке состояния. На экран выводится не больше bankdeposit.report.screen.max-rows
+ *   операций, полный отчёт — экспортом.
+ * - Экспорт текущего отчёта в Excel (.xlsx) фоновым заданием (ReportJobService):
+ *   экран не блокируется, ход и отмена — в строке состояния экспорта.
  *
  * Работает с ReportsView.fxml.
  */
@@ -44,7 +67,22 @@ import java.util.List;
 @RequiredArgsConstructor
 public class ReportsController {
 
+    private static final double JOB_POLL_MS = 500;
+
+    /**
+     * Как часто (в строках) обновлять ход построения отчёта на экране.
+     */
+    private static final long SCREEN_PROGRESS_ROWS = 1000;
+
     private final ReportService reportService;
+    private final ReportJobService reportJobService;
+    private final TurnoverQueryService turnoverQueryService;
+
+    /**
+     * Сколько операций отчёта показывать на экране.
+     */
+    @Value("${bankdeposit.report.screen.max-rows:10000}")
+    private int screenMaxRows;
 
     // ---------------------- Верхняя панель ----------------------
 
@@ -59,6 +97,12 @@ public class ReportsController {
     @FXML
     private Button exportExcelButton;
 
+    @FXML
+    private Button cancelReportJobButton;
+
+    @FXML
+    private Label reportJobLabel;
+
     // ---------------------- Параметры отчёта ----------------------
 
     @FXML
@@ -82,70 +126,86 @@ public class ReportsController {
     @FXML
     private Button buildOperationsButton;
 
+    @FXML
+    private Button buildTurnoverButton;
+
     @FXML
     private Button clearButton;
 
     // ---------------------- Таблица договоров ----------------------
 
     @FXML
-    private TableView<DepositContract> contractsTable;
+    private TableView<ContractRow> contractsTable;
 
     @FXML
-    private TableColumn<DepositContract, String> contractNumberColumn;
+    private TableColumn<ContractRow, String> contractNumberColumn;
 
     @FXML
-    private TableColumn<DepositContract, String> customerColumn;
+    private TableColumn<ContractRow, String> customerColumn;
 
     @FXML
-    private TableColumn<DepositContract, String> productColumn;
+    private TableColumn<ContractRow, String> productColumn;
 
     @FXML
-    private TableColumn<DepositContract, String> statusColumn;
+    private TableColumn<ContractRow, String> statusColumn;
 
     @FXML
-    private TableColumn<DepositContract, String> openDateColumn;
+    private TableColumn<ContractRow, String> openDateColumn;
 
     @FXML
-    private TableColumn<DepositContract, String> closeDateColumn;
+    private TableColumn<ContractRow, String> closeDateColumn;
 
     @FXML
-    private TableColumn<DepositContract, String> initialAmountColumn;
+    private TableColumn<ContractRow, String> initialAmountColumn;
 
     @FXML
-    private TableColumn<DepositContract, String> currentBalanceColumn;
+    private TableColumn<ContractRow, String> currentBalanceColumn;
 
     /**
      * Если в FXML есть fx:id="rateColumn",
      * тогда столбец "% годовых" тоже заполнится.
      */
     @FXML
-    private TableColumn<DepositContract, String> rateColumn;
+    private TableColumn<ContractRow, String> rateColumn;
 
     // ---------------------- Таблица операций ----------------------
 
     @FXML
-    private TableView<DepositOperation> operationsTable;
+    private TableView<OperationRow> operationsTable;
 
     @FXML
-    private TableColumn<DepositOperation, LocalDateTime> opDateTimeColumn;
+    private TableColumn<OperationRow, LocalDateTime> opDateTimeColumn;
 
     @FXML
-    private TableColumn<DepositOperation, String> opTypeColumn;
+    private TableColumn<OperationRow, String> opTypeColumn;
 
     @FXML
-    private TableColumn<DepositOperation, BigDecimal> opAmountColumn;
+    private TableColumn<OperationRow, BigDecimal> opAmountColumn;
 
     @FXML
-    private TableColumn<DepositOperation, String> opContractColumn;
+    private TableColumn<OperationRow, String> opContractColumn;
 
     @FXML
-    private TableColumn<DepositOperation, String> opDescriptionColumn;
+    private TableColumn<OperationRow, String> opDescriptionColumn;
 
     // ---------------------- Данные ----------------------
 
     private final ObservableList<Customer> customers = FXCollections.observableArrayList();
-    private final ObservableList<DepositContract> contracts = FXCollections.observableArrayList();
-    private final ObservableList<DepositOperation> operations = FXCollections.observableArrayList();
+    private final ObservableList<ContractRow> contracts = FXCollections.observableArrayList();
+    private final ObservableList<OperationRow> operations = FXCollections.observableArrayList();
+
+    /**
+     * Постановка экспорта текущего отчёта (задаётся при построении отчёта).
+     */
+    private Supplier<ReportJobStatus> exportJob;
+
+    private Long currentJobId;
+    private Timeline jobPoller;
+
+    /**
+     * Отчёт, который строится для экрана (null — не строится).
+     */
+    private Task<?> screenTask;
 
     // ---------------------- Init ----------------------
 
@@ -326,8 +386,8 @@ public class ReportsController {
         // Кнопка активна, если есть хоть какие-то результаты в одной из таблиц
         exportExcelButton.setDisable(true);
 
-        contracts.addListener((javafx.collections.ListChangeListener<? super DepositContract>) c -> refreshExportButton());
-        operations.addListener((javafx.collections.ListChangeListener<? super DepositOperation>) c -> refreshExportButton());
+        contracts.addListener((javafx.collections.ListChangeListener<? super ContractRow>) c -> refreshExportButton());
+        operations.addListener((javafx.collections.ListChangeListener<? super OperationRow>) c -> refreshExportButton());
 
         refreshExportButton();
     }
@@ -348,61 +408,60 @@ public class ReportsController {
         }
 
         if (contractNumberColumn != null) {
-            contractNumberColumn.setCellValueFactory(new PropertyValueFactory<>("contractNumber"));
+            contractNumberColumn.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().contractNumber()));
         }
 
         if (customerColumn != null) {
             customerColumn.setCellValueFactory(cell -> {
-                Customer c = cell.getValue().getCustomer();
-                return new SimpleStringProperty(formatCustomerShort(c));
+                ContractRow c = cell.getValue();
+                return new SimpleStringProperty(formatCustomerShort(c.lastName(), c.firstName(), c.middleName()));
             });
         }
 
         if (productColumn != null) {
             productColumn.setCellValueFactory(cell -> {
-                DepositProduct p = cell.getValue().getProduct();
-                return new SimpleStringProperty(p != null ? safe(p.getName()) : "");
+                return new SimpleStringProperty(safe(cell.getValue().productName()));
             });
         }
 
         if (statusColumn != null) {
             statusColumn.setCellValueFactory(cell -> {
-                DepositContractStatus st = cell.getValue().getStatus();
+                DepositContractStatus st = cell.getValue().status();
                 return new SimpleStringProperty(st != null ? st.name() : "");
             });
         }
 
         if (openDateColumn != null) {
             openDateColumn.setCellValueFactory(cell -> {
-                LocalDate d = cell.getValue().getOpenDate();
+                LocalDate d = cell.getValue().openDate();
                 return new SimpleStringProperty(d != null ? d.toString() : "");
             });
         }
 
         if (closeDateColumn != null) {
             closeDateColumn.setCellValueFactory(cell -> {
-                LocalDate d = cell.getValue().getCloseDate();
+                LocalDate d = cell.getValue().closeDate();
                 return new SimpleStringProperty(d != null ? d.toString() : "");
             });
         }
 
         if (initialAmountColumn != null) {
             initialAmountColumn.setCellValueFactory(cell -> {
-                BigDecimal v = cell.getValue().getInitialAmount();
+                BigDecimal v = cell.getValue().initialAmount();
                 return new SimpleStringProperty(v != null ? v.toPlainString() : "0.00");
             });
         }
 
         if (currentBalanceColumn != null) {
             currentBalanceColumn.setCellValueFactory(cell -> {
-                BigDecimal v = cell.getValue().getCurrentBalance();
+                BigDecimal v = cell.getValue().currentBalance();
                 return new SimpleStringProperty(v != null ? v.toPlainString() : "0.00");
             });
         }
 
         if (rateColumn != null) {
             rateColumn.setCellValueFactory(cell -> {
-                BigDecimal v = cell.getValue().getInterestRate();
+                BigDecimal v = cell.getValue().interestRate();
                 return new SimpleStringProperty(v != null ? v.toPlainString() : "");
             });
         }
@@ -416,7 +475,7 @@ public class ReportsController {
         DateTimeFormatter fmt = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm");
 
         if (opDateTimeColumn != null) {
-            opDateTimeColumn.setCellValueFactory(new PropertyValueFactory<>("operationDateTime"));
+            opDateTimeColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().operationDateTime()));
             opDateTimeColumn.setCellFactory(col -> new TableCell<>() {
                 @Override
                 protected void updateItem(LocalDateTime item, boolean empty) {
@@ -432,25 +491,24 @@ public class ReportsController {
 
         if (opTypeColumn != null) {
             opTypeColumn.setCellValueFactory(cell -> {
-                DepositOperationType t = cell.getValue().getType();
+                DepositOperationType t = cell.getValue().type();
                 return new SimpleStringProperty(t != null ? t.name() : "");
             });
         }
 
         if (opAmountColumn != null) {
-            opAmountColumn.setCellValueFactory(new PropertyValueFactory<>("amount"));
+            opAmountColumn.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(cell.getValue().amount()));
         }
 
         if (opContractColumn != null) {
             opContractColumn.setCellValueFactory(cell -> {
-                DepositContract c = cell.getValue().getContract();
-                String num = c != null ? c.getContractNumber() : "";
+                String num = cell.getValue().contractNumber();
                 return new SimpleStringProperty(num != null ? num : "");
             });
         }
 
         if (opDescriptionColumn != null) {
-            opDescriptionColumn.setCellValueFactory(new PropertyValueFactory<>("description"));
+            opDescriptionColumn.setCellValueFactory(cell -> new SimpleStringProperty(cell.getValue().description()));
         }
     }
 
@@ -498,20 +556,18 @@ public class ReportsController {
             return;
         }
 
-        try {
-            List<DepositContract> list = reportService.getContractsByCustomer(customer.getId());
+        Long customerId = customer.getId();
+        runScreenReport("Договоры клиента", progress -> reportService.getContractsByCustomer(customerId), list -> {
             contracts.setAll(list);
             operations.clear();
+            exportJob = () -> reportJobService.submitContractsExport(customerId, false);
 
             if (list.isEmpty()) {
                 showInfo("Договоры клиента", "У клиента нет договоров.");
             }
 
             refreshExportButton();
-
-        } catch (Exception ex) {
-            showError("Договоры клиента", ex.toString());
-        }
+        });
     }
 
     @FXML
@@ -522,20 +578,18 @@ public class ReportsController {
             return;
         }
 
-        try {
-            List<DepositContract> list = reportService.getActiveContractsByCustomer(customer.getId());
+        Long customerId = customer.getId();
+        runScreenReport("Активные вклады", progress -> reportService.getActiveContractsByCustomer(customerId), list -> {
             contracts.setAll(list);
             operations.clear();
+            exportJob = () -> reportJobService.submitContractsExport(customerId, true);
 
             if (list.isEmpty()) {
                 showInfo("Активные вклады", "У клиента нет активных вкладов.");
             }
 
             refreshExportButton();
-
-        } catch (Exception ex) {
-            showError("Активные вклады", ex.toString());
-        }
+        });
     }
 
     @FXML
@@ -560,61 +614,282 @@ public class ReportsController {
         Customer customer = customerComboBox != null ? customerComboBox.getValue() : null;
         Long customerId = customer != null ? customer.getId() : null; // null = все клиенты
 
-        try {
-            List<DepositOperation> list = reportService.getOperationsByPeriodAndTypeForCustomer(
-                    customerId,
-                    from,
-                    to,
-                    type
-            );
+        int maxRows = screenMaxRows;
+        runScreenReport(
+                "Операции за период",
+                progress -> reportService.getOperationsForScreen(customerId, from, to, type, maxRows, progress),
+                (ReportRows<OperationRow> result) -> {
+                    operations.setAll(result.rows());
+                    contracts.clear();
+                    exportJob = () -> reportJobService.submitOperationsExport(customerId, from, to, type);
+
+                    refreshExportButton();
+
+                    if (result.rows().isEmpty()) {
+                        showInfo("Операции за период", "За выбранный период операций не найдено.");
+                    } else if (result.truncated()) {
+                        showInfo("Операции за период", "Показаны первые " + maxRows
+                                + " операций. Полный отчёт можно получить экспортом в Excel.");
+                    }
+                }
+        );
+    }
 
-            operations.setAll(list);
-            contracts.clear();
+    /**
+     * Итоги оборотов за период по типам операций (с учётом фильтров клиента и типа).
+     */
+    @FXML
+    private void onBuildTurnoverTotals() {
+        LocalDate from = fromDatePicker != null ? fromDatePicker.getValue() : null;
+        LocalDate to = toDatePicker != null ? toDatePicker.getValue() : null;
 
-            if (list.isEmpty()) {
-                showInfo("Операции за период", "За выбранный период операций не найдено.");
+        if (from == null || to == null) {
+            showError("Итоги за период", "Укажите обе даты периода.");
+            return;
+        }
+
+        if (to.isBefore(from)) {
+            showError("Итоги за период", "Дата 'по' не может быть раньше даты 'с'.");
+            return;
+        }
+
+        DepositOperationType type = operationTypeComboBox != null
+                ? operationTypeComboBox.getValue()
+                : null;
+
+        Customer customer = customerComboBox != null ? customerComboBox.getValue() : null;
+        Long customerId = customer != null ? customer.getId() : null; // null = все клиенты
+
+        runScreenReport(
+                "Итоги за период",
+                progress -> turnoverQueryService.getTotalsByType(from, to, customerId),
+                (Map<DepositOperationType, TurnoverTotal> totals) -> {
+                    StringBuilder text = new StringBuilder("Период: " + from + " — " + to + "\n");
+                    for (TurnoverTotal total : totals.values()) {
+                        if (type == null || total.type() == type) {
+                            text.append('\n')
+                                    .append(total.type().name())
+                                    .append(": ")
+                                    .append(total.operationCount())
+                                    .append(" оп. на сумму ")
+                                    .append(total.totalAmount().toPlainString());
+                        }
+                    }
+
+                    boolean empty = totals.isEmpty() || (type != null && !totals.containsKey(type));
+                    showInfo("Итоги за период", empty
+                            ? "За выбранный период операций не найдено."
+                            : text.toString());
+                }
+        );
+    }
+
+    /**
+     * Строит отчёт для экрана в фоновом потоке. Ход показывается в строке
+     * состояния, отмена прерывает чтение на следующей строке; новый отчёт
+     * отменяет недостроенный предыдущий. onLoaded вызывается в потоке FX.
+     */
+    private <T> void runScreenReport(String title, Function<ReportProgress, T> query, Consumer<T> onLoaded) {
+        cancelScreenReport();
+
+        Task<T> task = new Task<>() {
+
+            private long rows;
+
+            @Override
+            protected T call() {
+                updateMessage(title + ": строится…");
+                return query.apply(() -> {
+                    if (isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    if (++rows % SCREEN_PROGRESS_ROWS == 0) {
+                        updateMessage(title + ": прочитано строк: " + rows);
+                    }
+                });
             }
+        };
 
-            refreshExportButton();
+        task.messageProperty().addListener((obs, oldVal, newVal) -> showReportState(newVal));
+        task.setOnSucceeded(e -> {
+            finishScreenReport(task);
+            showReportState(title + ": готово");
+            onLoaded.accept(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            finishScreenReport(task);
+            showReportState(title + ": ошибка");
+            showError(title, String.valueOf(task.getException()));
+        });
+        task.setOnCancelled(e -> {
+            if (finishScreenReport(task)) {
+                showReportState(title + ": отменено");
+            }
+        });
 
-        } catch (Exception ex) {
-            showError("Операции за период", ex.toString());
+        screenTask = task;
+        refreshCancelButton();
+
+        Thread thread = new Thread(task, "report-screen");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private boolean finishScreenReport(Task<?> task) {
+        if (screenTask != task) {
+            return false;
+        }
+        screenTask = null;
+        refreshCancelButton();
+        return true;
+    }
+
+    private void cancelScreenReport() {
+        if (screenTask != null) {
+            screenTask.cancel();
         }
     }
 
     @FXML
     private void onClearResults() {
+        cancelScreenReport();
         contracts.clear();
         operations.clear();
+        exportJob = null;
         refreshExportButton();
     }
 
     // ---------------------- Export to Excel ----------------------
 
     /**
-     * Экспортирует текущий результат (то, что показано в таблицах) в Excel.
+     * Ставит экспорт текущего отчёта в Excel в очередь фоновых заданий.
      *
-     * Правило:
-     * - Если есть договоры -> лист "Договоры"
-     * - Если есть операции -> лист "Операции"
-     * - Можно экспортировать оба сразу (если не пусты оба списка)
+     * Отчёт заново читается из БД с теми же параметрами, что и построенный
+     * на экране (для операций — потоком, без загрузки в память). Состояние
+     * задания опрашивается каждые JOB_POLL_MS; когда файл готов, предлагается
+     * выбрать, куда его сохранить.
      */
     @FXML
     private void onExportToExcel() {
-        boolean hasContracts = contracts != null && !contracts.isEmpty();
-        boolean hasOperations = operations != null && !operations.isEmpty();
-
-        if (!hasContracts && !hasOperations) {
+        if (exportJob == null) {
             showError("Экспорт в Excel", "Нет данных для экспорта. Сначала постройте отчёт.");
             return;
         }
+        if (currentJobId != null) {
+            showError("Экспорт в Excel", "Отчёт уже формируется. Дождитесь окончания или отмените его.");
+            return;
+        }
+
+        try {
+            ReportJobStatus job = exportJob.get();
+            currentJobId = job.id();
+            showJobStatus(job);
+            startJobPolling();
 
+        } catch (Exception ex) {
+            showError("Экспорт в Excel", ex.toString());
+        }
+    }
+
+    /**
+     * Отменяет строящийся для экрана отчёт и выполняющийся экспорт.
+     */
+    @FXML
+    private void onCancelReportJob() {
+        cancelScreenReport();
+        if (currentJobId == null) {
+            return;
+        }
+
+        try {
+            reportJobService.cancel(currentJobId);
+        } catch (Exception ex) {
+            showError("Экспорт в Excel", ex.toString());
+        }
+    }
+
+    private void startJobPolling() {
+        if (jobPoller == null) {
+            jobPoller = new Timeline(new KeyFrame(Duration.millis(JOB_POLL_MS), e -> pollJob()));
+            jobPoller.setCycleCount(Animation.INDEFINITE);
+        }
+        jobPoller.play();
+    }
+
+    private void pollJob() {
+        if (currentJobId == null) {
+            jobPoller.stop();
+            return;
+        }
+
+        ReportJobStatus job;
+        try {
+            job = reportJobService.getJob(currentJobId);
+        } catch (Exception ex) {
+            stopJobPolling();
+            Platform.runLater(() -> showError("Экспорт в Excel", ex.toString()));
+            return;
+        }
+
+        showJobStatus(job);
+        if (!job.isFinished()) {
+            return;
+        }
+
+        stopJobPolling();
+
+        // Диалоги нельзя открывать из обработчика Timeline
+        switch (job.state()) {
+            case COMPLETED -> Platform.runLater(() -> saveJobResult(job));
+            case FAILED -> Platform.runLater(() -> showError("Экспорт в Excel", job.error()));
+            default -> {
+            }
+        }
+    }
+
+    private void stopJobPolling() {
+        currentJobId = null;
+        jobPoller.stop();
+        refreshCancelButton();
+    }
+
+    private void refreshCancelButton() {
+        if (cancelReportJobButton != null) {
+            cancelReportJobButton.setDisable(screenTask == null && currentJobId == null);
+        }
+    }
+
+    private void showReportState(String text) {
+        if (reportJobLabel != null && text != null) {
+            reportJobLabel.setText(text);
+        }
+    }
+
+    private void showJobStatus(ReportJobStatus job) {
+        if (cancelReportJobButton != null) {
+            cancelReportJobButton.setDisable(job.isFinished() && screenTask == null);
+        }
+        if (reportJobLabel == null) {
+            return;
+        }
+
+        String state = switch (job.state()) {
+            case QUEUED -> "в очереди";
+            case RUNNING -> "записано строк: " + job.rowsProcessed();
+            case COMPLETED -> "готово, строк: " + job.rowsProcessed();
+            case FAILED -> "ошибка";
+            case CANCELLED -> "отменено";
+        };
+        reportJobLabel.setText(job.title() + ": " + state);
+    }
+
+    private void saveJobResult(ReportJobStatus job) {
         FileChooser chooser = new FileChooser();
         chooser.setTitle("Сохранить отчёт в Excel");
         chooser.getExtensionFilters().add(
                 new FileChooser.ExtensionFilter("Excel файл (*.xlsx)", "*.xlsx")
         );
-        chooser.setInitialFileName(buildDefaultExcelFileName(hasContracts, hasOperations));
+        chooser.setInitialFileName(job.fileName());
 
         File file = chooser.showSaveDialog(
                 exportExcelButton != null && exportExcelButton.getScene() != null
@@ -632,11 +907,7 @@ public class ReportsController {
         }
 
         try {
-            List<DepositContract> exportContracts = hasContracts ? new ArrayList<>(contracts) : null;
-            List<DepositOperation> exportOperations = hasOperations ? new ArrayList<>(operations) : null;
-
-            reportService.exportReportsToExcel(exportContracts, exportOperations, file);
-
+            reportJobService.saveResult(job.id(), file);
             showInfo("Экспорт в Excel", "Отчёт сохранён:\n" + file.getAbsolutePath());
 
         } catch (Exception ex) {
@@ -644,30 +915,13 @@ public class ReportsController {
         }
     }
 
-    private String buildDefaultExcelFileName(boolean hasContracts, boolean hasOperations) {
-        String suffix;
-        if (hasContracts && hasOperations) {
-            suffix = "contracts_and_operations";
-        } else if (hasContracts) {
-            suffix = "contracts";
-        } else {
-            suffix = "operations";
-        }
-
-        String date = LocalDate.now().toString();
-        return "report_" + suffix + "_" + date + ".xlsx";
-    }
-
     // ---------------------- Helpers ----------------------
 
-    private String formatCustomerShort(Customer c) {
-        if (c == null) {
-            return "";
-        }
-        String middle = c.getMiddleName() != null && !c.getMiddleName().isBlank()
-                ? " " + c.getMiddleName().trim()
+    private String formatCustomerShort(String lastName, String firstName, String middleName) {
+        String middle = middleName != null && !middleName.isBlank()
+                ? " " + middleName.trim()
                 : "";
-        return (safe(c.getLastName()) + " " + safe(c.getFirstName()) + middle).trim();
+        return (safe(lastName) + " " + safe(firstName) + middle).trim();
     }
 
     private String safe(String s) {
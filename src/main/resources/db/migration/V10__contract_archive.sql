@@ -0,0 +1,111 @@
+-- Архив закрытых договоров: договоры, закрытые дольше заданного срока, вместе с операциями
+-- переносятся из рабочих таблиц в архивные. Рабочие таблицы и их индексы остаются
+-- размером с активную часть портфеля; отчёты читают архив через представления *_all
+-- или отдельными запросами, когда период отчёта его затрагивает.
+
+CREATE TABLE IF NOT EXISTS deposit_contracts_archive
+(
+    id                   BIGINT         NOT NULL PRIMARY KEY,
+    contract_number      VARCHAR(50)    NOT NULL,
+    customer_id          BIGINT         NOT NULL REFERENCES customers (id),
+    product_id           BIGINT         NOT NULL REFERENCES deposit_products (id),
+    status               VARCHAR(20)    NOT NULL,
+    open_date            DATE           NOT NULL,
+    close_date           DATE,
+    initial_amount       NUMERIC(19, 2) NOT NULL,
+    current_balance      NUMERIC(19, 2) NOT NULL,
+    interest_rate        NUMERIC(7, 4)  NOT NULL,
+    last_accrual_date    DATE,
+    accrued_through_date DATE,
+    version              BIGINT         NOT NULL,
+    archived_at          TIMESTAMP(6)   NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS ix_deposit_contracts_archive_customer_id
+    ON deposit_contracts_archive (customer_id);
+
+-- Архив не секционирован: строки только добавляются и читаются диапазонами
+CREATE TABLE IF NOT EXISTS deposit_operations_archive
+(
+    id                 BIGINT         NOT NULL PRIMARY KEY,
+    contract_id        BIGINT         NOT NULL REFERENCES deposit_contracts_archive (id),
+    amount             NUMERIC(19, 2) NOT NULL,
+    operation_datetime TIMESTAMP(6)   NOT NULL,
+    operation_type     VARCHAR(30)    NOT NULL,
+    description        VARCHAR(255),
+    accrual_date       DATE,
+    balance_after      NUMERIC(19, 2)
+);
+
+CREATE INDEX IF NOT EXISTS ix_deposit_operations_archive_contract_datetime
+    ON deposit_operations_archive (contract_id, operation_datetime, id);
+
+CREATE INDEX IF NOT EXISTS ix_deposit_operations_archive_datetime
+    ON deposit_operations_archive (operation_datetime);
+
+-- Снимки остатков архивных договоров остаются на месте (нужны для остатков на прошлые даты)
+ALTER TABLE balance_snapshots
+    DROP CONSTRAINT IF EXISTS balance_snapshots_contract_id_fkey;
+
+-- Все договоры и все операции: рабочие + архив
+CREATE OR REPLACE VIEW deposit_contracts_all AS
+SELECT id, contract_number, customer_id, product_id, status, open_date, close_date,
+       initial_amount, current_balance, interest_rate
+FROM deposit_contracts
+UNION ALL
+SELECT id, contract_number, customer_id, product_id, status, open_date, close_date,
+       initial_amount, current_balance, interest_rate
+FROM deposit_contracts_archive;
+
+CREATE OR REPLACE VIEW deposit_operations_all AS
+SELECT id, contract_id, amount, operation_datetime, operation_type, description, accrual_date, balance_after
+FROM deposit_operations
+UNION ALL
+SELECT id, contract_id, amount, operation_datetime, operation_type, description, accrual_date, balance_after
+FROM deposit_operations_archive;
+
+-- Перенос в архив — не отмена операций: обороты в daily_turnover сохраняются.
+-- Архивация включает признак bankdeposit.archiving до конца своей транзакции.
+CREATE OR REPLACE FUNCTION daily_turnover_apply()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql
+AS
+$$
+BEGIN
+    IF TG_OP = 'DELETE' AND coalesce(current_setting('bankdeposit.archiving', TRUE), '') = 'on' THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+        INSERT INTO daily_turnover AS t (turnover_date, contract_id, product_id, operation_type,
+                                         total_amount, operation_count)
+        SELECT o.operation_datetime::DATE, o.contract_id, dc.product_id, o.operation_type,
+               -SUM(o.amount), -COUNT(*)
+        FROM old_rows o
+        JOIN deposit_contracts dc ON dc.id = o.contract_id
+        GROUP BY o.operation_datetime::DATE, o.contract_id, dc.product_id, o.operation_type
+        ON CONFLICT (turnover_date, contract_id, product_id, operation_type) DO UPDATE
+            SET total_amount    = t.total_amount + excluded.total_amount,
+                operation_count = t.operation_count + excluded.operation_count;
+
+        DELETE FROM daily_turnover t
+        WHERE t.operation_count = 0
+          AND (t.turnover_date, t.contract_id) IN (SELECT o.operation_datetime::DATE, o.contract_id FROM old_rows o);
+    END IF;
+
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        INSERT INTO daily_turnover AS t (turnover_date, contract_id, product_id, operation_type,
+                                         total_amount, operation_count)
+        SELECT n.operation_datetime::DATE, n.contract_id, dc.product_id, n.operation_type,
+               SUM(n.amount), COUNT(*)
+        FROM new_rows n
+        JOIN deposit_contracts dc ON dc.id = n.contract_id
+        GROUP BY n.operation_datetime::DATE, n.contract_id, dc.product_id, n.operation_type
+        ON CONFLICT (turnover_date, contract_id, product_id, operation_type) DO UPDATE
+            SET total_amount    = t.total_amount + excluded.total_amount,
+                operation_count = t.operation_count + excluded.operation_count;
+    END IF;
+
+    RETURN NULL;
+END;
+$$;
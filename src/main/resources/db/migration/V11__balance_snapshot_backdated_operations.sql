@@ -0,0 +1,77 @@
+-- Операция, датированная днём, за который снимок уже снят (начисление за вчера после 00:10,
+-- повторный запуск или догоняющее начисление за прошлую дату), меняет остаток
+-- этого и всех следующих снимков договора. Триггер уровня оператора пересчитывает
+-- такие снимки в той же транзакции, что и сама операция; операции текущего дня
+-- снимков не задевают (снимок возможен только за завершившийся день).
+
+CREATE OR REPLACE FUNCTION balance_snapshots_apply()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql
+AS
+$$
+BEGIN
+    -- Перенос в архив — не отмена операций: снимки архивных договоров остаются верными
+    IF TG_OP = 'DELETE' AND coalesce(current_setting('bankdeposit.archiving', TRUE), '') = 'on' THEN
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+        UPDATE balance_snapshots s
+        SET balance = s.balance - d.delta
+        FROM (SELECT bs.id,
+                     SUM(CASE
+                             WHEN o.operation_type = 'WITHDRAWAL' THEN -o.amount
+                             WHEN o.operation_type IN ('OPENING', 'DEPOSIT', 'INTEREST_ACCRUAL') THEN o.amount
+                             ELSE 0
+                         END) AS delta
+              FROM old_rows o
+              JOIN balance_snapshots bs
+                   ON bs.contract_id = o.contract_id
+                       AND bs.snapshot_date >= o.operation_datetime::DATE
+              GROUP BY bs.id) d
+        WHERE s.id = d.id
+          AND d.delta <> 0;
+    END IF;
+
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        UPDATE balance_snapshots s
+        SET balance = s.balance + d.delta
+        FROM (SELECT bs.id,
+                     SUM(CASE
+                             WHEN n.operation_type = 'WITHDRAWAL' THEN -n.amount
+                             WHEN n.operation_type IN ('OPENING', 'DEPOSIT', 'INTEREST_ACCRUAL') THEN n.amount
+                             ELSE 0
+                         END) AS delta
+              FROM new_rows n
+              JOIN balance_snapshots bs
+                   ON bs.contract_id = n.contract_id
+                       AND bs.snapshot_date >= n.operation_datetime::DATE
+              GROUP BY bs.id) d
+        WHERE s.id = d.id
+          AND d.delta <> 0;
+    END IF;
+
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER trg_deposit_operations_snapshots_insert
+    AFTER INSERT
+    ON deposit_operations
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION balance_snapshots_apply();
+
+CREATE TRIGGER trg_deposit_operations_snapshots_update
+    AFTER UPDATE
+    ON deposit_operations
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION balance_snapshots_apply();
+
+CREATE TRIGGER trg_deposit_operations_snapshots_delete
+    AFTER DELETE
+    ON deposit_operations
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION balance_snapshots_apply();
@@ -0,0 +1,78 @@
+-- Исходная схема, ранее создававшаяся через spring.jpa.hibernate.ddl-auto=update.
+-- Все операторы идемпотентны, поэтому миграция безопасна и для уже существующей БД.
+
+CREATE TABLE IF NOT EXISTS users
+(
+    id        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    username  VARCHAR(50)  NOT NULL,
+    password  VARCHAR(100) NOT NULL,
+    full_name VARCHAR(100),
+    role      VARCHAR(20)  NOT NULL,
+    active    BOOLEAN      NOT NULL,
+    CONSTRAINT uk_users_username UNIQUE (username)
+);
+
+CREATE TABLE IF NOT EXISTS customers
+(
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    last_name       VARCHAR(100) NOT NULL,
+    first_name      VARCHAR(100) NOT NULL,
+    middle_name     VARCHAR(100),
+    date_of_birth   DATE,
+    passport_number VARCHAR(50),
+    phone           VARCHAR(30),
+    email           VARCHAR(100),
+    address         VARCHAR(255),
+    CONSTRAINT uk_customers_passport_number UNIQUE (passport_number)
+);
+
+CREATE TABLE IF NOT EXISTS deposit_products
+(
+    id                       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name                     VARCHAR(100) NOT NULL,
+    description              VARCHAR(500),
+    min_amount               NUMERIC(18, 2),
+    max_amount               NUMERIC(18, 2),
+    term_months              INTEGER,
+    base_interest_rate       NUMERIC(5, 2),
+    allow_replenishment      BOOLEAN,
+    allow_partial_withdrawal BOOLEAN,
+    capitalization           BOOLEAN
+);
+
+CREATE TABLE IF NOT EXISTS deposit_contracts
+(
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    contract_number VARCHAR(50)    NOT NULL,
+    customer_id     BIGINT         NOT NULL REFERENCES customers (id),
+    product_id      BIGINT         NOT NULL REFERENCES deposit_products (id),
+    status          VARCHAR(20)    NOT NULL,
+    open_date       DATE           NOT NULL,
+    close_date      DATE,
+    initial_amount  NUMERIC(19, 2) NOT NULL,
+    current_balance NUMERIC(19, 2) NOT NULL,
+    interest_rate   NUMERIC(7, 4)  NOT NULL,
+    CONSTRAINT uk_deposit_contracts_contract_number UNIQUE (contract_number)
+);
+
+CREATE TABLE IF NOT EXISTS deposit_operations
+(
+    id                 BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    contract_id        BIGINT         NOT NULL REFERENCES deposit_contracts (id),
+    amount             NUMERIC(19, 2) NOT NULL,
+    operation_datetime TIMESTAMP(6)   NOT NULL,
+    operation_type     VARCHAR(30)    NOT NULL,
+    description        VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS accrual_checkpoints
+(
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    accrual_date     DATE         NOT NULL,
+    last_contract_id BIGINT       NOT NULL,
+    processed_count  INTEGER      NOT NULL,
+    accrued_count    INTEGER      NOT NULL,
+    completed        BOOLEAN      NOT NULL,
+    updated_at       TIMESTAMP(6) NOT NULL,
+    CONSTRAINT uk_accrual_checkpoints_accrual_date UNIQUE (accrual_date)
+);
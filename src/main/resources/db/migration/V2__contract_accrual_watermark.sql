@@ -0,0 +1,23 @@
+-- Отметка последнего начисления процентов на договоре.
+-- Избавляет автоначисление от чтения всей истории операций договора.
+
+ALTER TABLE deposit_contracts
+    ADD COLUMN IF NOT EXISTS last_accrual_date DATE;
+
+ALTER TABLE deposit_contracts
+    ADD COLUMN IF NOT EXISTS accrued_through_date DATE;
+
+-- Заполнение по существующей истории: последняя операция INTEREST_ACCRUAL
+UPDATE deposit_contracts dc
+SET last_accrual_date = acc.last_date
+FROM (SELECT contract_id,
+             MAX(operation_datetime)::DATE AS last_date
+      FROM deposit_operations
+      WHERE operation_type = 'INTEREST_ACCRUAL'
+      GROUP BY contract_id) acc
+WHERE acc.contract_id = dc.id;
+
+-- Без начислений проценты считаются с даты открытия
+UPDATE deposit_contracts
+SET accrued_through_date = COALESCE(last_accrual_date, open_date)
+WHERE accrued_through_date IS NULL;
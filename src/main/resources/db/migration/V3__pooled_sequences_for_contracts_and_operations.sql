@@ -0,0 +1,31 @@
+-- Договоры и операции переходят с IDENTITY на последовательности с шагом 50
+-- (pooled-оптимизатор Hibernate), что включает пакетную вставку через JDBC.
+-- Существующие id не меняются.
+--
+-- Pooled-оптимизатор считает полученное значение верхней границей блока
+-- (value - 49; value], поэтому следующее значение = max(id) + 50.
+
+CREATE SEQUENCE IF NOT EXISTS deposit_contracts_seq INCREMENT BY 50;
+
+SELECT setval('deposit_contracts_seq', (SELECT COALESCE(MAX(id), 0) FROM deposit_contracts) + 50, false);
+
+ALTER TABLE deposit_contracts
+    ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+ALTER TABLE deposit_contracts
+    ALTER COLUMN id SET DEFAULT nextval('deposit_contracts_seq');
+
+CREATE SEQUENCE IF NOT EXISTS deposit_operations_seq INCREMENT BY 50;
+
+SELECT setval('deposit_operations_seq', (SELECT COALESCE(MAX(id), 0) FROM deposit_operations) + 50, false);
+
+ALTER TABLE deposit_operations
+    ALTER COLUMN id DROP IDENTITY IF EXISTS;
+
+-- Значение по умолчанию нужно для вставок из SQL (set-based начисление):
+-- такая строка получает id, равный границе блока, который Hibernate уже не выдаст.
+ALTER TABLE deposit_operations
+    ALTER COLUMN id SET DEFAULT nextval('deposit_operations_seq');
+
+ALTER SEQUENCE deposit_contracts_seq OWNED BY deposit_contracts.id;
+ALTER SEQUENCE deposit_operations_seq OWNED BY deposit_operations.id;
@@ -0,0 +1,45 @@
+-- Идемпотентность пакетного начисления и журнал прогонов.
+
+-- Дата, за которую выполнено автоначисление; у прочих операций NULL
+ALTER TABLE deposit_operations
+    ADD COLUMN IF NOT EXISTS accrual_date DATE;
+
+-- Заполнение по существующей истории: первое автоначисление договора за каждую дату
+UPDATE deposit_operations o
+SET accrual_date = first_acc.accrual_date
+FROM (SELECT DISTINCT ON (contract_id, operation_datetime::DATE)
+             id,
+             operation_datetime::DATE AS accrual_date
+      FROM deposit_operations
+      WHERE operation_type = 'INTEREST_ACCRUAL'
+        AND description LIKE 'Автоначисление%'
+      ORDER BY contract_id, operation_datetime::DATE, id) first_acc
+WHERE o.id = first_acc.id
+  AND o.accrual_date IS NULL;
+
+-- Не больше одного автоначисления на договор за дату
+CREATE UNIQUE INDEX IF NOT EXISTS ux_deposit_operations_contract_accrual_date
+    ON deposit_operations (contract_id, accrual_date)
+    WHERE accrual_date IS NOT NULL;
+
+ALTER TABLE accrual_checkpoints
+    ADD COLUMN IF NOT EXISTS failed_count INTEGER NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS accrual_runs
+(
+    id                  BIGSERIAL PRIMARY KEY,
+    accrual_date        DATE        NOT NULL,
+    strategy            VARCHAR(20) NOT NULL,
+    status              VARCHAR(20) NOT NULL,
+    started_at          TIMESTAMP   NOT NULL,
+    finished_at         TIMESTAMP,
+    duration_ms         BIGINT,
+    contracts_processed INTEGER,
+    contracts_accrued   INTEGER,
+    contracts_skipped   INTEGER,
+    contracts_failed    INTEGER,
+    error_message       VARCHAR(1000)
+);
+
+CREATE INDEX IF NOT EXISTS ix_accrual_runs_accrual_date
+    ON accrual_runs (accrual_date);
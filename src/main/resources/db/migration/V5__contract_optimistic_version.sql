@@ -0,0 +1,5 @@
+-- Версия строки договора для оптимистической блокировки.
+-- SQL-проводки (пополнение/снятие, set-based начисление) тоже увеличивают её.
+
+ALTER TABLE deposit_contracts
+    ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,31 @@
+-- Остаток по договору после каждой операции.
+-- Остаток на момент X — последняя операция договора не позже X.
+
+ALTER TABLE deposit_operations
+    ADD COLUMN IF NOT EXISTS balance_after NUMERIC(19, 2);
+
+-- Заполнение истории: от текущего остатка договора назад по операциям.
+-- Остаток после операции = текущий остаток минус все более поздние движения;
+-- CLOSING, FREEZE и UNFREEZE баланс не меняют.
+UPDATE deposit_operations o
+SET balance_after = h.balance_after
+FROM (SELECT op.id,
+             dc.current_balance
+                 - COALESCE(SUM(CASE op.operation_type
+                                    WHEN 'WITHDRAWAL' THEN -op.amount
+                                    WHEN 'OPENING' THEN op.amount
+                                    WHEN 'DEPOSIT' THEN op.amount
+                                    WHEN 'INTEREST_ACCRUAL' THEN op.amount
+                                    ELSE 0
+                                END)
+                            OVER (PARTITION BY op.contract_id
+                                ORDER BY op.operation_datetime DESC, op.id DESC
+                                ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING), 0) AS balance_after
+      FROM deposit_operations op
+      JOIN deposit_contracts dc ON dc.id = op.contract_id) h
+WHERE o.id = h.id
+  AND o.balance_after IS NULL;
+
+-- Поиск последней операции договора не позже момента X без обращения к таблице
+CREATE INDEX IF NOT EXISTS ix_deposit_operations_contract_datetime
+    ON deposit_operations (contract_id, operation_datetime, id) INCLUDE (balance_after);
@@ -0,0 +1,11 @@
+-- Снимки остатков по договорам на конец дня (ежедневные или на конец месяца).
+-- Остаток на дату X = ближайший снимок не позже X + движения после него.
+
+CREATE TABLE IF NOT EXISTS balance_snapshots
+(
+    id            BIGSERIAL PRIMARY KEY,
+    contract_id   BIGINT         NOT NULL REFERENCES deposit_contracts (id),
+    snapshot_date DATE           NOT NULL,
+    balance       NUMERIC(19, 2) NOT NULL,
+    CONSTRAINT uk_balance_snapshots_contract_date UNIQUE (contract_id, snapshot_date)
+);
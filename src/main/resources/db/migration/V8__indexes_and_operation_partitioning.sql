@@ -0,0 +1,149 @@
+-- Индексы под запросы репозиториев и помесячное секционирование deposit_operations
+-- по operation_datetime.
+
+-- ---------------------- Договоры ----------------------
+
+-- Пакетное начисление и прогноз выбирают OPEN-договоры по диапазонам id
+CREATE INDEX IF NOT EXISTS ix_deposit_contracts_open_id
+    ON deposit_contracts (id)
+    WHERE status = 'OPEN';
+
+CREATE INDEX IF NOT EXISTS ix_deposit_contracts_customer_id
+    ON deposit_contracts (customer_id);
+
+CREATE INDEX IF NOT EXISTS ix_deposit_contracts_product_id
+    ON deposit_contracts (product_id);
+
+-- ---------------------- Операции ----------------------
+
+ALTER TABLE deposit_operations
+    RENAME TO deposit_operations_legacy;
+
+DROP INDEX IF EXISTS ux_deposit_operations_contract_accrual_date;
+DROP INDEX IF EXISTS ix_deposit_operations_contract_datetime;
+
+-- Последовательность переходит к новой таблице и не должна удалиться вместе со старой
+ALTER SEQUENCE deposit_operations_seq OWNED BY NONE;
+
+-- Ключ секционирования входит в первичный ключ.
+-- Автоначисление датируется днём начисления, поэтому accrual_date лежит в том же
+-- месяце, что и operation_datetime: все операции договора за одну дату попадают
+-- в одну секцию, и уникальность (contract_id, accrual_date) обеспечивается
+-- уникальным индексом каждой секции.
+CREATE TABLE deposit_operations
+(
+    id                 BIGINT         NOT NULL DEFAULT nextval('deposit_operations_seq'),
+    contract_id        BIGINT         NOT NULL REFERENCES deposit_contracts (id),
+    amount             NUMERIC(19, 2) NOT NULL,
+    operation_datetime TIMESTAMP(6)   NOT NULL,
+    operation_type     VARCHAR(30)    NOT NULL,
+    description        VARCHAR(255),
+    accrual_date       DATE,
+    balance_after      NUMERIC(19, 2),
+    CONSTRAINT pk_deposit_operations PRIMARY KEY (id, operation_datetime),
+    CONSTRAINT ck_deposit_operations_accrual_month
+        CHECK (accrual_date IS NULL
+            OR date_trunc('month', accrual_date::TIMESTAMP) = date_trunc('month', operation_datetime))
+) PARTITION BY RANGE (operation_datetime);
+
+ALTER SEQUENCE deposit_operations_seq OWNED BY deposit_operations.id;
+
+-- История договора, курсорные страницы, остаток на момент
+CREATE INDEX ix_deposit_operations_contract_datetime
+    ON deposit_operations (contract_id, operation_datetime, id) INCLUDE (balance_after);
+
+-- findByOperationDateTimeBetween
+CREATE INDEX ix_deposit_operations_datetime
+    ON deposit_operations (operation_datetime);
+
+-- findByTypeAndOperationDateTimeBetween
+CREATE INDEX ix_deposit_operations_type_datetime
+    ON deposit_operations (operation_type, operation_datetime);
+
+-- Операции вне созданных месяцев; переносятся в свою секцию при её создании
+CREATE TABLE deposit_operations_default PARTITION OF deposit_operations DEFAULT;
+
+CREATE UNIQUE INDEX ux_deposit_operations_default_accrual_date
+    ON deposit_operations_default (contract_id, accrual_date)
+    WHERE accrual_date IS NOT NULL;
+
+-- Создаёт секцию месяца p_month, если её нет. Строки этого месяца,
+-- попавшие в секцию по умолчанию, переносятся в новую секцию.
+-- Возвращает true, если секция создана.
+CREATE OR REPLACE FUNCTION create_deposit_operations_partition(p_month DATE)
+    RETURNS BOOLEAN
+    LANGUAGE plpgsql
+AS
+$$
+DECLARE
+    v_from DATE := date_trunc('month', p_month::TIMESTAMP)::DATE;
+    v_to   DATE := (date_trunc('month', p_month::TIMESTAMP) + INTERVAL '1 month')::DATE;
+    v_name TEXT := 'deposit_operations_' || to_char(v_from, 'YYYY_MM');
+BEGIN
+    IF to_regclass(v_name) IS NOT NULL THEN
+        RETURN FALSE;
+    END IF;
+
+    EXECUTE format('CREATE TABLE %I (LIKE deposit_operations INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', v_name);
+
+    EXECUTE format(
+            'WITH moved AS (DELETE FROM deposit_operations_default '
+                || 'WHERE operation_datetime >= %L AND operation_datetime < %L RETURNING *) '
+                || 'INSERT INTO %I (id, contract_id, amount, operation_datetime, operation_type, description, '
+                || 'accrual_date, balance_after) '
+                || 'SELECT id, contract_id, amount, operation_datetime, operation_type, description, '
+                || 'accrual_date, balance_after FROM moved',
+            v_from, v_to, v_name);
+
+    EXECUTE format('CREATE UNIQUE INDEX %I ON %I (contract_id, accrual_date) WHERE accrual_date IS NOT NULL',
+                   'ux_' || v_name || '_accrual_date', v_name);
+
+    EXECUTE format('ALTER TABLE deposit_operations ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   v_name, v_from, v_to);
+
+    RETURN TRUE;
+END;
+$$;
+
+-- Секции на p_months месяцев начиная с месяца p_from; возвращает число созданных.
+CREATE OR REPLACE FUNCTION ensure_deposit_operations_partitions(p_from DATE, p_months INTEGER)
+    RETURNS INTEGER
+    LANGUAGE plpgsql
+AS
+$$
+DECLARE
+    v_created INTEGER := 0;
+BEGIN
+    FOR i IN 0 .. p_months - 1
+        LOOP
+            IF create_deposit_operations_partition((p_from + make_interval(months => i))::DATE) THEN
+                v_created := v_created + 1;
+            END IF;
+        END LOOP;
+    RETURN v_created;
+END;
+$$;
+
+-- Секции на всю имеющуюся историю и год вперёд
+SELECT ensure_deposit_operations_partitions(
+               h.first_day,
+               ((date_part('year', CURRENT_DATE) - date_part('year', h.first_day)) * 12
+                   + date_part('month', CURRENT_DATE) - date_part('month', h.first_day))::INTEGER + 13)
+FROM (SELECT COALESCE(MIN(operation_datetime)::DATE, CURRENT_DATE) AS first_day
+      FROM deposit_operations_legacy) h;
+
+INSERT INTO deposit_operations (id, contract_id, amount, operation_datetime, operation_type, description,
+                                accrual_date, balance_after)
+SELECT id,
+       contract_id,
+       amount,
+       operation_datetime,
+       operation_type,
+       description,
+       accrual_date,
+       balance_after
+FROM deposit_operations_legacy;
+
+DROP TABLE deposit_operations_legacy;
+
+ANALYZE deposit_operations;
@@ -0,0 +1,88 @@
+-- Дневные обороты: сумма и число операций за день по договору, продукту и типу операции.
+-- Ведутся триггерами deposit_operations в той же транзакции, что и сама операция,
+-- поэтому учитываются все пути записи (Java-проводки, SQL-проводки, set-based начисление).
+
+CREATE TABLE IF NOT EXISTS daily_turnover
+(
+    turnover_date   DATE           NOT NULL,
+    contract_id     BIGINT         NOT NULL,
+    product_id      BIGINT         NOT NULL,
+    operation_type  VARCHAR(30)    NOT NULL,
+    total_amount    NUMERIC(19, 2) NOT NULL,
+    operation_count BIGINT         NOT NULL,
+    CONSTRAINT pk_daily_turnover PRIMARY KEY (turnover_date, contract_id, product_id, operation_type)
+);
+
+CREATE INDEX IF NOT EXISTS ix_daily_turnover_contract_date
+    ON daily_turnover (contract_id, turnover_date);
+
+-- Триггер уровня оператора: строки оператора сворачиваются в одну вставку на группу,
+-- поэтому set-based начисление обновляет обороты одним запросом.
+CREATE OR REPLACE FUNCTION daily_turnover_apply()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql
+AS
+$$
+BEGIN
+    IF TG_OP IN ('DELETE', 'UPDATE') THEN
+        INSERT INTO daily_turnover AS t (turnover_date, contract_id, product_id, operation_type,
+                                         total_amount, operation_count)
+        SELECT o.operation_datetime::DATE, o.contract_id, dc.product_id, o.operation_type,
+               -SUM(o.amount), -COUNT(*)
+        FROM old_rows o
+        JOIN deposit_contracts dc ON dc.id = o.contract_id
+        GROUP BY o.operation_datetime::DATE, o.contract_id, dc.product_id, o.operation_type
+        ON CONFLICT (turnover_date, contract_id, product_id, operation_type) DO UPDATE
+            SET total_amount    = t.total_amount + excluded.total_amount,
+                operation_count = t.operation_count + excluded.operation_count;
+
+        DELETE FROM daily_turnover t
+        WHERE t.operation_count = 0
+          AND (t.turnover_date, t.contract_id) IN (SELECT o.operation_datetime::DATE, o.contract_id FROM old_rows o);
+    END IF;
+
+    IF TG_OP IN ('INSERT', 'UPDATE') THEN
+        INSERT INTO daily_turnover AS t (turnover_date, contract_id, product_id, operation_type,
+                                         total_amount, operation_count)
+        SELECT n.operation_datetime::DATE, n.contract_id, dc.product_id, n.operation_type,
+               SUM(n.amount), COUNT(*)
+        FROM new_rows n
+        JOIN deposit_contracts dc ON dc.id = n.contract_id
+        GROUP BY n.operation_datetime::DATE, n.contract_id, dc.product_id, n.operation_type
+        ON CONFLICT (turnover_date, contract_id, product_id, operation_type) DO UPDATE
+            SET total_amount    = t.total_amount + excluded.total_amount,
+                operation_count = t.operation_count + excluded.operation_count;
+    END IF;
+
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER trg_deposit_operations_turnover_insert
+    AFTER INSERT
+    ON deposit_operations
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION daily_turnover_apply();
+
+CREATE TRIGGER trg_deposit_operations_turnover_update
+    AFTER UPDATE
+    ON deposit_operations
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION daily_turnover_apply();
+
+CREATE TRIGGER trg_deposit_operations_turnover_delete
+    AFTER DELETE
+    ON deposit_operations
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT
+EXECUTE FUNCTION daily_turnover_apply();
+
+-- Обороты по уже накопленной истории
+INSERT INTO daily_turnover (turnover_date, contract_id, product_id, operation_type, total_amount, operation_count)
+SELECT o.operation_datetime::DATE, o.contract_id, dc.product_id, o.operation_type, SUM(o.amount), COUNT(*)
+FROM deposit_operations o
+JOIN deposit_contracts dc ON dc.id = o.contract_id
+GROUP BY o.operation_datetime::DATE, o.contract_id, dc.product_id, o.operation_type
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,220 @@
+package org.santayn.bankdeposit.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.santayn.bankdeposit.models.Customer;
+import org.santayn.bankdeposit.models.DepositContract;
+import org.santayn.bankdeposit.models.DepositProduct;
+import org.santayn.bankdeposit.repository.CustomerRepository;
+import org.santayn.bankdeposit.repository.DepositContractRepository;
+import org.santayn.bankdeposit.repository.DepositProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Проводка пополнения/снятия одним условным оператором:
+ * параллельные проводки не теряются, условия продукта соблюдаются.
+ * Конфликт версии договора приводит к повтору проводки.
+ * Каждая операция хранит остаток после себя.
+ *
+ * Проводки фиксируются в отдельных транзакциях, поэтому тест удаляет свои данные.
+ */
+@SpringBootTest
+class BalancePostingTests {
+
+    private static final String PRODUCT_NAME = "T-POSTING-продукт";
+
+    @Autowired
+    private DepositContractService depositContractService;
+
+    @Autowired
+    private DepositOperationService depositOperationService;
+
+    @Autowired
+    private PostingRetry postingRetry;
+
+    @Autowired
+    private DepositContractRepository depositContractRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private DepositProductRepository depositProductRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("""
+                        delete from deposit_operations
+                        where contract_id in (select dc.id
+                                              from deposit_contracts dc
+                                              join deposit_products dp on dp.id = dc.product_id
+                                              where dp.name = ?)
+                        """,
+                PRODUCT_NAME
+        );
+        jdbcTemplate.update("""
+                        delete from deposit_contracts
+                        where product_id in (select id from deposit_products where name = ?)
+                        """,
+                PRODUCT_NAME
+        );
+        jdbcTemplate.update("delete from deposit_products where name = ?", PRODUCT_NAME);
+        jdbcTemplate.update("delete from customers where first_name = 'Проводка' and last_name = 'Тестов'");
+    }
+
+    @Test
+    void concurrentPostingsAreNotLost() {
+        DepositContract contract = openContract(new BigDecimal("1000.00"), null, null);
+        int postings = 200;
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<Void>> futures = IntStream.range(0, postings)
+                    .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                        if (i % 2 == 0) {
+                            depositContractService.deposit(contract.getId(), new BigDecimal("10.00"), null);
+                        } else {
+                            depositOperationService.withdraw(contract.getId(), new BigDecimal("3.00"));
+                        }
+                    }, executor))
+                    .toList();
+            futures.forEach(CompletableFuture::join);
+        } finally {
+            executor.shutdown();
+        }
+
+        BigDecimal balance = depositContractService.getContractById(contract.getId()).getCurrentBalance();
+        Integer operations = jdbcTemplate.queryForObject(
+                "select count(*) from deposit_operations where contract_id = ? and operation_type in ('DEPOSIT', 'WITHDRAWAL')",
+                Integer.class,
+                contract.getId()
+        );
+
+        assertThat(balance).isEqualByComparingTo("1700.00");
+        assertThat(operations).isEqualTo(postings);
+    }
+
+    @Test
+    void rejectedPostingExplainsReasonAndChangesNothing() {
+        DepositContract contract = openContract(new BigDecimal("1000.00"), new BigDecimal("500.00"), new BigDecimal("1200.00"));
+
+        assertThatThrownBy(() -> depositContractService.withdraw(contract.getId(), new BigDecimal("600.00"), null))
+                .isInstanceOf(InvalidOperationException.class)
+                .hasMessage("После снятия остаток будет меньше минимальной суммы по продукту");
+
+        assertThatThrownBy(() -> depositContractService.deposit(contract.getId(), new BigDecimal("300.00"), null))
+                .isInstanceOf(InvalidOperationException.class)
+                .hasMessage("Превышен максимальный лимит суммы по продукту");
+
+        assertThatThrownBy(() -> depositOperationService.withdraw(contract.getId(), new BigDecimal("1000.01")))
+                .isInstanceOf(InvalidOperationException.class)
+                .hasMessage("Недостаточно средств на вкладе");
+
+        DepositContract updated = depositContractService.deposit(contract.getId(), new BigDecimal("200.00"), "Тест");
+
+        assertThat(updated.getCurrentBalance()).isEqualByComparingTo("1200.00");
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from deposit_operations where contract_id = ? and operation_type = 'DEPOSIT'",
+                Integer.class,
+                contract.getId()
+        )).isEqualTo(1);
+    }
+
+    @Test
+    void everyOperationRecordsBalanceAfterAndAnswersPointInTimeQueries() {
+        DepositContract contract = openContract(new BigDecimal("1000.00"), null, null);
+        LocalDateTime beforeOpening = LocalDateTime.now().minusDays(1);
+
+        depositContractService.deposit(contract.getId(), new BigDecimal("250.00"), null);
+        depositOperationService.withdraw(contract.getId(), new BigDecimal("100.00"));
+        LocalDateTime afterWithdrawal = jdbcTemplate.queryForObject(
+                "select max(operation_datetime) from deposit_operations where contract_id = ?",
+                LocalDateTime.class,
+                contract.getId()
+        );
+        depositOperationService.accrueInterest(contract.getId(), new BigDecimal("5.50"));
+
+        List<BigDecimal> balances = jdbcTemplate.queryForList(
+                "select balance_after from deposit_operations where contract_id = ? order by operation_datetime, id",
+                BigDecimal.class,
+                contract.getId()
+        );
+
+        assertThat(balances).usingElementComparator(BigDecimal::compareTo).containsExactly(
+                new BigDecimal("1000.00"),
+                new BigDecimal("1250.00"),
+                new BigDecimal("1150.00"),
+                new BigDecimal("1155.50")
+        );
+        assertThat(depositOperationService.getBalanceAsOf(contract.getId(), beforeOpening))
+                .isEqualByComparingTo("0.00");
+        assertThat(depositOperationService.getBalanceAsOf(contract.getId(), afterWithdrawal))
+                .isEqualByComparingTo("1150.00");
+        assertThat(depositOperationService.getBalanceAsOf(contract.getId(), LocalDateTime.now()))
+                .isEqualByComparingTo("1155.50");
+    }
+
+    @Test
+    void versionConflictIsRetriedInNewTransaction() {
+        DepositContract contract = openContract(new BigDecimal("1000.00"), null, null);
+        long retriesBefore = postingRetry.getRetryCount();
+        AtomicInteger attempts = new AtomicInteger();
+
+        postingRetry.run("Тестовая проводка", contract.getId(), () -> {
+            DepositContract loaded = depositContractRepository.findById(contract.getId()).orElseThrow();
+
+            if (attempts.incrementAndGet() == 1) {
+                // Параллельная проводка в другой транзакции меняет версию договора
+                CompletableFuture.runAsync(() ->
+                        depositContractService.deposit(contract.getId(), new BigDecimal("50.00"), null)
+                ).join();
+            }
+
+            loaded.setCurrentBalance(loaded.getCurrentBalance().add(new BigDecimal("1.00")));
+            depositContractRepository.save(loaded);
+        });
+
+        assertThat(attempts).hasValue(2);
+        assertThat(postingRetry.getRetryCount()).isEqualTo(retriesBefore + 1);
+        assertThat(postingRetry.getConflictsByContract()).containsKey(contract.getId());
+        assertThat(depositContractService.getContractById(contract.getId()).getCurrentBalance())
+                .isEqualByComparingTo("1051.00");
+    }
+
+    private DepositContract openContract(BigDecimal amount, BigDecimal minAmount, BigDecimal maxAmount) {
+        Customer customer = customerRepository.save(Customer.builder()
+                .lastName("Тестов")
+                .firstName("Проводка")
+                .build());
+
+        DepositProduct product = depositProductRepository.save(DepositProduct.builder()
+                .name(PRODUCT_NAME)
+                .baseInterestRate(new BigDecimal("5.00"))
+                .minAmount(minAmount)
+                .maxAmount(maxAmount)
+                .allowReplenishment(true)
+                .allowPartialWithdrawal(true)
+                .capitalization(false)
+                .build());
+
+        return depositContractService.openContract(customer.getId(), product.getId(), amount, LocalDate.now());
+    }
+}
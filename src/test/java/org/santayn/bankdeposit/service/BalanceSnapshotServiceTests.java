@@ -0,0 +1,379 @@
+package org.santayn.bankdeposit.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.santayn.bankdeposit.models.Customer;
+import org.santayn.bankdeposit.models.DepositContract;
+import org.santayn.bankdeposit.models.DepositContractStatus;
+import org.santayn.bankdeposit.models.DepositProduct;
+import org.santayn.bankdeposit.repository.CustomerRepository;
+import org.santayn.bankdeposit.repository.DepositContractRepository;
+import org.santayn.bankdeposit.repository.DepositProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Остаток «на дату» по снимкам совпадает с полным пересчётом истории операций.
+ *
+ * Тесты выполняются в транзакциях с откатом, поэтому данные в БД не меняются.
+ * Сравнение скорости на большом объёме запускается отдельно:
+ * -Dbankdeposit.benchmark=true [-Dbankdeposit.benchmark.operations=10000000].
+ */
+@SpringBootTest
+class BalanceSnapshotServiceTests {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceSnapshotServiceTests.class);
+
+    private static final LocalDate HISTORY_START = LocalDate.of(2024, 1, 1);
+
+    /**
+     * Полный пересчёт: сумма всех движений договора до конца дня.
+     */
+    private static final String REPLAY_PORTFOLIO_SQL = """
+            select coalesce(sum(case
+                                    when o.operation_type = 'WITHDRAWAL' then -o.amount
+                                    when o.operation_type in ('OPENING', 'DEPOSIT', 'INTEREST_ACCRUAL') then o.amount
+                                    else 0
+                                end), 0)
+            from deposit_contracts dc
+            join deposit_operations o on o.contract_id = dc.id
+            where dc.open_date <= ?
+              and (dc.close_date is null or dc.close_date > ?)
+              and o.operation_datetime < ?
+            """;
+
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired
+    private InterestAccrualService interestAccrualService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private DepositProductRepository depositProductRepository;
+
+    @Autowired
+    private DepositContractRepository depositContractRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void snapshotPlusDeltaMatchesFullReplay() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        tx.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+
+            List<Long> contractIds = createHistory();
+
+            List<LocalDate> dates = List.of(
+                    LocalDate.of(2023, 12, 31),
+                    LocalDate.of(2024, 1, 15),
+                    LocalDate.of(2024, 1, 31),
+                    LocalDate.of(2024, 2, 10),
+                    LocalDate.of(2024, 3, 31),
+                    LocalDate.of(2024, 5, 20),
+                    LocalDate.of(2024, 7, 1)
+            );
+
+            // До снимков ответ строится только по операциям
+            assertMatchesReplay(contractIds, dates);
+
+            for (int month = 1; month <= 4; month++) {
+                balanceSnapshotService.takeMonthlySnapshot(YearMonth.of(2024, month));
+            }
+            // Повторный снимок за дату перезаписывает прежний
+            int rewritten = balanceSnapshotService.takeSnapshot(LocalDate.of(2024, 2, 29));
+
+            assertThat(rewritten).isGreaterThanOrEqualTo(contractIds.size());
+            assertMatchesReplay(contractIds, dates);
+        });
+    }
+
+    @Test
+    void backdatedAccrualAfterSnapshotMatchesFullReplay() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        tx.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+
+            List<Long> contractIds = createHistory();
+            Long contractId = contractIds.get(1);
+            LocalDate accrualDate = LocalDate.of(2024, 3, 31);
+            List<LocalDate> dates = List.of(
+                    accrualDate.minusDays(1),
+                    accrualDate,
+                    LocalDate.of(2024, 4, 15),
+                    LocalDate.of(2024, 4, 30),
+                    LocalDate.of(2024, 6, 1)
+            );
+
+            balanceSnapshotService.takeSnapshot(accrualDate);
+            balanceSnapshotService.takeSnapshot(LocalDate.of(2024, 4, 30));
+
+            // Начисление за уже снятый день (операция датируется 12:00 этого дня)
+            assertThat(interestAccrualService.accrueInterestForContract(contractId, accrualDate)).isTrue();
+            depositContractRepository.flush();
+
+            assertMatchesReplay(contractIds, dates);
+
+            // Удаление операции за снятый день возвращает снимки назад
+            jdbcTemplate.update(
+                    "delete from deposit_operations where contract_id = ? and accrual_date = ?",
+                    contractId,
+                    accrualDate
+            );
+            assertMatchesReplay(contractIds, dates);
+        });
+    }
+
+    @Test
+    void missingSnapshotDatesCatchUpFromLatestSnapshot() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        tx.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+
+            LocalDate today = LocalDate.of(2031, 3, 4);
+            jdbcTemplate.update("delete from balance_snapshots");
+
+            assertThat(balanceSnapshotService.getMissingSnapshotDates(today, false))
+                    .containsExactly(LocalDate.of(2031, 3, 3));
+            assertThat(balanceSnapshotService.getMissingSnapshotDates(today, true))
+                    .containsExactly(LocalDate.of(2031, 2, 28));
+
+            Long contractId = createHistory().get(0);
+            jdbcTemplate.update(
+                    "insert into balance_snapshots (contract_id, snapshot_date, balance) values (?, ?, 0)",
+                    contractId,
+                    LocalDate.of(2031, 1, 15)
+            );
+
+            assertThat(balanceSnapshotService.getMissingSnapshotDates(LocalDate.of(2031, 1, 18), false))
+                    .containsExactly(LocalDate.of(2031, 1, 16), LocalDate.of(2031, 1, 17));
+            assertThat(balanceSnapshotService.getMissingSnapshotDates(today, true))
+                    .containsExactly(LocalDate.of(2031, 1, 31), LocalDate.of(2031, 2, 28));
+            assertThat(balanceSnapshotService.getMissingSnapshotDates(LocalDate.of(2031, 1, 16), false))
+                    .isEmpty();
+        });
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "bankdeposit.benchmark", matches = "true")
+    void benchmarkSnapshotAgainstFullReplay() {
+        long operations = Long.getLong("bankdeposit.benchmark.operations", 10_000_000L);
+        int contracts = (int) Math.max(1, operations / 1000);
+        LocalDate asOf = LocalDate.of(2024, 12, 15);
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        tx.executeWithoutResult(status -> {
+            status.setRollbackOnly();
+
+            long started = System.nanoTime();
+            generateDataset(contracts, operations);
+            logger.info("Сгенерировано {} операций по {} договорам за {} мс",
+                    operations, contracts, millisSince(started));
+
+            started = System.nanoTime();
+            for (int month = 1; month <= 11; month++) {
+                balanceSnapshotService.takeMonthlySnapshot(YearMonth.of(2024, month));
+            }
+            logger.info("11 месячных снимков за {} мс", millisSince(started));
+
+            started = System.nanoTime();
+            BigDecimal replayed = replayPortfolio(asOf);
+            long replayMs = millisSince(started);
+
+            started = System.nanoTime();
+            PortfolioBalance fromSnapshots = balanceSnapshotService.getPortfolioAsOf(asOf);
+            long snapshotMs = millisSince(started);
+
+            logger.info("Портфель на {}: полный пересчёт {} мс, снимок + дельта {} мс", asOf, replayMs, snapshotMs);
+
+            assertThat(fromSnapshots.totalBalance()).isEqualByComparingTo(replayed);
+        });
+    }
+
+    private void assertMatchesReplay(List<Long> contractIds, List<LocalDate> dates) {
+        for (LocalDate date : dates) {
+            for (Long contractId : contractIds) {
+                assertThat(balanceSnapshotService.getBalanceAsOf(contractId, date))
+                        .as("договор %d на %s", contractId, date)
+                        .isEqualByComparingTo(replayContract(contractId, date));
+            }
+
+            PortfolioBalance portfolio = balanceSnapshotService.getPortfolioAsOf(date);
+            assertThat(portfolio.totalBalance()).as("портфель на %s", date).isEqualByComparingTo(replayPortfolio(date));
+        }
+    }
+
+    private BigDecimal replayContract(Long contractId, LocalDate date) {
+        return jdbcTemplate.queryForObject("""
+                        select coalesce(sum(case
+                                                when operation_type = 'WITHDRAWAL' then -amount
+                                                when operation_type in ('OPENING', 'DEPOSIT', 'INTEREST_ACCRUAL') then amount
+                                                else 0
+                                            end), 0)
+                        from deposit_operations
+                        where contract_id = ?
+                          and operation_datetime < ?
+                        """,
+                BigDecimal.class,
+                contractId,
+                date.plusDays(1).atStartOfDay()
+        );
+    }
+
+    private BigDecimal replayPortfolio(LocalDate date) {
+        return jdbcTemplate.queryForObject(
+                REPLAY_PORTFOLIO_SQL,
+                BigDecimal.class,
+                date,
+                date,
+                date.plusDays(1).atStartOfDay()
+        );
+    }
+
+    /**
+     * Договоры с полугодом операций; один закрыт в марте.
+     */
+    private List<Long> createHistory() {
+        Customer customer = customerRepository.save(Customer.builder()
+                .lastName("Тестов")
+                .firstName("Снимок")
+                .build());
+
+        DepositProduct product = depositProductRepository.save(DepositProduct.builder()
+                .name("T-SNAPSHOT-продукт")
+                .baseInterestRate(new BigDecimal("5.00"))
+                .allowReplenishment(true)
+                .allowPartialWithdrawal(true)
+                .capitalization(false)
+                .build());
+
+        Random random = new Random(16);
+        List<Long> ids = new ArrayList<>();
+
+        for (int i = 0; i < 20; i++) {
+            LocalDate openDate = HISTORY_START.plusDays(random.nextInt(60));
+            BigDecimal initial = BigDecimal.valueOf(10_000 + random.nextInt(90_000), 2).movePointRight(2);
+            boolean closed = i == 0;
+
+            DepositContract contract = depositContractRepository.saveAndFlush(DepositContract.builder()
+                    .contractNumber("T-SNAPSHOT-" + i)
+                    .customer(customer)
+                    .product(product)
+                    .openDate(openDate)
+                    .closeDate(closed ? LocalDate.of(2024, 3, 10) : null)
+                    .initialAmount(initial)
+                    .currentBalance(initial)
+                    .interestRate(product.getBaseInterestRate())
+                    .status(closed ? DepositContractStatus.CLOSED : DepositContractStatus.OPEN)
+                    .build());
+            ids.add(contract.getId());
+
+            insertOperation(contract.getId(), "OPENING", initial, openDate.atTime(9, 0));
+
+            LocalDateTime moment = openDate.atTime(12, 0);
+            for (int op = 0; op < 40; op++) {
+                moment = moment.plusHours(12 + random.nextInt(96));
+                String type = switch (random.nextInt(4)) {
+                    case 0 -> "WITHDRAWAL";
+                    case 1 -> "INTEREST_ACCRUAL";
+                    case 2 -> "FREEZE";
+                    default -> "DEPOSIT";
+                };
+                insertOperation(contract.getId(), type, BigDecimal.valueOf(100 + random.nextInt(10_000), 2), moment);
+            }
+        }
+
+        return ids;
+    }
+
+    private void insertOperation(Long contractId, String type, BigDecimal amount, LocalDateTime dateTime) {
+        jdbcTemplate.update("""
+                        insert into deposit_operations (contract_id, amount, operation_datetime, operation_type, description)
+                        values (?, ?, ?, ?, 'Тест снимков')
+                        """,
+                contractId,
+                amount,
+                dateTime,
+                type
+        );
+    }
+
+    /**
+     * Синтетический объём: operations операций поровну по contracts договорам за 2024 год.
+     */
+    private void generateDataset(int contracts, long operations) {
+        Customer customer = customerRepository.save(Customer.builder()
+                .lastName("Тестов")
+                .firstName("Нагрузка")
+                .build());
+
+        DepositProduct product = depositProductRepository.save(DepositProduct.builder()
+                .name("T-SNAPSHOT-BENCH")
+                .baseInterestRate(new BigDecimal("5.00"))
+                .build());
+
+        jdbcTemplate.update("""
+                        insert into deposit_contracts (contract_number, customer_id, product_id, status, open_date,
+                                                       initial_amount, current_balance, interest_rate)
+                        select 'T-SNAPSHOT-BENCH-' || g, ?, ?, 'OPEN', ?, 1000, 1000, 5
+                        from generate_series(1, ?) g
+                        """,
+                customer.getId(),
+                product.getId(),
+                HISTORY_START,
+                contracts
+        );
+
+        long perContract = Math.max(1, operations / contracts);
+        // Операции договора равномерно распределены по году
+        int stepMinutes = (int) Math.max(1, 365L * 24 * 60 / perContract);
+
+        jdbcTemplate.update("""
+                        insert into deposit_operations (contract_id, amount, operation_datetime, operation_type)
+                        select dc.id,
+                               (g % 97) + 1,
+                               cast(? as timestamp) + g * make_interval(mins => ?),
+                               case when g % 3 = 0 then 'WITHDRAWAL' else 'DEPOSIT' end
+                        from deposit_contracts dc
+                        cross join generate_series(1, ?) g
+                        where dc.contract_number like 'T-SNAPSHOT-BENCH-%'
+                        """,
+                HISTORY_START.atStartOfDay(),
+                stepMinutes,
+                perContract
+        );
+
+        jdbcTemplate.execute("analyze deposit_operations");
+        jdbcTemplate.execute("analyze deposit_contracts");
+    }
+
+    private long millisSince(long startedNanos) {
+        return (startedNanos - System.nanoTime()) / -1_000_000;
+    }
+}
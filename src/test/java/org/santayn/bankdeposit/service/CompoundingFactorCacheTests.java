@@ -0,0 +1,73 @@
+package org.santayn.bankdeposit.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Множители капитализации: значение, попадания в кэш и LRU-вытеснение.
+ */
+class CompoundingFactorCacheTests {
+
+    @Test
+    void factorMatchesDirectPowerAndIgnoresRateScale() {
+        CompoundingFactorCache cache = newCache(16);
+
+        BigDecimal expected = BigDecimal.ONE
+                .add(new BigDecimal("0.075").divide(BigDecimal.valueOf(365), MathContext.DECIMAL128))
+                .pow(31, MathContext.DECIMAL128)
+                .setScale(CompoundingFactorCache.FACTOR_SCALE, RoundingMode.HALF_UP);
+
+        assertThat(cache.factor(new BigDecimal("7.50"), 31)).isEqualByComparingTo(expected);
+        assertThat(cache.factor(new BigDecimal("7.5000"), 31)).isEqualByComparingTo(expected);
+        assertThat(cache.getMisses()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+
+        assertThat(cache.factor(new BigDecimal("7.50"), 31, DayCountConvention.ACT_360))
+                .isGreaterThan(expected);
+        assertThat(cache.factor(new BigDecimal("7.50"), 0)).isEqualByComparingTo(BigDecimal.ONE);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedFactor() {
+        CompoundingFactorCache cache = newCache(2);
+        BigDecimal rate = new BigDecimal("5.00");
+
+        cache.factor(rate, 1);
+        cache.factor(rate, 2);
+        cache.factor(rate, 1);
+        cache.factor(rate, 3);
+
+        assertThat(cache.size()).isEqualTo(2);
+
+        long misses = cache.getMisses();
+        cache.factor(rate, 1);
+        assertThat(cache.getMisses()).isEqualTo(misses);
+
+        cache.factor(rate, 2);
+        assertThat(cache.getMisses()).isEqualTo(misses + 1);
+    }
+
+    @Test
+    void hitRateIsHighForFewProductRates() {
+        CompoundingFactorCache cache = newCache(1024);
+        BigDecimal[] rates = {new BigDecimal("6.5"), new BigDecimal("8.0"), new BigDecimal("10.25")};
+
+        for (int i = 0; i < 10_000; i++) {
+            cache.factor(rates[i % rates.length], 1 + i % 31);
+        }
+
+        assertThat(cache.getHitRate()).isGreaterThan(0.99);
+    }
+
+    private CompoundingFactorCache newCache(int maxSize) {
+        CompoundingFactorCache cache = new CompoundingFactorCache();
+        ReflectionTestUtils.setField(cache, "maxSize", maxSize);
+        return cache;
+    }
+}
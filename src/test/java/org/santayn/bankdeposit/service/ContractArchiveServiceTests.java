@@ -0,0 +1,314 @@
+package org.santayn.bankdeposit.service;
+
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.santayn.bankdeposit.models.Customer;
+import org.santayn.bankdeposit.models.DepositContract;
+import org.santayn.bankdeposit.models.DepositContractStatus;
+import org.santayn.bankdeposit.models.DepositOperationType;
+import org.santayn.bankdeposit.models.DepositProduct;
+import org.santayn.bankdeposit.repository.ContractRow;
+import org.santayn.bankdeposit.repository.CustomerRepository;
+import org.santayn.bankdeposit.repository.DepositContractRepository;
+import org.santayn.bankdeposit.repository.DepositProductRepository;
+import org.santayn.bankdeposit.repository.OperationRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Перенос давно закрытых договоров в архив: рабочие таблицы освобождаются,
+ * обороты и остатки на прошлые даты не меняются, отчёты и выгрузки видят архив.
+ *
+ * Тест выполняется в транзакции с откатом, поэтому данные в БД не меняются.
+ */
+@SpringBootTest
+@Transactional
+class ContractArchiveServiceTests {
+
+    @Autowired
+    private ContractArchiveService contractArchiveService;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired
+    private DepositOperationService depositOperationService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private DepositProductRepository depositProductRepository;
+
+    @Autowired
+    private DepositContractRepository depositContractRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void closedContractsMoveToArchiveAndStayVisibleInReports() {
+        Customer customer = customerRepository.save(Customer.builder()
+                .lastName("Тестов")
+                .firstName("Архив")
+                .build());
+        DepositProduct product = depositProductRepository.save(DepositProduct.builder()
+                .name("T-ARCHIVE-продукт")
+                .baseInterestRate(new BigDecimal("5.00"))
+                .build());
+
+        LocalDate oldOpen = LocalDate.now().minusYears(5).withDayOfMonth(1);
+        LocalDate oldClose = oldOpen.plusYears(1);
+        DepositContract old = createContract(customer, product, "T-ARCHIVE-OLD", oldOpen, oldClose);
+        DepositContract recent = createContract(
+                customer, product, "T-ARCHIVE-RECENT", LocalDate.now().minusYears(1), LocalDate.now().minusMonths(1));
+
+        insertOperation(old.getId(), "OPENING", "1000.00", oldOpen);
+        insertOperation(old.getId(), "DEPOSIT", "250.00", oldOpen.plusMonths(2));
+        insertOperation(old.getId(), "WITHDRAWAL", "100.00", oldOpen.plusMonths(4));
+        insertOperation(old.getId(), "CLOSING", "1150.00", oldClose);
+        insertOperation(recent.getId(), "OPENING", "1000.00", recent.getOpenDate());
+
+        BigDecimal turnoverBefore = turnover(old.getId());
+
+        ArchiveRunResult result = contractArchiveService.archiveClosedContracts(LocalDate.now());
+
+        assertThat(result.contracts()).isGreaterThanOrEqualTo(1);
+        assertThat(result.operations()).isGreaterThanOrEqualTo(4);
+        assertThat(depositContractRepository.existsById(old.getId())).isFalse();
+        assertThat(depositContractRepository.existsById(recent.getId())).isTrue();
+        assertThat(count("deposit_operations", old.getId())).isZero();
+        assertThat(count("deposit_operations_archive", old.getId())).isEqualTo(4);
+        assertThat(count("deposit_operations", recent.getId())).isEqualTo(1);
+        assertThat(turnover(old.getId())).isEqualByComparingTo(turnoverBefore);
+
+        assertThat(balanceSnapshotService.getBalanceAsOf(old.getId(), oldOpen.plusMonths(3)))
+                .isEqualByComparingTo("1250.00");
+
+        List<OperationRow> operations = reportService.getOperationsByPeriodAndTypeForCustomer(
+                customer.getId(), oldOpen, oldClose, null);
+        assertThat(operations)
+                .extracting(OperationRow::type)
+                .containsExactly(
+                        DepositOperationType.OPENING,
+                        DepositOperationType.DEPOSIT,
+                        DepositOperationType.WITHDRAWAL,
+                        DepositOperationType.CLOSING
+                );
+        assertThat(operations)
+                .allSatisfy(op -> assertThat(op.contractNumber()).isEqualTo("T-ARCHIVE-OLD"));
+
+        assertThat(reportService.getContractsByCustomer(customer.getId()))
+                .extracting(ContractRow::contractNumber)
+                .containsExactlyInAnyOrder("T-ARCHIVE-OLD", "T-ARCHIVE-RECENT");
+    }
+
+    @Test
+    void excelExportStreamsArchivedAndLiveOperations(@TempDir Path dir) throws IOException {
+        Customer customer = customerRepository.save(Customer.builder()
+                .lastName("Тестов")
+                .firstName("Выгрузка")
+                .build());
+        DepositProduct product = depositProductRepository.save(DepositProduct.builder()
+                .name("T-ARCHIVE-EXPORT-продукт")
+                .baseInterestRate(new BigDecimal("5.00"))
+                .build());
+
+        LocalDate oldOpen = LocalDate.now().minusYears(5).withDayOfMonth(1);
+        DepositContract old = createContract(customer, product, "T-ARCHIVE-EXP-OLD", oldOpen, oldOpen.plusMonths(6));
+        DepositContract live = createContract(
+                customer, product, "T-ARCHIVE-EXP-LIVE", LocalDate.now().minusYears(1), LocalDate.now().minusMonths(1));
+
+        insertOperation(old.getId(), "OPENING", "1000.00", oldOpen);
+        insertOperation(old.getId(), "CLOSING", "1000.00", oldOpen.plusMonths(6));
+        insertOperation(live.getId(), "OPENING", "500.00", live.getOpenDate());
+
+        contractArchiveService.archiveClosedContracts(LocalDate.now());
+
+        File file = dir.resolve("operations.xlsx").toFile();
+        reportService.exportOperationsByParamsToExcel(customer.getId(), oldOpen, LocalDate.now(), null, file);
+
+        try (Workbook wb = new XSSFWorkbook(file)) {
+            Sheet sheet = wb.getSheetAt(0);
+
+            assertThat(sheet.getLastRowNum()).isEqualTo(3);
+            assertThat(sheet.getRow(1).getCell(3).getStringCellValue()).isEqualTo("T-ARCHIVE-EXP-OLD");
+            assertThat(sheet.getRow(2).getCell(1).getStringCellValue()).isEqualTo("CLOSING");
+            assertThat(sheet.getRow(3).getCell(3).getStringCellValue()).isEqualTo("T-ARCHIVE-EXP-LIVE");
+            assertThat(sheet.getRow(3).getCell(4).getStringCellValue()).isEqualTo("Тестов Выгрузка");
+        } catch (InvalidFormatException e) {
+            throw new IOException(e);
+        }
+    }
+
+    @Test
+    void liveOperationsOlderThanArchivedKeepChronologicalOrder(@TempDir Path dir) throws IOException {
+        Customer customer = customerRepository.save(Customer.builder()
+                .lastName("Тестов")
+                .firstName("Порядок")
+                .build());
+        DepositProduct product = depositProductRepository.save(DepositProduct.builder()
+                .name("T-ARCHIVE-ORDER-продукт")
+                .baseInterestRate(new BigDecimal("5.00"))
+                .build());
+
+        LocalDate oldOpen = LocalDate.now().minusYears(5).withDayOfMonth(1);
+        DepositContract old = createContract(customer, product, "T-ARCHIVE-ORD-OLD", oldOpen, oldOpen.plusMonths(6));
+        DepositContract live = createContract(
+                customer, product, "T-ARCHIVE-ORD-LIVE", oldOpen.plusMonths(1), LocalDate.now().minusMonths(1));
+
+        insertOperation(old.getId(), "OPENING", "1000.00", oldOpen);
+        insertOperation(live.getId(), "OPENING", "500.00", oldOpen.plusMonths(1));
+        insertOperation(old.getId(), "CLOSING", "1000.00", oldOpen.plusMonths(6));
+        insertOperation(live.getId(), "DEPOSIT", "10.00", oldOpen.plusMonths(7));
+
+        contractArchiveService.archiveClosedContracts(LocalDate.now());
+        assertThat(depositContractRepository.existsById(live.getId())).isTrue();
+
+        List<String> expected = List.of(
+                "T-ARCHIVE-ORD-OLD OPENING",
+                "T-ARCHIVE-ORD-LIVE OPENING",
+                "T-ARCHIVE-ORD-OLD CLOSING",
+                "T-ARCHIVE-ORD-LIVE DEPOSIT"
+        );
+
+        List<OperationRow> report = reportService.getOperationsByPeriodAndTypeForCustomer(
+                customer.getId(), oldOpen, LocalDate.now(), null);
+        assertThat(report)
+                .extracting(op -> op.contractNumber() + " " + op.type())
+                .containsExactlyElementsOf(expected);
+
+        File xlsx = dir.resolve("operations.xlsx").toFile();
+        reportService.exportOperationsByParamsToExcel(customer.getId(), oldOpen, LocalDate.now(), null, xlsx);
+        try (Workbook wb = new XSSFWorkbook(xlsx)) {
+            Sheet sheet = wb.getSheetAt(0);
+            assertThat(sheet.getLastRowNum()).isEqualTo(4);
+            for (int r = 1; r <= 4; r++) {
+                assertThat(sheet.getRow(r).getCell(3).getStringCellValue() + " "
+                        + sheet.getRow(r).getCell(1).getStringCellValue())
+                        .isEqualTo(expected.get(r - 1));
+            }
+        } catch (InvalidFormatException e) {
+            throw new IOException(e);
+        }
+
+        Path csv = dir.resolve("operations.csv");
+        reportService.exportOperationsByParams(
+                customer.getId(), oldOpen, LocalDate.now(), null, ExportFormat.CSV, false, csv.toFile());
+        assertThat(Files.readAllLines(csv).stream()
+                .skip(1)
+                .map(line -> line.split(","))
+                .map(cells -> cells[7] + " " + cells[2])
+                .toList())
+                .containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void pointInTimeBalanceOfArchivedContractComesFromArchive() {
+        Customer customer = customerRepository.save(Customer.builder()
+                .lastName("Тестов")
+                .firstName("Остаток")
+                .build());
+        DepositProduct product = depositProductRepository.save(DepositProduct.builder()
+                .name("T-ARCHIVE-BALANCE-продукт")
+                .baseInterestRate(new BigDecimal("5.00"))
+                .build());
+
+        LocalDate oldOpen = LocalDate.now().minusYears(5).withDayOfMonth(1);
+        LocalDate oldClose = oldOpen.plusYears(1);
+        DepositContract old = createContract(customer, product, "T-ARCHIVE-BAL-OLD", oldOpen, oldClose);
+        DepositContract live = createContract(
+                customer, product, "T-ARCHIVE-BAL-LIVE", LocalDate.now().minusYears(1), LocalDate.now().minusMonths(1));
+
+        insertOperation(old.getId(), "OPENING", "1000.00", "1000.00", oldOpen);
+        insertOperation(old.getId(), "DEPOSIT", "250.00", "1250.00", oldOpen.plusMonths(2));
+        insertOperation(old.getId(), "CLOSING", "1250.00", "0.00", oldClose);
+        insertOperation(live.getId(), "OPENING", "500.00", "500.00", live.getOpenDate());
+
+        contractArchiveService.archiveClosedContracts(LocalDate.now());
+        assertThat(contractArchiveService.isArchived(old.getId())).isTrue();
+
+        assertThat(depositOperationService.getBalanceAsOf(old.getId(), oldOpen.minusDays(1).atStartOfDay()))
+                .isEqualByComparingTo("0.00");
+        assertThat(depositOperationService.getBalanceAsOf(old.getId(), oldOpen.plusMonths(1).atStartOfDay()))
+                .isEqualByComparingTo("1000.00");
+        assertThat(depositOperationService.getBalanceAsOf(old.getId(), oldOpen.plusMonths(3).atStartOfDay()))
+                .isEqualByComparingTo("1250.00");
+        assertThat(depositOperationService.getBalanceAsOf(old.getId(), oldClose.plusDays(1).atStartOfDay()))
+                .isEqualByComparingTo("0.00");
+        assertThat(depositOperationService.getBalanceAsOf(live.getId(), LocalDate.now().atStartOfDay()))
+                .isEqualByComparingTo("500.00");
+    }
+
+    private BigDecimal turnover(Long contractId) {
+        return jdbcTemplate.queryForObject(
+                "select coalesce(sum(total_amount), 0) from daily_turnover where contract_id = ?",
+                BigDecimal.class,
+                contractId
+        );
+    }
+
+    private int count(String table, Long contractId) {
+        return jdbcTemplate.queryForObject(
+                "select count(*) from " + table + " where contract_id = ?",
+                Integer.class,
+                contractId
+        );
+    }
+
+    private void insertOperation(Long contractId, String type, String amount, LocalDate date) {
+        insertOperation(contractId, type, amount, null, date);
+    }
+
+    private void insertOperation(Long contractId, String type, String amount, String balanceAfter, LocalDate date) {
+        jdbcTemplate.update("""
+                        insert into deposit_operations (contract_id, amount, operation_datetime, operation_type, balance_after)
+                        values (?, ?, ?, ?, ?)
+                        """,
+                contractId,
+                new BigDecimal(amount),
+                date.atTime(12, 0),
+                type,
+                balanceAfter != null ? new BigDecimal(balanceAfter) : null
+        );
+    }
+
+    private DepositContract createContract(
+            Customer customer,
+            DepositProduct product,
+            String number,
+            LocalDate openDate,
+            LocalDate closeDate
+    ) {
+        return depositContractRepository.saveAndFlush(DepositContract.builder()
+                .contractNumber(number)
+                .customer(customer)
+                .product(product)
+                .openDate(openDate)
+                .closeDate(closeDate)
+                .initialAmount(new BigDecimal("1000.00"))
+                .currentBalance(BigDecimal.ZERO.setScale(2))
+                .interestRate(product.getBaseInterestRate())
+                .status(DepositContractStatus.CLOSED)
+                .build());
+    }
+}
@@ -0,0 +1,103 @@
+package org.santayn.bankdeposit.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Полосатая блокировка: работа по одному договору выполняется по очереди,
+ * ожидание полосы измеряется, id распределяются по всем полосам.
+ */
+class ContractLockManagerTests {
+
+    @Test
+    void serializesWorkOnOneContractAndMeasuresWait() {
+        ContractLockManager locks = newManager(16);
+        long[] unsafeCounter = new long[1];
+        int increments = 20_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<Void>> futures = IntStream.range(0, increments)
+                    .mapToObj(i -> CompletableFuture.runAsync(
+                            () -> locks.runWithLock(42L, () -> unsafeCounter[0]++),
+                            executor
+                    ))
+                    .toList();
+            futures.forEach(CompletableFuture::join);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(unsafeCounter[0]).isEqualTo(increments);
+
+        ContractLockManager.StripeStats hottest = locks.getStripeStats().get(0);
+        assertThat(hottest.stripe()).isEqualTo(locks.stripeOf(42L));
+        assertThat(hottest.acquisitions()).isEqualTo(increments);
+        assertThat(locks.getTotalWaitNanos()).isEqualTo(hottest.waitNanos());
+    }
+
+    @Test
+    void stripeCountIsPowerOfTwoAndSequentialIdsSpread() {
+        ContractLockManager locks = newManager(50);
+
+        assertThat(locks.getStripeCount()).isEqualTo(64);
+
+        Set<Integer> used = new HashSet<>();
+        for (long id = 1; id <= 256; id++) {
+            used.add(locks.stripeOf(id));
+        }
+        assertThat(used).hasSize(64);
+    }
+
+    @Test
+    void isReentrantForNestedPostings() {
+        ContractLockManager locks = newManager(4);
+
+        Integer result = locks.withLock(7L, () -> locks.withLock(7L, () -> 1));
+
+        assertThat(result).isEqualTo(1);
+    }
+
+    @Test
+    void holdsAllStripesOfSeveralContracts() throws Exception {
+        ContractLockManager locks = newManager(8);
+        List<Long> ids = List.of(3L, 1L, 2L, 3L);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Boolean otherGotLock = locks.withLocks(ids, () -> {
+                CompletableFuture<Boolean> other = CompletableFuture.supplyAsync(
+                        () -> locks.withLock(2L, () -> true), executor);
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return other.isDone();
+            });
+
+            assertThat(otherGotLock).isFalse();
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(executor.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private ContractLockManager newManager(int stripes) {
+        ContractLockManager locks = new ContractLockManager();
+        ReflectionTestUtils.setField(locks, "stripes", stripes);
+        locks.init();
+        return locks;
+    }
+}
@@ -0,0 +1,85 @@
+package org.santayn.bankdeposit.service;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Потоковый экспорт в Excel: перенос строк на следующие листы при пределе строк
+ * и ширина колонок по выборке строк.
+ */
+class ExcelReportWriterTests {
+
+    @Test
+    void rollsOverToNextSheetWithSameHeader() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (ExcelReportWriter writer = new ExcelReportWriter(3, 5, 100)) {
+            writer.startSheet("Операции", "№", "Сумма");
+            for (int i = 1; i <= 10; i++) {
+                writer.startRow();
+                writer.text(String.valueOf(i));
+                writer.money(BigDecimal.valueOf(i));
+            }
+            assertThat(writer.getSheetCount()).isEqualTo(3);
+            writer.writeTo(out);
+        }
+
+        try (Workbook wb = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            assertThat(wb.getNumberOfSheets()).isEqualTo(3);
+            assertThat(wb.getSheetName(0)).isEqualTo("Операции");
+            assertThat(wb.getSheetName(1)).isEqualTo("Операции (2)");
+            assertThat(wb.getSheetName(2)).isEqualTo("Операции (3)");
+
+            int dataRows = 0;
+            int expected = 1;
+            for (int s = 0; s < wb.getNumberOfSheets(); s++) {
+                Sheet sheet = wb.getSheetAt(s);
+                assertThat(sheet.getRow(0).getCell(1).getStringCellValue()).isEqualTo("Сумма");
+                assertThat(sheet.getLastRowNum()).isLessThan(5);
+
+                for (int r = 1; r <= sheet.getLastRowNum(); r++) {
+                    assertThat(sheet.getRow(r).getCell(0).getStringCellValue()).isEqualTo(String.valueOf(expected++));
+                    dataRows++;
+                }
+            }
+            assertThat(dataRows).isEqualTo(10);
+        }
+    }
+
+    @Test
+    void columnWidthsFollowSampledValues() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String longText = "Очень длинное описание операции для проверки ширины";
+
+        try (ExcelReportWriter writer = new ExcelReportWriter(10, ExcelReportWriter.EXCEL_MAX_ROWS, 2)) {
+            writer.startSheet("Отчёт", "Дата", "Описание", "Поздняя");
+            for (int i = 0; i < 50; i++) {
+                writer.startRow();
+                writer.dateTime(LocalDateTime.of(2025, 1, 1, 10, 0));
+                writer.text(longText);
+                // За пределами выборки — на ширину не влияет
+                writer.text(i < 2 ? "x" : longText);
+            }
+            writer.writeTo(out);
+        }
+
+        try (Workbook wb = new XSSFWorkbook(new ByteArrayInputStream(out.toByteArray()))) {
+            Sheet sheet = wb.getSheetAt(0);
+
+            assertThat(sheet.getLastRowNum()).isEqualTo(50);
+            assertThat(sheet.getColumnWidth(0)).isEqualTo((16 + 2) * 256);
+            assertThat(sheet.getColumnWidth(1)).isEqualTo((longText.length() + 2) * 256);
+            assertThat(sheet.getColumnWidth(2)).isEqualTo(("Поздняя".length() + 2) * 256);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.santayn.bankdeposit.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Выгрузка CSV / NDJSON через канал: экранирование, UTF-8 на границах буфера,
+ * null-поля и корректный gzip.
+ */
+class FeedExportWriterTests {
+
+    private static final LocalDateTime AT = LocalDateTime.of(2026, 3, 5, 9, 7, 1, 250_000_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void csvQuotesSpecialCharactersAndLeavesNullsEmpty() throws IOException {
+        Path file = directory.resolve("ops.csv");
+
+        try (FeedExportWriter writer = FeedExportWriter.open(file, ExportFormat.CSV, false, 0, "id", "at", "text", "sum")) {
+            writer.number(1L);
+            writer.dateTime(AT);
+            writer.text("Иванов, \"И.\"\nвклад");
+            writer.decimal(new BigDecimal("-10.50"));
+            writer.endRecord();
+
+            writer.number(-42L);
+            writer.dateTime(null);
+            writer.text(null);
+            writer.decimal(null);
+            writer.endRecord();
+
+            assertThat(writer.getRecordCount()).isEqualTo(2);
+        }
+
+        assertThat(Files.readString(file)).isEqualTo("""
+                id,at,text,sum
+                1,2026-03-05T09:07:01.250000,"Иванов, ""И.""
+                вклад",-10.50
+                -42,,,
+                """);
+    }
+
+    @Test
+    void ndjsonEscapesStringsAndWritesNulls() throws IOException {
+        Path file = directory.resolve("ops.ndjson");
+
+        try (FeedExportWriter writer = FeedExportWriter.open(file, ExportFormat.NDJSON, false, 0, "id", "at", "text")) {
+            writer.number(7L);
+            writer.dateTime(AT.withNano(0));
+            writer.text("a\"b\\c\td\u0001😀");
+            writer.endRecord();
+
+            writer.number(null);
+            writer.dateTime(null);
+            writer.text(null);
+            writer.endRecord();
+        }
+
+        assertThat(Files.readAllLines(file, StandardCharsets.UTF_8)).containsExactly(
+                "{\"id\":7,\"at\":\"2026-03-05T09:07:01\",\"text\":\"a\\\"b\\\\c\\td\\u0001😀\"}",
+                "{\"id\":null,\"at\":null,\"text\":null}"
+        );
+    }
+
+    @Test
+    void gzipOutputSpanningManyBuffersMatchesPlainText() throws IOException {
+        Path plain = directory.resolve("ops.csv");
+        Path gzip = directory.resolve("ops.csv.gz");
+
+        writeRows(plain, false);
+        writeRows(gzip, true);
+
+        byte[] unpacked;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(gzip))) {
+            unpacked = in.readAllBytes();
+        }
+
+        List<String> lines = Files.readAllLines(plain, StandardCharsets.UTF_8);
+        assertThat(lines).hasSize(20_001);
+        assertThat(lines.get(20_000)).isEqualTo("20000,Клиент №20000");
+        assertThat(unpacked).isEqualTo(Files.readAllBytes(plain));
+        assertThat(Files.size(gzip)).isLessThan(Files.size(plain));
+    }
+
+    private static void writeRows(Path file, boolean gzip) throws IOException {
+        try (FeedExportWriter writer = FeedExportWriter.open(
+                file, ExportFormat.CSV, gzip, FeedExportWriter.MIN_BUFFER_BYTES, "id", "name")) {
+            for (long i = 1; i <= 20_000; i++) {
+                writer.number(i);
+                writer.text("Клиент №" + i);
+                writer.endRecord();
+            }
+        }
+    }
+}
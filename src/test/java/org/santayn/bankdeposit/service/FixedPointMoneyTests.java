@@ -0,0 +1,128 @@
+package org.santayn.bankdeposit.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Свойство: расчёт в фиксированной точке совпадает до копейки с прежним
+ * BigDecimal-расчётом процентов на случайных суммах, ставках и сроках.
+ */
+class FixedPointMoneyTests {
+
+    private static final int SAMPLES = 200_000;
+
+    private static final RoundingMode[] MODES = {
+            RoundingMode.HALF_UP,
+            RoundingMode.HALF_EVEN,
+            RoundingMode.HALF_DOWN,
+            RoundingMode.DOWN,
+            RoundingMode.UP
+    };
+
+    @Test
+    void matchesBigDecimalHalfUpOnRandomInputs() {
+        Random random = new Random(42L);
+
+        for (int i = 0; i < SAMPLES; i++) {
+            BigDecimal balance = randomBalance(random);
+            BigDecimal rate = BigDecimal.valueOf(random.nextLong(0, 10_000_000L), 4);
+            long days = random.nextLong(0, 4_000);
+
+            assertMatches(balance, rate, days, RoundingMode.HALF_UP);
+        }
+    }
+
+    @Test
+    void matchesBigDecimalForOtherRoundingModes() {
+        Random random = new Random(7L);
+
+        for (int i = 0; i < SAMPLES / 4; i++) {
+            BigDecimal balance = randomBalance(random);
+            BigDecimal rate = BigDecimal.valueOf(random.nextLong(0, 10_000_000L), random.nextInt(0, 12));
+            long days = random.nextLong(0, 40_000);
+
+            assertMatches(balance, rate, days, MODES[random.nextInt(MODES.length)]);
+        }
+    }
+
+    @Test
+    void matchesBigDecimalOnBoundaries() {
+        BigDecimal[] balances = {
+                new BigDecimal("0.00"),
+                new BigDecimal("0.01"),
+                new BigDecimal("0.05"),
+                new BigDecimal("50000.00"),
+                new BigDecimal("92233720368547758.07")
+        };
+        BigDecimal[] rates = {
+                new BigDecimal("0.0001"),
+                new BigDecimal("8.50"),
+                new BigDecimal("100"),
+                new BigDecimal("999.9999")
+        };
+        long[] days = {0, 1, 73, 182, 365, 366, 3650, 36500};
+
+        for (BigDecimal balance : balances) {
+            for (BigDecimal rate : rates) {
+                for (long d : days) {
+                    for (RoundingMode mode : MODES) {
+                        assertMatches(balance, rate, d, mode);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void roundsExactHalfCentByMode() {
+        // 0.01 * 50% за год = ровно половина копейки
+        long balance = 1;
+        long rate = FixedPointMoney.scaleRate(new BigDecimal("50"));
+        long year = FixedPointMoney.dayFraction(365);
+
+        assertThat(FixedPointMoney.simpleInterest(balance, rate, year, RoundingMode.HALF_UP)).isEqualTo(1);
+        assertThat(FixedPointMoney.simpleInterest(balance, rate, year, RoundingMode.HALF_DOWN)).isZero();
+        assertThat(FixedPointMoney.simpleInterest(balance, rate, year, RoundingMode.HALF_EVEN)).isZero();
+    }
+
+    private BigDecimal randomBalance(Random random) {
+        // Преимущественно реалистичные суммы, иногда — очень крупные
+        long cents = random.nextInt(10) == 0
+                ? random.nextLong(0, Long.MAX_VALUE / 2)
+                : random.nextLong(0, 10_000_000_000L);
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private void assertMatches(BigDecimal balance, BigDecimal rate, long days, RoundingMode mode) {
+        BigDecimal expected = referenceInterest(balance, rate, days, mode);
+        if (expected.unscaledValue().bitLength() > 63) {
+            // Результат не помещается в long копеек — вне области ядра
+            return;
+        }
+
+        long actualMinor = FixedPointMoney.simpleInterest(
+                FixedPointMoney.toMinorUnits(balance),
+                FixedPointMoney.scaleRate(rate),
+                FixedPointMoney.dayFraction(days),
+                mode
+        );
+
+        assertThat(FixedPointMoney.fromMinorUnits(actualMinor))
+                .as("balance=%s rate=%s days=%d mode=%s", balance, rate, days, mode)
+                .isEqualTo(expected);
+    }
+
+    /**
+     * Прежняя реализация InterestAccrualService.calculateDailyInterest.
+     */
+    private BigDecimal referenceInterest(BigDecimal balance, BigDecimal rate, long days, RoundingMode mode) {
+        BigDecimal yearShare = rate.divide(BigDecimal.valueOf(100), 10, RoundingMode.HALF_UP);
+        BigDecimal dayFraction = BigDecimal.valueOf(days).divide(BigDecimal.valueOf(365), 10, RoundingMode.HALF_UP);
+        return balance.multiply(yearShare).multiply(dayFraction).setScale(2, mode);
+    }
+}
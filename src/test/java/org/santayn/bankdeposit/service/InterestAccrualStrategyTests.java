@@ -0,0 +1,236 @@
+package org.santayn.bankdeposit.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.santayn.bankdeposit.models.AccrualStrategy;
+import org.santayn.bankdeposit.models.Customer;
+import org.santayn.bankdeposit.models.DepositContract;
+import org.santayn.bankdeposit.models.DepositContractStatus;
+import org.santayn.bankdeposit.models.DepositProduct;
+import org.santayn.bankdeposit.repository.CustomerRepository;
+import org.santayn.bankdeposit.repository.DepositContractRepository;
+import org.santayn.bankdeposit.repository.DepositProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Set-based начисление в PostgreSQL должно давать по каждому договору
+ * ровно тот же результат, что и Java-расчёт.
+ *
+ * Прогон начисления обходит все OPEN-договоры, а журнал прогонов (accrual_runs)
+ * фиксируется отдельными транзакциями, поэтому тест работает в своей схеме:
+ * её создаёт Flyway, наполнение, архивирование и снимки при запуске отключены,
+ * после теста схема удаляется вместе с контекстом. Прогоны выполняются
+ * в транзакциях с откатом.
+ */
+@SpringBootTest
+@DirtiesContext
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class InterestAccrualStrategyTests {
+
+    private static final LocalDate ACCRUAL_DATE = LocalDate.of(2030, 6, 30);
+    private static final int CONTRACTS = 300;
+    private static final String SCHEMA = "accrual_strategy_" + UUID.randomUUID().toString().substring(0, 8);
+
+    @Autowired
+    private InterestAccrualService interestAccrualService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private DepositProductRepository depositProductRepository;
+
+    @Autowired
+    private DepositContractRepository depositContractRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @DynamicPropertySource
+    static void isolatedSchema(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.hikari.schema", () -> SCHEMA);
+        registry.add("spring.flyway.schemas", () -> SCHEMA);
+        registry.add("spring.flyway.default-schema", () -> SCHEMA);
+        registry.add("spring.jpa.properties.hibernate.default_schema", () -> SCHEMA);
+        registry.add("bankdeposit.seed.on-startup", () -> "false");
+        registry.add("bankdeposit.archive.on-startup", () -> "false");
+        registry.add("bankdeposit.snapshot.enabled", () -> "false");
+    }
+
+    @AfterAll
+    void dropSchema() {
+        jdbcTemplate.execute("drop schema if exists " + SCHEMA + " cascade");
+    }
+
+    @Test
+    void setBasedAccrualMatchesJavaAccrualPerContract() {
+        List<String> javaResults = runAndRollback(AccrualStrategy.SEQUENTIAL);
+        List<String> sqlResults = runAndRollback(AccrualStrategy.SET_BASED);
+
+        assertThat(sqlResults).hasSize(CONTRACTS);
+        assertThat(javaResults).anyMatch(r -> r.contains("(капитализация)"));
+        assertThat(javaResults).anyMatch(r -> r.endsWith("|[]"));
+        assertThat(sqlResults).containsExactlyElementsOf(javaResults);
+    }
+
+    @Test
+    void repeatedRunOnSameDateDoesNotAccrueTwice() {
+        // Стратегии, работающие в транзакции вызывающего; многопоточные
+        // фиксируют порции сами и проверяются в MultiInstanceAccrualTests
+        for (AccrualStrategy strategy : EnumSet.of(AccrualStrategy.SEQUENTIAL, AccrualStrategy.SET_BASED)) {
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+            tx.executeWithoutResult(status -> {
+                status.setRollbackOnly();
+
+                createContracts();
+
+                AccrualRunReport first = interestAccrualService.runAccrual(ACCRUAL_DATE, strategy);
+                Integer operationsAfterFirst = countAccrualOperations();
+
+                // Отметка на договоре потеряна: повтор защищает только ключ (contract_id, accrual_date)
+                jdbcTemplate.update("""
+                                update deposit_contracts
+                                set accrued_through_date = open_date
+                                where id in (select contract_id from deposit_operations where accrual_date = ?)
+                                """,
+                        ACCRUAL_DATE
+                );
+
+                AccrualRunReport second = interestAccrualService.runAccrual(ACCRUAL_DATE, strategy);
+
+                assertThat(first.accruedCount()).as(strategy.name()).isPositive();
+                assertThat(second.accruedCount()).as(strategy.name()).isZero();
+                assertThat(countAccrualOperations()).as(strategy.name()).isEqualTo(operationsAfterFirst);
+            });
+        }
+    }
+
+    private Integer countAccrualOperations() {
+        return jdbcTemplate.queryForObject("""
+                        select count(*)
+                        from deposit_operations o
+                        join deposit_contracts dc on dc.id = o.contract_id
+                        where dc.contract_number like 'T-ACCRUAL-EQ-%'
+                          and o.accrual_date = ?
+                        """,
+                Integer.class,
+                ACCRUAL_DATE
+        );
+    }
+
+    private List<String> runAndRollback(AccrualStrategy strategy) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        return tx.execute(status -> {
+            status.setRollbackOnly();
+
+            List<String> contractNumbers = createContracts();
+
+            interestAccrualService.runAccrual(ACCRUAL_DATE, strategy);
+
+            List<String> results = new ArrayList<>();
+            for (String contractNumber : contractNumbers) {
+                results.add(describeContract(contractNumber));
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Одинаковый (по seed) набор договоров с разными суммами, ставками и сроками.
+     */
+    private List<String> createContracts() {
+        Random random = new Random(20240601L);
+
+        Customer customer = customerRepository.save(Customer.builder()
+                .lastName("Тестов")
+                .firstName("Тест")
+                .build());
+
+        DepositProduct simple = depositProductRepository.save(productBuilder("Простой", false));
+        DepositProduct capitalized = depositProductRepository.save(productBuilder("С капитализацией", true));
+
+        List<String> contractNumbers = new ArrayList<>();
+        for (int i = 0; i < CONTRACTS; i++) {
+            BigDecimal balance = BigDecimal.valueOf(random.nextLong(100, 1_000_000_000L), 2);
+            BigDecimal rate = BigDecimal.valueOf(random.nextInt(0, 250_000), 4);
+            LocalDate openDate = ACCRUAL_DATE.minusDays(random.nextInt(-5, 900));
+            LocalDate accruedThrough = random.nextBoolean()
+                    ? openDate.plusDays(random.nextInt(0, 30))
+                    : null;
+
+            String number = "T-ACCRUAL-EQ-" + i;
+            depositContractRepository.save(DepositContract.builder()
+                    .contractNumber(number)
+                    .customer(customer)
+                    .product(i % 2 == 0 ? simple : capitalized)
+                    .status(i % 17 == 0 ? DepositContractStatus.CLOSED : DepositContractStatus.OPEN)
+                    .openDate(openDate)
+                    .initialAmount(balance)
+                    .currentBalance(balance)
+                    .interestRate(rate)
+                    .accruedThroughDate(accruedThrough)
+                    .build());
+            contractNumbers.add(number);
+        }
+
+        depositContractRepository.flush();
+        return contractNumbers;
+    }
+
+    private DepositProduct productBuilder(String name, boolean capitalization) {
+        return DepositProduct.builder()
+                .name(name)
+                .baseInterestRate(new BigDecimal("5.00"))
+                .capitalization(capitalization)
+                .build();
+    }
+
+    private String describeContract(String contractNumber) {
+        String contract = jdbcTemplate.queryForObject("""
+                        select current_balance || '|' || coalesce(cast(last_accrual_date as text), '-')
+                               || '|' || coalesce(cast(accrued_through_date as text), '-')
+                        from deposit_contracts
+                        where contract_number = ?
+                        """,
+                String.class,
+                contractNumber
+        );
+
+        List<String> accruals = jdbcTemplate.queryForList("""
+                        select o.amount || '|' || o.operation_datetime || '|' || o.description
+                        from deposit_operations o
+                        join deposit_contracts dc on dc.id = o.contract_id
+                        where dc.contract_number = ?
+                          and o.operation_type = 'INTEREST_ACCRUAL'
+                        order by o.id
+                        """,
+                String.class,
+                contractNumber
+        );
+
+        return contractNumber + "|" + contract + "|" + accruals;
+    }
+}
@@ -0,0 +1,188 @@
+package org.santayn.bankdeposit.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.santayn.bankdeposit.models.Customer;
+import org.santayn.bankdeposit.models.DepositContract;
+import org.santayn.bankdeposit.models.DepositContractStatus;
+import org.santayn.bankdeposit.models.DepositProduct;
+import org.santayn.bankdeposit.repository.CustomerRepository;
+import org.santayn.bankdeposit.repository.DepositContractRepository;
+import org.santayn.bankdeposit.repository.DepositProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Прогноз процентов совпадает с начислением InterestAccrualService на концах
+ * месяцев и на дату прогноза (отрезок через границу месяца, продукт
+ * с капитализацией и без — начисленное прибавляется к остатку в обоих
+ * случаях) и ничего не пишет в БД.
+ *
+ * Рабочие потоки прогноза читают в своих транзакциях, поэтому договоры
+ * фиксируются и удаляются после теста; начисление для сравнения
+ * выполняется в транзакции с откатом.
+ */
+@SpringBootTest
+class InterestForecastServiceTests {
+
+    private static final String PREFIX = "T-FORECAST-";
+    private static final LocalDate ACCRUED_THROUGH = LocalDate.of(2030, 1, 20);
+    private static final LocalDate HORIZON = LocalDate.of(2030, 3, 15);
+    private static final List<LocalDate> ACCRUAL_DATES = List.of(
+            LocalDate.of(2030, 1, 31),
+            LocalDate.of(2030, 2, 28),
+            HORIZON
+    );
+
+    @Autowired
+    private InterestForecastService interestForecastService;
+
+    @Autowired
+    private InterestAccrualService interestAccrualService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private DepositProductRepository depositProductRepository;
+
+    @Autowired
+    private DepositContractRepository depositContractRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("""
+                        delete from deposit_operations
+                        where contract_id in (select id from deposit_contracts where contract_number like ?)
+                        """,
+                PREFIX + "%"
+        );
+        jdbcTemplate.update("delete from deposit_contracts where contract_number like ?", PREFIX + "%");
+        jdbcTemplate.update("delete from deposit_products where name like ?", PREFIX + "%");
+        jdbcTemplate.update("delete from customers where last_name = 'Тестов' and first_name like 'Прогноз%'");
+    }
+
+    @Test
+    void forecastMatchesMonthEndAccrualsAndWritesNothing() {
+        DepositContract compound = createContract("Прогноз-К", true, new BigDecimal("10.00"), "100000.00");
+        DepositContract simple = createContract("Прогноз-П", false, new BigDecimal("7.50"), "250000.00");
+
+        List<Map<String, Object>> stateBefore = contractsState();
+        Integer operationsBefore = countOperations();
+
+        InterestForecast forecast = interestForecastService.forecast(HORIZON);
+
+        assertThat(contractsState()).isEqualTo(stateBefore);
+        assertThat(countOperations()).isEqualTo(operationsBefore);
+
+        List<BigDecimal> compoundByMonth = accrueByMonth(compound);
+        List<BigDecimal> simpleByMonth = accrueByMonth(simple);
+
+        assertThat(compoundByMonth).allMatch(v -> v.signum() > 0);
+        assertThat(simpleByMonth).allMatch(v -> v.signum() > 0);
+
+        BigDecimal compoundTotal = sum(compoundByMonth);
+        BigDecimal simpleTotal = sum(simpleByMonth);
+
+        assertThat(forecast.byProduct().get(compound.getProduct().getId())).isEqualByComparingTo(compoundTotal);
+        assertThat(forecast.byCustomer().get(compound.getCustomer().getId())).isEqualByComparingTo(compoundTotal);
+        assertThat(forecast.byProduct().get(simple.getProduct().getId())).isEqualByComparingTo(simpleTotal);
+        assertThat(forecast.byCustomer().get(simple.getCustomer().getId())).isEqualByComparingTo(simpleTotal);
+
+        // byMonth включает и прочие OPEN-договоры БД: наши суммы — нижняя граница
+        for (int i = 0; i < ACCRUAL_DATES.size(); i++) {
+            YearMonth month = YearMonth.from(ACCRUAL_DATES.get(i));
+            assertThat(forecast.byMonth().get(month))
+                    .as("месяц %s", month)
+                    .isGreaterThanOrEqualTo(compoundByMonth.get(i).add(simpleByMonth.get(i)));
+        }
+        assertThat(forecast.totalInterest()).isGreaterThanOrEqualTo(compoundTotal.add(simpleTotal));
+        assertThat(forecast.contractsCount()).isGreaterThanOrEqualTo(2);
+    }
+
+    /**
+     * Начисления договора на концах месяцев и на дату прогноза, в транзакции с откатом.
+     */
+    private List<BigDecimal> accrueByMonth(DepositContract contract) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        return tx.execute(status -> {
+            status.setRollbackOnly();
+
+            return ACCRUAL_DATES.stream()
+                    .map(date -> {
+                        assertThat(interestAccrualService.accrueInterestForContract(contract.getId(), date)).isTrue();
+                        depositContractRepository.flush();
+                        return jdbcTemplate.queryForObject(
+                                "select amount from deposit_operations where contract_id = ? and accrual_date = ?",
+                                BigDecimal.class,
+                                contract.getId(),
+                                date
+                        );
+                    })
+                    .toList();
+        });
+    }
+
+    private List<Map<String, Object>> contractsState() {
+        return jdbcTemplate.queryForList("""
+                        select id, current_balance, accrued_through_date, last_accrual_date, version
+                        from deposit_contracts
+                        where contract_number like ?
+                        order by id
+                        """,
+                PREFIX + "%"
+        );
+    }
+
+    private Integer countOperations() {
+        return jdbcTemplate.queryForObject("select count(*) from deposit_operations", Integer.class);
+    }
+
+    private static BigDecimal sum(List<BigDecimal> values) {
+        return values.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    private DepositContract createContract(String firstName, boolean capitalization, BigDecimal rate, String amount) {
+        Customer customer = customerRepository.save(Customer.builder()
+                .lastName("Тестов")
+                .firstName(firstName)
+                .build());
+
+        DepositProduct product = depositProductRepository.save(DepositProduct.builder()
+                .name(PREFIX + firstName)
+                .baseInterestRate(rate)
+                .capitalization(capitalization)
+                .build());
+
+        BigDecimal balance = new BigDecimal(amount);
+        return depositContractRepository.save(DepositContract.builder()
+                .contractNumber(PREFIX + firstName)
+                .customer(customer)
+                .product(product)
+                .status(DepositContractStatus.OPEN)
+                .openDate(ACCRUED_THROUGH.minusDays(10))
+                .accruedThroughDate(ACCRUED_THROUGH)
+                .initialAmount(balance)
+                .currentBalance(balance)
+                .interestRate(rate)
+                .build());
+    }
+}
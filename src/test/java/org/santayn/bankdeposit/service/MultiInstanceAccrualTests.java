@@ -0,0 +1,192 @@
+package org.santayn.bankdeposit.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.santayn.bankdeposit.BankDepositApplication;
+import org.santayn.bankdeposit.models.AccrualStrategy;
+import org.santayn.bankdeposit.models.Customer;
+import org.santayn.bankdeposit.models.DepositContract;
+import org.santayn.bankdeposit.models.DepositContractStatus;
+import org.santayn.bankdeposit.models.DepositProduct;
+import org.santayn.bankdeposit.repository.CustomerRepository;
+import org.santayn.bankdeposit.repository.DepositContractRepository;
+import org.santayn.bankdeposit.repository.DepositProductRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Несколько экземпляров приложения (отдельные Spring-контексты со своими
+ * пулами соединений) одновременно выполняют один прогон начисления
+ * WORK_CLAIMING на одной БД.
+ *
+ * Данные фиксируются по-настоящему, поэтому экземпляры работают в отдельной
+ * схеме, которую создаёт Flyway и которая удаляется после теста. Наполнение
+ * тестовыми данными, архивирование и снимки остатков при запуске отключены:
+ * в схеме есть только договоры, созданные тестом.
+ */
+class MultiInstanceAccrualTests {
+
+    private static final LocalDate ACCRUAL_DATE = LocalDate.of(2031, 1, 31);
+    private static final String CONTRACT_PREFIX = "T-ACCRUAL-MULTI-";
+    private static final int INSTANCES = 3;
+    private static final int CONTRACTS = 600;
+
+    private final List<ConfigurableApplicationContext> instances = new ArrayList<>();
+    private final String schema = "accrual_multi_" + UUID.randomUUID().toString().substring(0, 8);
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void startInstances() {
+        // По очереди: миграции не рассчитаны на одновременный старт
+        for (int i = 0; i < INSTANCES; i++) {
+            instances.add(new SpringApplicationBuilder(BankDepositApplication.class)
+                    .properties(
+                            "spring.datasource.hikari.schema=" + schema,
+                            "spring.flyway.schemas=" + schema,
+                            "spring.flyway.default-schema=" + schema,
+                            "spring.jpa.properties.hibernate.default_schema=" + schema,
+                            "spring.jpa.show-sql=false",
+                            "spring.datasource.hikari.maximum-pool-size=4",
+                            "bankdeposit.seed.on-startup=false",
+                            "bankdeposit.archive.on-startup=false",
+                            "bankdeposit.snapshot.enabled=false",
+                            "bankdeposit.accrual.chunk-size=20",
+                            "bankdeposit.accrual.parallelism=2",
+                            "bankdeposit.accrual.reserved-connections=1"
+                    )
+                    .run());
+        }
+        jdbcTemplate = instances.get(0).getBean(JdbcTemplate.class);
+    }
+
+    @AfterEach
+    void stopInstances() {
+        try {
+            if (jdbcTemplate != null) {
+                jdbcTemplate.execute("drop schema if exists " + schema + " cascade");
+            }
+        } finally {
+            instances.forEach(ConfigurableApplicationContext::close);
+            instances.clear();
+        }
+    }
+
+    @Test
+    void instancesShareOneRunWithoutDoublePosting() {
+        createContracts(instances.get(0));
+
+        List<AccrualRunReport> reports = runConcurrently();
+
+        int accruedTotal = reports.stream().mapToInt(AccrualRunReport::accruedCount).sum();
+        Integer postingsOnDate = jdbcTemplate.queryForObject(
+                "select count(*) from deposit_operations where accrual_date = ?",
+                Integer.class,
+                ACCRUAL_DATE
+        );
+        assertThat(reports).allMatch(r -> r.failedCount() == 0);
+        assertThat(accruedTotal).isEqualTo(postingsOnDate);
+
+        Integer postings = jdbcTemplate.queryForObject("""
+                        select count(*)
+                        from deposit_operations o
+                        join deposit_contracts dc on dc.id = o.contract_id
+                        where dc.contract_number like ?
+                          and o.operation_type = 'INTEREST_ACCRUAL'
+                        """,
+                Integer.class,
+                CONTRACT_PREFIX + "%"
+        );
+        Integer contractsWithOnePosting = jdbcTemplate.queryForObject("""
+                        select count(*)
+                        from deposit_contracts dc
+                        where dc.contract_number like ?
+                          and dc.current_balance > dc.initial_amount
+                          and dc.accrued_through_date = ?
+                          and (select count(*)
+                               from deposit_operations o
+                               where o.contract_id = dc.id
+                                 and o.accrual_date = ?) = 1
+                        """,
+                Integer.class,
+                CONTRACT_PREFIX + "%",
+                ACCRUAL_DATE,
+                ACCRUAL_DATE
+        );
+
+        assertThat(postings).isEqualTo(CONTRACTS);
+        assertThat(contractsWithOnePosting).isEqualTo(CONTRACTS);
+    }
+
+    private List<AccrualRunReport> runConcurrently() {
+        ExecutorService executor = Executors.newFixedThreadPool(INSTANCES);
+        CountDownLatch start = new CountDownLatch(1);
+
+        try {
+            List<CompletableFuture<AccrualRunReport>> futures = instances.stream()
+                    .map(ctx -> ctx.getBean(InterestAccrualService.class))
+                    .map(service -> CompletableFuture.supplyAsync(() -> {
+                        awaitQuietly(start);
+                        return service.runAccrual(ACCRUAL_DATE, AccrualStrategy.WORK_CLAIMING);
+                    }, executor))
+                    .toList();
+
+            start.countDown();
+
+            return futures.stream().map(CompletableFuture::join).toList();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private void createContracts(ConfigurableApplicationContext ctx) {
+        Customer customer = ctx.getBean(CustomerRepository.class).save(Customer.builder()
+                .lastName("Тестов")
+                .firstName("Мульти")
+                .build());
+
+        DepositProduct product = ctx.getBean(DepositProductRepository.class).save(DepositProduct.builder()
+                .name(CONTRACT_PREFIX + "продукт")
+                .baseInterestRate(new BigDecimal("7.50"))
+                .capitalization(false)
+                .build());
+
+        List<DepositContract> contracts = new ArrayList<>();
+        for (int i = 0; i < CONTRACTS; i++) {
+            BigDecimal balance = BigDecimal.valueOf(10_000L + i * 37L, 0);
+            contracts.add(DepositContract.builder()
+                    .contractNumber(CONTRACT_PREFIX + i)
+                    .customer(customer)
+                    .product(product)
+                    .status(DepositContractStatus.OPEN)
+                    .openDate(ACCRUAL_DATE.minusDays(90 + i % 60))
+                    .initialAmount(balance)
+                    .currentBalance(balance)
+                    .interestRate(new BigDecimal("7.50"))
+                    .build());
+        }
+        ctx.getBean(DepositContractRepository.class).saveAll(contracts);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
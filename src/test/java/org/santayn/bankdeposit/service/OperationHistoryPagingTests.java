@@ -0,0 +1,134 @@
+package org.santayn.bankdeposit.service;
+
+import org.junit.jupiter.api.Test;
+import org.santayn.bankdeposit.models.Customer;
+import org.santayn.bankdeposit.models.DepositContract;
+import org.santayn.bankdeposit.models.DepositContractStatus;
+import org.santayn.bankdeposit.models.DepositProduct;
+import org.santayn.bankdeposit.repository.CustomerRepository;
+import org.santayn.bankdeposit.repository.DepositContractRepository;
+import org.santayn.bankdeposit.repository.DepositProductRepository;
+import org.santayn.bankdeposit.repository.OperationRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Постраничная (по курсору) и потоковая выдача истории операций договора.
+ *
+ * Тест выполняется в транзакции с откатом, поэтому данные в БД не меняются.
+ */
+@SpringBootTest
+@Transactional
+class OperationHistoryPagingTests {
+
+    private static final int OPERATIONS = 250;
+
+    @Autowired
+    private DepositOperationService depositOperationService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private DepositProductRepository depositProductRepository;
+
+    @Autowired
+    private DepositContractRepository depositContractRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void pagesCoverWholeHistoryNewestFirstWithoutGapsOrDuplicates() {
+        Long contractId = createContractWithHistory();
+
+        List<Long> paged = new ArrayList<>();
+        OperationCursor cursor = null;
+        int pages = 0;
+
+        do {
+            OperationPage page = depositOperationService.getOperationPage(contractId, cursor, 40);
+            page.operations().forEach(op -> paged.add(op.id()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        List<Long> chronological = new ArrayList<>();
+        depositOperationService.forEachOperation(contractId, op -> chronological.add(op.getId()));
+
+        List<Long> expected = jdbcTemplate.queryForList(
+                "select id from deposit_operations where contract_id = ? order by operation_datetime, id",
+                Long.class,
+                contractId
+        );
+
+        assertThat(pages).isEqualTo(7);
+        assertThat(chronological).containsExactlyElementsOf(expected);
+
+        Collections.reverse(expected);
+        assertThat(paged).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void lastPageReportsNoMore() {
+        Long contractId = createContractWithHistory();
+
+        OperationPage all = depositOperationService.getOperationPage(contractId, null, OPERATIONS);
+
+        assertThat(all.operations()).hasSize(OPERATIONS);
+        assertThat(all.hasMore()).isFalse();
+        assertThat(all.operations()).extracting(OperationRow::operationDateTime)
+                .isSortedAccordingTo((a, b) -> b.compareTo(a));
+    }
+
+    /**
+     * Договор с историей, где многие операции имеют одинаковое время
+     * (пакетное начисление пишет одно время на всю порцию).
+     */
+    private Long createContractWithHistory() {
+        Customer customer = customerRepository.save(Customer.builder()
+                .lastName("Тестов")
+                .firstName("История")
+                .build());
+
+        DepositProduct product = depositProductRepository.save(DepositProduct.builder()
+                .name("T-HISTORY-продукт")
+                .baseInterestRate(new BigDecimal("5.00"))
+                .build());
+
+        DepositContract contract = depositContractRepository.saveAndFlush(DepositContract.builder()
+                .contractNumber("T-HISTORY-1")
+                .customer(customer)
+                .product(product)
+                .openDate(LocalDate.of(2024, 1, 1))
+                .initialAmount(new BigDecimal("1000.00"))
+                .currentBalance(new BigDecimal("1000.00"))
+                .interestRate(product.getBaseInterestRate())
+                .status(DepositContractStatus.OPEN)
+                .build());
+
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+        for (int i = 0; i < OPERATIONS; i++) {
+            jdbcTemplate.update("""
+                            insert into deposit_operations (contract_id, amount, operation_datetime, operation_type)
+                            values (?, 1.00, ?, 'INTEREST_ACCRUAL')
+                            """,
+                    contract.getId(),
+                    start.plusDays(i / 3)
+            );
+        }
+
+        return contract.getId();
+    }
+}
@@ -0,0 +1,141 @@
+package org.santayn.bankdeposit.service;
+
+import org.junit.jupiter.api.Test;
+import org.santayn.bankdeposit.models.Customer;
+import org.santayn.bankdeposit.models.DepositContract;
+import org.santayn.bankdeposit.models.DepositContractStatus;
+import org.santayn.bankdeposit.models.DepositProduct;
+import org.santayn.bankdeposit.repository.CustomerRepository;
+import org.santayn.bankdeposit.repository.DepositContractRepository;
+import org.santayn.bankdeposit.repository.DepositOperationRepository;
+import org.santayn.bankdeposit.repository.DepositProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Помесячные секции deposit_operations: уникальность автоначисления за дату
+ * и перенос строк из секции по умолчанию при создании секции месяца.
+ *
+ * Тест выполняется в транзакции с откатом (включая DDL секций).
+ */
+@SpringBootTest
+@Transactional
+class OperationPartitioningTests {
+
+    private static final LocalDate FAR_MONTH = LocalDate.of(2090, 3, 1);
+
+    @Autowired
+    private OperationPartitionService operationPartitionService;
+
+    @Autowired
+    private DepositOperationRepository depositOperationRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private DepositProductRepository depositProductRepository;
+
+    @Autowired
+    private DepositContractRepository depositContractRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void accrualForSameDateIsRejectedInsidePartition() {
+        Long contractId = createContract();
+        LocalDate accrualDate = LocalDate.now().withDayOfMonth(1);
+
+        insertAccrual(contractId, accrualDate, accrualDate.atTime(12, 0));
+
+        assertThat(depositOperationRepository.existsByContractIdAndAccrualDate(contractId, accrualDate)).isTrue();
+        assertThat(depositOperationRepository.findContractIdsAccruedOn(accrualDate, List.of(contractId)))
+                .containsExactly(contractId);
+
+        assertThatThrownBy(() -> insertAccrual(contractId, accrualDate, accrualDate.atTime(18, 30)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void accrualDateMustFallInOperationMonth() {
+        Long contractId = createContract();
+        LocalDate accrualDate = LocalDate.now().withDayOfMonth(1);
+
+        // Иначе две операции за одну дату могли бы оказаться в разных секциях
+        assertThatThrownBy(() -> insertAccrual(contractId, accrualDate, accrualDate.minusDays(1).atTime(12, 0)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    @Test
+    void newPartitionTakesOverRowsFromDefault() {
+        Long contractId = createContract();
+        insertAccrual(contractId, FAR_MONTH.plusDays(14), FAR_MONTH.plusDays(14).atTime(12, 0));
+
+        assertThat(partitionOf(contractId)).isEqualTo("deposit_operations_default");
+
+        int created = operationPartitionService.ensurePartitions(FAR_MONTH);
+
+        assertThat(created).isPositive();
+        assertThat(partitionOf(contractId)).isEqualTo("deposit_operations_2090_03");
+        assertThat(operationPartitionService.ensurePartitions(FAR_MONTH)).isZero();
+        assertThat(depositOperationRepository.existsByContractIdAndAccrualDate(contractId, FAR_MONTH.plusDays(14)))
+                .isTrue();
+    }
+
+    private String partitionOf(Long contractId) {
+        return jdbcTemplate.queryForObject(
+                "select tableoid::regclass::text from deposit_operations where contract_id = ?",
+                String.class,
+                contractId
+        );
+    }
+
+    private void insertAccrual(Long contractId, LocalDate accrualDate, LocalDateTime dateTime) {
+        jdbcTemplate.update("""
+                        insert into deposit_operations (contract_id, amount, operation_datetime, operation_type,
+                                                        accrual_date)
+                        values (?, 1.00, ?, 'INTEREST_ACCRUAL', ?)
+                        """,
+                contractId,
+                dateTime,
+                accrualDate
+        );
+    }
+
+    private Long createContract() {
+        Customer customer = customerRepository.save(Customer.builder()
+                .lastName("Тестов")
+                .firstName("Секция")
+                .build());
+
+        DepositProduct product = depositProductRepository.save(DepositProduct.builder()
+                .name("T-PARTITION-продукт")
+                .baseInterestRate(new BigDecimal("5.00"))
+                .build());
+
+        DepositContract contract = depositContractRepository.saveAndFlush(DepositContract.builder()
+                .contractNumber("T-PARTITION-1")
+                .customer(customer)
+                .product(product)
+                .openDate(LocalDate.now())
+                .initialAmount(new BigDecimal("1000.00"))
+                .currentBalance(new BigDecimal("1000.00"))
+                .interestRate(product.getBaseInterestRate())
+                .status(DepositContractStatus.OPEN)
+                .build());
+
+        return contract.getId();
+    }
+}
@@ -0,0 +1,153 @@
+package org.santayn.bankdeposit.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.santayn.bankdeposit.models.Customer;
+import org.santayn.bankdeposit.models.DepositContract;
+import org.santayn.bankdeposit.models.DepositProduct;
+import org.santayn.bankdeposit.repository.CustomerRepository;
+import org.santayn.bankdeposit.repository.DepositProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Конвейер проводок: пачки фиксируются группами, ни одна проводка
+ * не теряется, отклонённая проводка получает ту же ошибку, что и при прямом вызове,
+ * а результаты по договору следуют порядку подачи.
+ */
+@SpringBootTest
+class PostingPipelineTests {
+
+    private static final String PRODUCT_NAME = "T-PIPELINE-продукт";
+    private static final int CONTRACTS = 10;
+    private static final int POSTINGS = 2_000;
+
+    @Autowired
+    private PostingPipeline postingPipeline;
+
+    @Autowired
+    private DepositContractService depositContractService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private DepositProductRepository depositProductRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void cleanUp() {
+        jdbcTemplate.update("""
+                        delete from deposit_operations
+                        where contract_id in (select dc.id
+                                              from deposit_contracts dc
+                                              join deposit_products dp on dp.id = dc.product_id
+                                              where dp.name = ?)
+                        """,
+                PRODUCT_NAME
+        );
+        jdbcTemplate.update("""
+                        delete from deposit_contracts
+                        where product_id in (select id from deposit_products where name = ?)
+                        """,
+                PRODUCT_NAME
+        );
+        jdbcTemplate.update("delete from deposit_products where name = ?", PRODUCT_NAME);
+        jdbcTemplate.update("delete from customers where first_name = 'Конвейер' and last_name = 'Тестов'");
+    }
+
+    @Test
+    void burstOfDepositsIsGroupCommitted() {
+        List<DepositContract> contracts = openContracts();
+        long batchesBefore = postingPipeline.getBatchCount();
+
+        List<CompletableFuture<BigDecimal>> futures = new ArrayList<>();
+        for (int i = 0; i < POSTINGS; i++) {
+            DepositContract contract = contracts.get(i % CONTRACTS);
+            futures.add(postingPipeline.deposit(contract.getId(), new BigDecimal("1.50"), null));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        for (DepositContract contract : contracts) {
+            assertThat(depositContractService.getContractById(contract.getId()).getCurrentBalance())
+                    .isEqualByComparingTo(new BigDecimal("100.00").add(new BigDecimal("1.50").multiply(
+                            BigDecimal.valueOf(POSTINGS / CONTRACTS))));
+        }
+        assertThat(postingPipeline.getBatchCount() - batchesBefore).isLessThan(POSTINGS / 10);
+    }
+
+    @Test
+    void rejectedPostingFailsItsOwnFutureOnly() {
+        DepositContract contract = openContracts().get(0);
+
+        CompletableFuture<BigDecimal> tooMuch = postingPipeline.withdraw(contract.getId(), new BigDecimal("500.00"), null);
+        CompletableFuture<BigDecimal> ok = postingPipeline.withdraw(contract.getId(), new BigDecimal("40.00"), null);
+
+        assertThat(ok.join()).isEqualByComparingTo("60.00");
+        assertThatThrownBy(tooMuch::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(InvalidOperationException.class)
+                .hasMessageContaining("Недостаточно средств для снятия");
+    }
+
+    @Test
+    void rejectionIsNotRescuedByLaterDepositInSameBatch() {
+        DepositContract contract = openContracts().get(0);
+
+        CompletableFuture<BigDecimal> tooMuch = postingPipeline.withdraw(contract.getId(), new BigDecimal("150.00"), null);
+        CompletableFuture<BigDecimal> deposit = postingPipeline.deposit(contract.getId(), new BigDecimal("100.00"), null);
+        CompletableFuture<BigDecimal> after = postingPipeline.withdraw(contract.getId(), new BigDecimal("150.00"), null);
+
+        assertThatThrownBy(tooMuch::join)
+                .hasCauseInstanceOf(InvalidOperationException.class)
+                .hasMessageContaining("Недостаточно средств для снятия");
+        assertThat(deposit.join()).isEqualByComparingTo("200.00");
+        assertThat(after.join()).isEqualByComparingTo("50.00");
+
+        List<String> types = jdbcTemplate.queryForList(
+                "select operation_type from deposit_operations where contract_id = ? order by id",
+                String.class,
+                contract.getId()
+        );
+        assertThat(types).containsExactly("OPENING", "DEPOSIT", "WITHDRAWAL");
+    }
+
+    private List<DepositContract> openContracts() {
+        Customer customer = customerRepository.save(Customer.builder()
+                .lastName("Тестов")
+                .firstName("Конвейер")
+                .build());
+
+        DepositProduct product = depositProductRepository.save(DepositProduct.builder()
+                .name(PRODUCT_NAME)
+                .baseInterestRate(new BigDecimal("5.00"))
+                .allowReplenishment(true)
+                .allowPartialWithdrawal(true)
+                .capitalization(false)
+                .build());
+
+        List<DepositContract> contracts = new ArrayList<>();
+        for (int i = 0; i < CONTRACTS; i++) {
+            contracts.add(depositContractService.openContract(
+                    customer.getId(),
+                    product.getId(),
+                    new BigDecimal("100.00"),
+                    LocalDate.now()
+            ));
+        }
+        return contracts;
+    }
+}
@@ -0,0 +1,136 @@
+package org.santayn.bankdeposit.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Фоновые задания отчётов: ход в строках, готовый файл копируется по запросу,
+ * выполняющееся задание отменяется на следующей строке, переполненная очередь
+ * отклоняет новые задания.
+ */
+class ReportJobServiceTests {
+
+    @TempDir
+    Path directory;
+
+    private ReportJobService jobs;
+
+    @AfterEach
+    void tearDown() {
+        if (jobs != null) {
+            jobs.stop();
+        }
+    }
+
+    @Test
+    void completedJobReportsRowsAndSavesResult() throws Exception {
+        jobs = newService(1, 4);
+
+        ReportJobStatus submitted = jobs.submit("T", "t.xlsx", (file, progress) -> {
+            for (int i = 0; i < 100; i++) {
+                progress.rowWritten();
+            }
+            write(file, "готово");
+        });
+
+        ReportJobStatus done = awaitFinished(submitted.id());
+        assertThat(done.state()).isEqualTo(ReportJobState.COMPLETED);
+        assertThat(done.rowsProcessed()).isEqualTo(100);
+
+        Path target = directory.resolve("saved.xlsx");
+        jobs.saveResult(submitted.id(), target.toFile());
+        assertThat(Files.readString(target)).isEqualTo("готово");
+    }
+
+    @Test
+    void runningJobStopsOnCancelAndLeavesNoFile() throws Exception {
+        jobs = newService(1, 4);
+        CountDownLatch started = new CountDownLatch(1);
+
+        ReportJobStatus submitted = jobs.submit("T", "t.xlsx", (file, progress) -> {
+            started.countDown();
+            while (true) {
+                progress.rowWritten();
+                Thread.onSpinWait();
+            }
+        });
+
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(jobs.cancel(submitted.id())).isTrue();
+
+        ReportJobStatus done = awaitFinished(submitted.id());
+        assertThat(done.state()).isEqualTo(ReportJobState.CANCELLED);
+        assertThat(jobs.cancel(submitted.id())).isFalse();
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void fullQueueRejectsNewJobs() throws Exception {
+        jobs = newService(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ReportJobStatus running = jobs.submit("T", "t.xlsx", (file, progress) -> await(release));
+        ReportJobStatus queued = jobs.submit("T", "t.xlsx", (file, progress) -> await(release));
+
+        assertThatThrownBy(() -> jobs.submit("T", "t.xlsx", (file, progress) -> {
+        })).isInstanceOf(InvalidOperationException.class);
+
+        assertThat(jobs.cancel(queued.id())).isTrue();
+        assertThat(jobs.getJob(queued.id()).state()).isEqualTo(ReportJobState.CANCELLED);
+
+        release.countDown();
+        assertThat(awaitFinished(running.id()).state()).isEqualTo(ReportJobState.COMPLETED);
+        assertThat(jobs.getJobs()).extracting(ReportJobStatus::id).containsExactly(queued.id(), running.id());
+    }
+
+    private ReportJobService newService(int workers, int queueCapacity) throws IOException {
+        ReportJobService service = new ReportJobService(null);
+        ReflectionTestUtils.setField(service, "workers", workers);
+        ReflectionTestUtils.setField(service, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(service, "directory", directory.toString());
+        ReflectionTestUtils.setField(service, "retentionMinutes", 60L);
+        service.start();
+        return service;
+    }
+
+    private ReportJobStatus awaitFinished(long jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        ReportJobStatus status = jobs.getJob(jobId);
+        while (!status.isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            status = jobs.getJob(jobId);
+        }
+        return status;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void write(File file, String text) {
+        try {
+            Files.writeString(file.toPath(), text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package org.santayn.bankdeposit.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.santayn.bankdeposit.models.Customer;
+import org.santayn.bankdeposit.models.DepositContract;
+import org.santayn.bankdeposit.models.DepositContractStatus;
+import org.santayn.bankdeposit.models.DepositOperationType;
+import org.santayn.bankdeposit.models.DepositProduct;
+import org.santayn.bankdeposit.repository.CustomerRepository;
+import org.santayn.bankdeposit.repository.DepositContractRepository;
+import org.santayn.bankdeposit.repository.DepositProductRepository;
+import org.santayn.bankdeposit.repository.OperationRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Отчёт по операциям клиента: фильтр по клиенту, типу и периоду выполняется в БД,
+ * договор и клиент приходят тем же запросом — число SQL-запросов не зависит
+ * от числа строк.
+ *
+ * Тест выполняется в транзакции с откатом, поэтому данные в БД не меняются.
+ */
+@SpringBootTest
+@Transactional
+class ReportServiceTests {
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private DepositProductRepository depositProductRepository;
+
+    @Autowired
+    private DepositContractRepository depositContractRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Test
+    void customerOperationsAreFilteredInDatabaseWithoutPerRowLoads() {
+        DepositProduct product = depositProductRepository.save(DepositProduct.builder()
+                .name("T-REPORT-продукт")
+                .baseInterestRate(new BigDecimal("5.00"))
+                .build());
+        Customer customer = createCustomer("Отчёт");
+        Customer other = createCustomer("Чужой");
+
+        LocalDate from = LocalDate.now().minusDays(20);
+        Long first = createContract(customer, product, "T-REPORT-1", from);
+        Long second = createContract(customer, product, "T-REPORT-2", from);
+        Long foreign = createContract(other, product, "T-REPORT-3", from);
+
+        insertOperations(first, from, 10);
+        insertOperations(second, from, 10);
+        insertOperations(foreign, from, 10);
+
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        // Статистика общая для закэшированного контекста: после теста возвращается как была
+        boolean statisticsWereEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        List<OperationRow> all;
+        List<OperationRow> deposits;
+        long statementsForQueries;
+        long statementsAfterReading;
+        long entityLoads;
+        try {
+            all = reportService.getOperationsByPeriodAndTypeForCustomer(
+                    customer.getId(), from, LocalDate.now(), null);
+            deposits = reportService.getOperationsByPeriodAndTypeForCustomer(
+                    customer.getId(), from, LocalDate.now(), DepositOperationType.DEPOSIT);
+
+            statementsForQueries = statistics.getPrepareStatementCount();
+
+            List<String> labels = all.stream()
+                    .map(op -> op.contractNumber() + " " + op.firstName())
+                    .toList();
+            assertThat(labels).allMatch(label -> label.endsWith(" Отчёт"));
+
+            statementsAfterReading = statistics.getPrepareStatementCount();
+            entityLoads = statistics.getEntityLoadCount();
+        } finally {
+            statistics.clear();
+            statistics.setStatisticsEnabled(statisticsWereEnabled);
+        }
+
+        assertThat(all).hasSize(20);
+        assertThat(deposits).hasSize(10).allMatch(op -> op.type() == DepositOperationType.DEPOSIT);
+        assertThat(all).isSortedAccordingTo((a, b) -> a.operationDateTime().compareTo(b.operationDateTime()));
+
+        // По запросу операций и проверке архива на каждый вызов; сущности не создаются
+        assertThat(statementsForQueries).isLessThanOrEqualTo(4);
+        assertThat(statementsAfterReading).isEqualTo(statementsForQueries);
+        assertThat(entityLoads).isZero();
+    }
+
+    @Test
+    void screenReportStopsAtRowLimitAndOnCancel() {
+        DepositProduct product = depositProductRepository.save(DepositProduct.builder()
+                .name("T-REPORT-продукт")
+                .baseInterestRate(new BigDecimal("5.00"))
+                .build());
+        Customer customer = createCustomer("Экран");
+
+        LocalDate from = LocalDate.now().minusDays(20);
+        insertOperations(createContract(customer, product, "T-REPORT-1", from), from, 10);
+        insertOperations(createContract(customer, product, "T-REPORT-2", from), from, 10);
+
+        List<OperationRow> full = reportService.getOperationsByPeriodAndTypeForCustomer(
+                customer.getId(), from, LocalDate.now(), null);
+
+        AtomicInteger read = new AtomicInteger();
+        ReportRows<OperationRow> limited = reportService.getOperationsForScreen(
+                customer.getId(), from, LocalDate.now(), null, 15, read::incrementAndGet);
+
+        assertThat(limited.truncated()).isTrue();
+        assertThat(limited.rows()).containsExactlyElementsOf(full.subList(0, 15));
+        assertThat(read).hasValue(15);
+
+        ReportRows<OperationRow> all = reportService.getOperationsForScreen(
+                customer.getId(), from, LocalDate.now(), null, 20, ReportProgress.NONE);
+
+        assertThat(all.truncated()).isFalse();
+        assertThat(all.rows()).containsExactlyElementsOf(full);
+
+        AtomicInteger beforeCancel = new AtomicInteger();
+        assertThatThrownBy(() -> reportService.getOperationsForScreen(
+                customer.getId(), from, LocalDate.now(), null, 20, () -> {
+                    if (beforeCancel.incrementAndGet() == 5) {
+                        throw new CancellationException();
+                    }
+                })).isInstanceOf(CancellationException.class);
+        assertThat(beforeCancel).hasValue(5);
+    }
+
+    private void insertOperations(Long contractId, LocalDate from, int count) {
+        jdbcTemplate.update("""
+                        insert into deposit_operations (contract_id, amount, operation_datetime, operation_type)
+                        select ?,
+                               g * 10,
+                               cast(? as timestamp) + g * interval '1 day' + (? % 60) * interval '1 minute',
+                               case when g % 2 = 0 then 'DEPOSIT' else 'WITHDRAWAL' end
+                        from generate_series(1, ?) g
+                        """,
+                contractId,
+                from.atStartOfDay(),
+                contractId,
+                count
+        );
+    }
+
+    private Customer createCustomer(String firstName) {
+        return customerRepository.save(Customer.builder()
+                .lastName("Тестов")
+                .firstName(firstName)
+                .build());
+    }
+
+    private Long createContract(Customer customer, DepositProduct product, String number, LocalDate openDate) {
+        DepositContract contract = depositContractRepository.saveAndFlush(DepositContract.builder()
+                .contractNumber(number)
+                .customer(customer)
+                .product(product)
+                .openDate(openDate)
+                .initialAmount(new BigDecimal("1000.00"))
+                .currentBalance(new BigDecimal("1000.00"))
+                .interestRate(product.getBaseInterestRate())
+                .status(DepositContractStatus.OPEN)
+                .build());
+
+        return contract.getId();
+    }
+}
@@ -0,0 +1,162 @@
+package org.santayn.bankdeposit.service;
+
+import org.junit.jupiter.api.Test;
+import org.santayn.bankdeposit.models.Customer;
+import org.santayn.bankdeposit.models.DepositContract;
+import org.santayn.bankdeposit.models.DepositContractStatus;
+import org.santayn.bankdeposit.models.DepositOperationType;
+import org.santayn.bankdeposit.models.DepositProduct;
+import org.santayn.bankdeposit.repository.CustomerRepository;
+import org.santayn.bankdeposit.repository.DepositContractRepository;
+import org.santayn.bankdeposit.repository.DepositProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Обороты из агрегата daily_turnover (плюс текущий день по операциям)
+ * совпадают с подсчётом по сырым операциям, в том числе после удаления операций.
+ *
+ * Тест выполняется в транзакции с откатом, поэтому данные в БД не меняются.
+ */
+@SpringBootTest
+@Transactional
+class TurnoverQueryServiceTests {
+
+    @Autowired
+    private TurnoverQueryService turnoverQueryService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private DepositProductRepository depositProductRepository;
+
+    @Autowired
+    private DepositContractRepository depositContractRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void aggregateTotalsMatchRawOperations() {
+        Customer customer = customerRepository.save(Customer.builder()
+                .lastName("Тестов")
+                .firstName("Оборот")
+                .build());
+        Long first = createContract(customer, "T-TURNOVER-1");
+        Long second = createContract(customer, "T-TURNOVER-2");
+
+        LocalDate today = LocalDate.now();
+        LocalDate from = today.minusDays(30);
+
+        // Одним оператором, как set-based начисление
+        jdbcTemplate.update("""
+                        insert into deposit_operations (contract_id, amount, operation_datetime, operation_type)
+                        select case when g % 2 = 0 then ? else ? end,
+                               g * 1.25,
+                               cast(? as timestamp) + g * interval '7 hours',
+                               case g % 3 when 0 then 'DEPOSIT' when 1 then 'WITHDRAWAL' else 'INTEREST_ACCRUAL' end
+                        from generate_series(1, 100) g
+                        """,
+                first,
+                second,
+                from.atStartOfDay()
+        );
+        insertOperation(first, "DEPOSIT", new BigDecimal("500.00"), today.atTime(0, 5));
+        insertOperation(second, "WITHDRAWAL", new BigDecimal("20.00"), LocalDateTime.now());
+
+        assertMatchesRaw(customer.getId(), from, today);
+
+        jdbcTemplate.update("""
+                        delete from deposit_operations
+                        where contract_id = ?
+                          and operation_type = 'INTEREST_ACCRUAL'
+                        """,
+                second
+        );
+
+        assertMatchesRaw(customer.getId(), from, today);
+        assertMatchesRaw(customer.getId(), from.plusDays(3), today.minusDays(10));
+        assertMatchesRaw(customer.getId(), today, today);
+
+        Integer emptyRows = jdbcTemplate.queryForObject(
+                "select count(*) from daily_turnover where contract_id = ? and operation_type = 'INTEREST_ACCRUAL'",
+                Integer.class,
+                second
+        );
+        assertThat(emptyRows).isZero();
+    }
+
+    private void assertMatchesRaw(Long customerId, LocalDate from, LocalDate to) {
+        Map<DepositOperationType, TurnoverTotal> totals = turnoverQueryService.getTotalsByType(from, to, customerId);
+
+        for (DepositOperationType type : DepositOperationType.values()) {
+            Map<String, Object> raw = jdbcTemplate.queryForMap("""
+                            select coalesce(sum(o.amount), 0) as amount, count(*) as cnt
+                            from deposit_operations o
+                            join deposit_contracts dc on dc.id = o.contract_id
+                            where dc.customer_id = ?
+                              and o.operation_type = ?
+                              and o.operation_datetime >= ?
+                              and o.operation_datetime < ?
+                            """,
+                    customerId,
+                    type.name(),
+                    from.atStartOfDay(),
+                    to.plusDays(1).atStartOfDay()
+            );
+
+            long count = ((Number) raw.get("cnt")).longValue();
+            TurnoverTotal total = totals.get(type);
+
+            if (count == 0) {
+                assertThat(total).as("%s %s..%s", type, from, to).isNull();
+            } else {
+                assertThat(total).as("%s %s..%s", type, from, to).isNotNull();
+                assertThat(total.operationCount()).isEqualTo(count);
+                assertThat(total.totalAmount()).isEqualByComparingTo((BigDecimal) raw.get("amount"));
+            }
+        }
+    }
+
+    private void insertOperation(Long contractId, String type, BigDecimal amount, LocalDateTime dateTime) {
+        jdbcTemplate.update("""
+                        insert into deposit_operations (contract_id, amount, operation_datetime, operation_type)
+                        values (?, ?, ?, ?)
+                        """,
+                contractId,
+                amount,
+                dateTime,
+                type
+        );
+    }
+
+    private Long createContract(Customer customer, String number) {
+        DepositProduct product = depositProductRepository.save(DepositProduct.builder()
+                .name(number + "-продукт")
+                .baseInterestRate(new BigDecimal("5.00"))
+                .build());
+
+        DepositContract contract = depositContractRepository.saveAndFlush(DepositContract.builder()
+                .contractNumber(number)
+                .customer(customer)
+                .product(product)
+                .openDate(LocalDate.now().minusDays(40))
+                .initialAmount(new BigDecimal("1000.00"))
+                .currentBalance(new BigDecimal("1000.00"))
+                .interestRate(product.getBaseInterestRate())
+                .status(DepositContractStatus.OPEN)
+                .build());
+
+        return contract.getId();
+    }
+}